@@ -0,0 +1,35 @@
+package com.vbalan.rate_limiter.benchmark;
+
+import java.util.Arrays;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks once per thread count with the GC profiler attached, so every result carries
+ * {@code gc.alloc.rate.norm} (bytes allocated per decision) next to ops/s.
+ *
+ * <p>Usage: {@code BenchmarkRunner <threads,...> [jmh options]}, e.g. {@code 1,4,16 -p
+ * backend=memory}.
+ */
+public class BenchmarkRunner {
+
+  public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+    CommandLineOptions jmhOptions =
+        new CommandLineOptions(Arrays.copyOfRange(args, Math.min(1, args.length), args.length));
+    String[] threadCounts = args.length > 0 ? args[0].split(",") : new String[] {"1"};
+    for (String threads : threadCounts) {
+      new Runner(
+              new OptionsBuilder()
+                  .parent(jmhOptions)
+                  .include(RateLimiterBenchmark.class.getSimpleName())
+                  .threads(Integer.parseInt(threads.trim()))
+                  .addProfiler(GCProfiler.class)
+                  .build())
+          .run();
+    }
+  }
+}
@@ -0,0 +1,267 @@
+package com.vbalan.rate_limiter.benchmark;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-loop HTTP/1.1 load against a running instance: one virtual thread per keep-alive
+ * connection, each sending its next request as soon as the previous response arrives. Connections
+ * are opened first, then all of them start together and run for the measured duration.
+ *
+ * <p>Usage: {@code HttpLoadGenerator <connections> <seconds> <url> [client-id]}, e.g. {@code 10000
+ * 30 http://localhost:8080/foo client-1}. Denied requests (429) count as completed; they take the
+ * same storage round trip as allowed ones.
+ */
+public class HttpLoadGenerator {
+  private static final int CONNECT_TIMEOUT_MS = 10_000;
+  // Bounds a stalled response so a run always ends; a timeout counts as a connection error.
+  private static final int READ_TIMEOUT_MS = 15_000;
+
+  private final LongAdder allowed = new LongAdder();
+  private final LongAdder limited = new LongAdder();
+  private final LongAdder otherStatus = new LongAdder();
+  private final LongAdder errors = new LongAdder();
+  private final LongAdder connected = new LongAdder();
+  private final Histogram latency = new Histogram();
+
+  public static void main(String[] args) throws Exception {
+    int connections = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+    int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+    URI uri = URI.create(args.length > 2 ? args[2] : "http://localhost:8080/foo");
+    String clientId = args.length > 3 ? args[3] : "client-1";
+    new HttpLoadGenerator().run(connections, seconds, uri, clientId);
+  }
+
+  private void run(int connections, int seconds, URI uri, String clientId)
+      throws InterruptedException {
+    byte[] request =
+        ("GET "
+                + uri.getRawPath()
+                + " HTTP/1.1\r\nHost: "
+                + uri.getHost()
+                + "\r\nAuthorization: Bearer "
+                + clientId
+                + "\r\n\r\n")
+            .getBytes(StandardCharsets.US_ASCII);
+    InetSocketAddress address = new InetSocketAddress(uri.getHost(), uri.getPort());
+    CountDownLatch ready = new CountDownLatch(connections);
+    CountDownLatch start = new CountDownLatch(1);
+    long[] window = new long[1];
+
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int i = 0; i < connections; i++) {
+        executor.submit(() -> connection(address, request, ready, start, window));
+      }
+      ready.await();
+      System.out.printf("%d of %d connections open%n", connected.sum(), connections);
+      window[0] = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+      start.countDown();
+    }
+    report(seconds);
+  }
+
+  private void connection(
+      InetSocketAddress address,
+      byte[] request,
+      CountDownLatch ready,
+      CountDownLatch start,
+      long[] window) {
+    Connection connection = null;
+    try {
+      try {
+        connection = new Connection(address);
+        connected.increment();
+      } catch (IOException e) {
+        errors.increment();
+      } finally {
+        ready.countDown();
+      }
+      start.await();
+      while (System.nanoTime() < window[0]) {
+        try {
+          if (connection == null) {
+            connection = new Connection(address);
+          }
+          long sent = System.nanoTime();
+          int status = connection.exchange(request);
+          if (System.nanoTime() > window[0]) {
+            break;
+          }
+          latency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - sent));
+          if (status == 200) {
+            allowed.increment();
+          } else if (status == 429) {
+            limited.increment();
+          } else {
+            otherStatus.increment();
+          }
+        } catch (IOException e) {
+          // The server may close a keep-alive connection; count it and open a new one.
+          errors.increment();
+          Connection.close(connection);
+          connection = null;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      Connection.close(connection);
+    }
+  }
+
+  /** Reads one response, including a fixed-length or chunked body, and returns its status. */
+  private static int readResponse(InputStream in) throws IOException {
+    String statusLine = readLine(in);
+    int status = Integer.parseInt(statusLine.substring(9, 12));
+    long contentLength = 0;
+    boolean chunked = false;
+    for (String header = readLine(in); !header.isEmpty(); header = readLine(in)) {
+      String lower = header.toLowerCase();
+      if (lower.startsWith("content-length:")) {
+        contentLength = Long.parseLong(lower.substring(15).trim());
+      } else if (lower.startsWith("transfer-encoding:") && lower.contains("chunked")) {
+        chunked = true;
+      }
+    }
+    if (!chunked) {
+      in.skipNBytes(contentLength);
+      return status;
+    }
+    for (long size = chunkSize(in); size > 0; size = chunkSize(in)) {
+      in.skipNBytes(size);
+      readLine(in);
+    }
+    readLine(in);
+    return status;
+  }
+
+  private static long chunkSize(InputStream in) throws IOException {
+    String line = readLine(in);
+    int extension = line.indexOf(';');
+    return Long.parseLong(extension < 0 ? line : line.substring(0, extension), 16);
+  }
+
+  private static String readLine(InputStream in) throws IOException {
+    ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+    for (int b = in.read(); b != '\n'; b = in.read()) {
+      if (b < 0) {
+        throw new IOException("Connection closed");
+      }
+      if (b != '\r') {
+        line.write(b);
+      }
+    }
+    return line.toString(StandardCharsets.US_ASCII);
+  }
+
+  private void report(int seconds) {
+    long completed = allowed.sum() + limited.sum() + otherStatus.sum();
+    System.out.printf(
+        "requests: %d (%.0f/s)  200: %d  429: %d  other: %d  connection errors: %d%n",
+        completed,
+        (double) completed / seconds,
+        allowed.sum(),
+        limited.sum(),
+        otherStatus.sum(),
+        errors.sum());
+    System.out.printf(
+        "latency us  p50: %d  p90: %d  p99: %d  p99.9: %d  max: %d%n",
+        latency.percentile(50),
+        latency.percentile(90),
+        latency.percentile(99),
+        latency.percentile(99.9),
+        latency.percentile(100));
+  }
+
+  private static final class Connection {
+    private final Socket socket = new Socket();
+    private final OutputStream out;
+    private final InputStream in;
+
+    Connection(InetSocketAddress address) throws IOException {
+      try {
+        socket.connect(address, CONNECT_TIMEOUT_MS);
+        socket.setTcpNoDelay(true);
+        socket.setSoTimeout(READ_TIMEOUT_MS);
+        out = socket.getOutputStream();
+        in = new BufferedInputStream(socket.getInputStream());
+      } catch (IOException e) {
+        socket.close();
+        throw e;
+      }
+    }
+
+    int exchange(byte[] request) throws IOException {
+      out.write(request);
+      out.flush();
+      return readResponse(in);
+    }
+
+    static void close(Connection connection) {
+      if (connection != null) {
+        try {
+          connection.socket.close();
+        } catch (IOException ignored) {
+          // Nothing left to release.
+        }
+      }
+    }
+  }
+
+  /** Log-linear histogram: 16 linear sub-buckets per power of two, so within ~6% of the value. */
+  private static final class Histogram {
+    private static final int SUB_BITS = 4;
+    private final AtomicLongArray counts = new AtomicLongArray(64 << SUB_BITS);
+
+    void record(long value) {
+      counts.incrementAndGet(index(Math.max(value, 0)));
+    }
+
+    long percentile(double percentile) {
+      long total = 0;
+      for (int i = 0; i < counts.length(); i++) {
+        total += counts.get(i);
+      }
+      long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+      long seen = 0;
+      for (int i = 0; i < counts.length(); i++) {
+        seen += counts.get(i);
+        if (seen >= rank) {
+          return lowerBound(i);
+        }
+      }
+      return 0;
+    }
+
+    private static int index(long value) {
+      if (value < (1 << SUB_BITS)) {
+        return (int) value;
+      }
+      int exponent = 63 - Long.numberOfLeadingZeros(value);
+      int sub = (int) (value >>> (exponent - SUB_BITS)) & ((1 << SUB_BITS) - 1);
+      return ((exponent - SUB_BITS + 1) << SUB_BITS) + sub;
+    }
+
+    private static long lowerBound(int index) {
+      if (index < (1 << SUB_BITS)) {
+        return index;
+      }
+      int exponent = (index >>> SUB_BITS) + SUB_BITS - 1;
+      long sub = index & ((1 << SUB_BITS) - 1);
+      return (1L << exponent) + (sub << (exponent - SUB_BITS));
+    }
+  }
+}
@@ -0,0 +1,140 @@
+package com.vbalan.rate_limiter.benchmark;
+
+import com.vbalan.rate_limiter.model.ClientConfiguration;
+import com.vbalan.rate_limiter.model.LimitConfiguration;
+import com.vbalan.rate_limiter.service.FixedWindowRateLimiter;
+import com.vbalan.rate_limiter.service.GcraRateLimiter;
+import com.vbalan.rate_limiter.service.MultiLimitRateLimiter;
+import com.vbalan.rate_limiter.service.RateLimiter;
+import com.vbalan.rate_limiter.service.SlidingWindowRateLimiter;
+import com.vbalan.rate_limiter.service.TokenBucketRateLimiter;
+import com.vbalan.rate_limiter.storage.InMemoryStorage;
+import com.vbalan.rate_limiter.storage.RateLimitStorage;
+import com.vbalan.rate_limiter.storage.RedisStorage;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+/**
+ * One rate limiting decision per invocation. Each thread walks the client ids round robin, so
+ * {@code clients=1} measures a single hot key and larger values spread the load across keys. The
+ * limit is used as both requests per minute and burst capacity.
+ *
+ * <p>The Redis backend connects to {@code -Dbenchmark.redis=host:port} (default {@code
+ * localhost:6379}) and deletes the keys it wrote on teardown.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RateLimiterBenchmark {
+
+  @Param({"token-bucket", "gcra", "multi-limit", "fixed-window", "sliding-window"})
+  private String algorithm;
+
+  @Param({"memory", "redis"})
+  private String backend;
+
+  @Param({"1", "1000", "100000"})
+  private int clients;
+
+  @Param({"10", "1000"})
+  private int limit;
+
+  private RateLimiter rateLimiter;
+  private ClientConfiguration config;
+  private String[] clientIds;
+  private InMemoryStorage memoryStorage;
+  private LettuceConnectionFactory connectionFactory;
+  private RedisTemplate<String, String> redisTemplate;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    config = new ClientConfiguration(limit, limit);
+    if (algorithm.equals("multi-limit")) {
+      // Per second, minute and hour, so the run measures a three-limit policy.
+      config.setLimits(
+          List.of(
+              new LimitConfiguration(limit, Duration.ofSeconds(1), 0),
+              new LimitConfiguration(limit * 60, Duration.ofMinutes(1), 0),
+              new LimitConfiguration(limit * 3600, Duration.ofHours(1), 0)));
+    }
+    clientIds = new String[clients];
+    for (int i = 0; i < clients; i++) {
+      clientIds[i] = "bench-" + i;
+    }
+    RateLimitStorage storage = createStorage();
+    rateLimiter =
+        switch (algorithm) {
+          case "token-bucket" -> new TokenBucketRateLimiter(storage);
+          case "gcra" -> new GcraRateLimiter(storage);
+          case "multi-limit" -> new MultiLimitRateLimiter(storage);
+          case "fixed-window" -> new FixedWindowRateLimiter(storage);
+          case "sliding-window" -> new SlidingWindowRateLimiter(storage);
+          default -> throw new IllegalArgumentException("Unknown algorithm: " + algorithm);
+        };
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    if (memoryStorage != null) {
+      memoryStorage.stop();
+    }
+    if (connectionFactory != null) {
+      redisTemplate.delete(redisTemplate.keys("*bench-*"));
+      connectionFactory.destroy();
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Cursor {
+    private int next;
+
+    int next(int size) {
+      int index = next;
+      next = index + 1 == size ? 0 : index + 1;
+      return index;
+    }
+  }
+
+  @Benchmark
+  public boolean allowRequest(Cursor cursor) {
+    return rateLimiter.allowRequest(clientIds[cursor.next(clients)], config);
+  }
+
+  private RateLimitStorage createStorage() {
+    if (backend.equals("memory")) {
+      memoryStorage = new InMemoryStorage();
+      memoryStorage.start();
+      return memoryStorage;
+    }
+    String[] address = System.getProperty("benchmark.redis", "localhost:6379").split(":");
+    connectionFactory = new LettuceConnectionFactory(address[0], Integer.parseInt(address[1]));
+    connectionFactory.afterPropertiesSet();
+    connectionFactory.start();
+    redisTemplate = new RedisTemplate<>();
+    redisTemplate.setConnectionFactory(connectionFactory);
+    redisTemplate.setKeySerializer(new StringRedisSerializer());
+    redisTemplate.setValueSerializer(new StringRedisSerializer());
+    redisTemplate.afterPropertiesSet();
+    return new RedisStorage(redisTemplate);
+  }
+}
@@ -1,15 +1,50 @@
 package com.vbalan.rate_limiter.config;
 
 import com.vbalan.rate_limiter.model.ClientConfiguration;
+import com.vbalan.rate_limiter.model.LimitConfiguration;
+import com.vbalan.rate_limiter.model.QuotaConfiguration;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 import lombok.Data;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
 @ConfigurationProperties(prefix = "rate-limit")
 @Data
-public class ClientConfig {
+public class ClientConfig implements InitializingBean {
   private Map<String, ClientConfiguration> clients = new HashMap<>();
+  private Map<String, String> endpoints =
+      new HashMap<>(Map.of("foo", "token-bucket", "bar", "sliding-window"));
+  private Map<String, QuotaConfiguration> tenants = new HashMap<>();
+  private QuotaConfiguration global = new QuotaConfiguration();
+
+  /** Fails startup on a limit the multi-limit engine could not turn into an emission interval. */
+  @Override
+  public void afterPropertiesSet() {
+    clients.forEach(
+        (clientId, client) -> {
+          if (client.getLimits() == null) {
+            return;
+          }
+          for (LimitConfiguration limit : client.getLimits()) {
+            Duration period = limit.getPeriod();
+            if (period == null || !period.isPositive()) {
+              throw new IllegalStateException(
+                  "Client " + clientId + " has a limit without a positive period: " + limit);
+            }
+            if (limit.getRequests() < 0) {
+              throw new IllegalStateException(
+                  "Client " + clientId + " has a limit with negative requests: " + limit);
+            }
+            // Intervals are whole microseconds, so a period cannot be split any finer.
+            if (period.toNanos() / 1000 < Math.max(limit.getRequests(), 1)) {
+              throw new IllegalStateException(
+                  "Client " + clientId + " has a limit shorter than 1us per request: " + limit);
+            }
+          }
+        });
+  }
 }
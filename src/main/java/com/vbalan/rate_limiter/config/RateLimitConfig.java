@@ -1,12 +1,32 @@
 package com.vbalan.rate_limiter.config;
 
+import com.vbalan.rate_limiter.storage.CircuitBreakerStorage;
 import com.vbalan.rate_limiter.storage.InMemoryStorage;
+import com.vbalan.rate_limiter.storage.InstrumentedStorage;
 import com.vbalan.rate_limiter.storage.RateLimitStorage;
 import com.vbalan.rate_limiter.storage.RedisStorage;
+import com.vbalan.rate_limiter.storage.ShardedStorage;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
@@ -15,20 +35,162 @@ public class RateLimitConfig {
   @Value("${rate-limit.storage.type:memory}")
   private String storageType;
 
+  @Value("${rate-limit.storage.memory.max-entries:" + InMemoryStorage.DEFAULT_MAX_ENTRIES + "}")
+  private int maxEntries;
+
+  @Value(
+      "${rate-limit.storage.memory.sweep-batch-size:"
+          + InMemoryStorage.DEFAULT_SWEEP_BATCH_SIZE
+          + "}")
+  private int sweepBatchSize;
+
+  @Value("${rate-limit.storage.redis.batching.enabled:false}")
+  private boolean batchingEnabled;
+
+  @Value("${rate-limit.storage.redis.batching.window:200us}")
+  private Duration batchingWindow;
+
+  @Value("${rate-limit.storage.redis.batching.max-batch-size:128}")
+  private int maxBatchSize;
+
+  @Value("${rate-limit.storage.redis.shards:}")
+  private List<String> shards;
+
+  @Value("${spring.data.redis.timeout:60s}")
+  private Duration commandTimeout;
+
+  @Value("${rate-limit.storage.redis.virtual-nodes:" + ShardedStorage.DEFAULT_VIRTUAL_NODES + "}")
+  private int virtualNodes;
+
+  @Value("${rate-limit.storage.circuit-breaker.enabled:false}")
+  private boolean breakerEnabled;
+
+  @Value("${rate-limit.storage.circuit-breaker.slow-call-threshold:100ms}")
+  private Duration slowCallThreshold;
+
+  @Value("${rate-limit.storage.circuit-breaker.failure-rate-threshold:50}")
+  private int failureRateThreshold;
+
+  @Value("${rate-limit.storage.circuit-breaker.window-size:20}")
+  private int breakerWindowSize;
+
+  @Value("${rate-limit.storage.circuit-breaker.probe-interval:1s}")
+  private Duration probeInterval;
+
+  private final List<LettuceConnectionFactory> shardConnections = new ArrayList<>();
+
   @Bean
-  public RateLimitStorage rateLimitStorage(RedisTemplate<String, String> redisTemplate) {
+  public RateLimitStorage rateLimitStorage(
+      RedisTemplate<String, String> redisTemplate,
+      ObjectProvider<ReactiveStringRedisTemplate> reactiveTemplate,
+      MeterRegistry meterRegistry) {
     if (storageType.equalsIgnoreCase("redis")) {
-      return new RedisStorage(redisTemplate);
+      if (!shards.isEmpty()) {
+        return shardedStorage(reactiveTemplate.getIfAvailable() != null, meterRegistry);
+      }
+      return redisStorage(redisTemplate, reactiveTemplate.getIfAvailable());
     }
-    return new InMemoryStorage();
+    return new InMemoryStorage(maxEntries, sweepBatchSize);
+  }
+
+  /**
+   * What the limiters inject. The raw storage stays a bean of its own so its lifecycle callbacks
+   * still run.
+   */
+  @Bean
+  @Primary
+  public RateLimitStorage instrumentedRateLimitStorage(
+      @Qualifier("rateLimitStorage") RateLimitStorage rateLimitStorage,
+      ObjectProvider<CircuitBreakerStorage> circuitBreaker,
+      MeterRegistry meterRegistry) {
+    RateLimitStorage guarded = circuitBreaker.getIfAvailable();
+    return new InstrumentedStorage(
+        guarded != null ? guarded : rateLimitStorage, meterRegistry, storageType.toLowerCase());
+  }
+
+  /**
+   * Wraps the raw storage for the limiters when enabled; see {@code LocalFallback}. Sharded storage
+   * gets one breaker per shard instead, so this single one only guards a single node or a cluster.
+   */
+  @Bean
+  @ConditionalOnExpression(
+      "${rate-limit.storage.circuit-breaker.enabled:false}"
+          + " and '${rate-limit.storage.redis.shards:}'.isEmpty()")
+  public CircuitBreakerStorage storageCircuitBreaker(
+      @Qualifier("rateLimitStorage") RateLimitStorage rateLimitStorage,
+      MeterRegistry meterRegistry) {
+    return circuitBreaker(rateLimitStorage, Tags.empty(), meterRegistry);
   }
 
   @Bean
   public RedisTemplate<String, String> redisTemplate(RedisConnectionFactory connectionFactory) {
+    return stringTemplate(connectionFactory);
+  }
+
+  @PreDestroy
+  public void closeShardConnections() {
+    shardConnections.forEach(LettuceConnectionFactory::destroy);
+  }
+
+  /**
+   * One standalone connection per {@code host:port} in {@code rate-limit.storage.redis.shards},
+   * each with its own storage and batcher and the command timeout of {@code spring.data.redis}. The
+   * address names the shard on the ring. With the circuit breaker enabled each shard is wrapped in
+   * its own, so one unreachable server only short-circuits the keys it owns.
+   */
+  private RateLimitStorage shardedStorage(boolean reactive, MeterRegistry meterRegistry) {
+    Map<String, RateLimitStorage> storages = new LinkedHashMap<>();
+    for (String shard : shards) {
+      String address = shard.trim();
+      int colon = address.lastIndexOf(':');
+      LettuceConnectionFactory connectionFactory =
+          new LettuceConnectionFactory(
+              new RedisStandaloneConfiguration(
+                  address.substring(0, colon), Integer.parseInt(address.substring(colon + 1))),
+              LettuceClientConfiguration.builder().commandTimeout(commandTimeout).build());
+      connectionFactory.afterPropertiesSet();
+      connectionFactory.start();
+      shardConnections.add(connectionFactory);
+      RateLimitStorage storage =
+          redisStorage(
+              stringTemplate(connectionFactory),
+              reactive ? new ReactiveStringRedisTemplate(connectionFactory) : null);
+      storages.put(
+          address,
+          breakerEnabled
+              ? circuitBreaker(storage, Tags.of("shard", address), meterRegistry)
+              : storage);
+    }
+    return new ShardedStorage(storages, virtualNodes);
+  }
+
+  private CircuitBreakerStorage circuitBreaker(
+      RateLimitStorage storage, Tags tags, MeterRegistry meterRegistry) {
+    CircuitBreakerStorage circuitBreaker =
+        new CircuitBreakerStorage(
+            storage, slowCallThreshold, failureRateThreshold, breakerWindowSize, probeInterval);
+    Gauge.builder("rate.limit.storage.circuit.open", circuitBreaker, b -> b.isOpen() ? 1 : 0)
+        .description("1 while rate limit storage calls are short-circuited, else 0")
+        .tags(tags)
+        .register(meterRegistry);
+    return circuitBreaker;
+  }
+
+  private RedisStorage redisStorage(
+      RedisTemplate<String, String> redisTemplate, ReactiveStringRedisTemplate reactiveTemplate) {
+    return batchingEnabled
+        ? new RedisStorage(
+            redisTemplate, reactiveTemplate, batchingWindow, maxBatchSize, commandTimeout)
+        : new RedisStorage(redisTemplate, reactiveTemplate);
+  }
+
+  private static RedisTemplate<String, String> stringTemplate(
+      RedisConnectionFactory connectionFactory) {
     RedisTemplate<String, String> template = new RedisTemplate<>();
     template.setConnectionFactory(connectionFactory);
     template.setKeySerializer(new StringRedisSerializer());
     template.setValueSerializer(new StringRedisSerializer());
+    template.afterPropertiesSet();
     return template;
   }
 }
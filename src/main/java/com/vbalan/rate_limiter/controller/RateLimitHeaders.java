@@ -0,0 +1,31 @@
+package com.vbalan.rate_limiter.controller;
+
+import com.vbalan.rate_limiter.service.RateLimitDecision;
+import java.util.function.BiConsumer;
+
+/**
+ * Quota headers for a decision. {@code X-RateLimit-Reset} and {@code Retry-After} are in seconds
+ * from now, rounded up, so they do not depend on the client's clock.
+ */
+final class RateLimitHeaders {
+  static final String LIMIT = "X-RateLimit-Limit";
+  static final String REMAINING = "X-RateLimit-Remaining";
+  static final String RESET = "X-RateLimit-Reset";
+  static final String RETRY_AFTER = "Retry-After";
+
+  private RateLimitHeaders() {}
+
+  static void write(RateLimitDecision decision, BiConsumer<String, String> header) {
+    header.accept(LIMIT, Long.toString(decision.limit()));
+    header.accept(REMAINING, Long.toString(decision.remaining()));
+    header.accept(RESET, Long.toString(seconds(decision.resetMillis())));
+    if (!decision.allowed()) {
+      // Never zero: an immediate retry of a denied request is what these headers should prevent.
+      header.accept(RETRY_AFTER, Long.toString(Math.max(1, seconds(decision.retryAfterMillis()))));
+    }
+  }
+
+  private static long seconds(long millis) {
+    return (millis + 999) / 1000;
+  }
+}
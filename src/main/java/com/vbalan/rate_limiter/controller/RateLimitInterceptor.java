@@ -0,0 +1,142 @@
+package com.vbalan.rate_limiter.controller;
+
+import com.vbalan.rate_limiter.model.ClientConfiguration;
+import com.vbalan.rate_limiter.service.AuthenticationService;
+import com.vbalan.rate_limiter.service.RateLimitDecision;
+import com.vbalan.rate_limiter.service.RateLimitService;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Enforces {@link RateLimited} handlers and adds the decision's quota headers to the response.
+ * Rejections are written straight to the response, so shedding load costs no exception and no
+ * exception handler lookup.
+ *
+ * <p>A decision with a delay, from a shaping engine, puts the request into async mode and schedules
+ * a dispatch back to the same handler once the delay has passed. No thread is held while the
+ * request waits, and the re-dispatched request is let through without a second decision.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class RateLimitInterceptor implements HandlerInterceptor, SmartLifecycle {
+  private static final String ADMITTED = RateLimitInterceptor.class.getName() + ".ADMITTED";
+  // Headroom over the delay before the container gives up on a held request.
+  private static final long ASYNC_TIMEOUT_MARGIN_MS = 5000;
+  private static final byte[] RATE_LIMIT_EXCEEDED =
+      "{\"error\":\"Rate limit exceeded\"}".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] MISSING_AUTHORIZATION =
+      "No Authorization header provided".getBytes(StandardCharsets.UTF_8);
+
+  private final AuthenticationService authenticationService;
+  private final RateLimitService rateLimitService;
+  private ScheduledExecutorService scheduler;
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+      throws IOException {
+    if (!(handler instanceof HandlerMethod handlerMethod)) {
+      return true;
+    }
+    RateLimited rateLimited = handlerMethod.getMethod().getAnnotation(RateLimited.class);
+    if (rateLimited == null) {
+      return true;
+    }
+    if (request.getDispatcherType() == DispatcherType.ASYNC
+        && request.getAttribute(ADMITTED) != null) {
+      return true;
+    }
+
+    String authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+    if (authorization == null) {
+      write(response, HttpStatus.UNAUTHORIZED, MediaType.TEXT_PLAIN_VALUE, MISSING_AUTHORIZATION);
+      return false;
+    }
+    String clientId = authenticationService.extractClientId(authorization);
+    if (!authenticationService.isValidClient(clientId)) {
+      response.setStatus(HttpStatus.UNAUTHORIZED.value());
+      return false;
+    }
+
+    ClientConfiguration config = authenticationService.getClientConfiguration(clientId);
+
+    RateLimitDecision decision = rateLimitService.decide(rateLimited.value(), clientId, config);
+    RateLimitHeaders.write(decision, response::setHeader);
+    if (!decision.allowed()) {
+      write(
+          response,
+          HttpStatus.TOO_MANY_REQUESTS,
+          MediaType.APPLICATION_JSON_VALUE,
+          RATE_LIMIT_EXCEEDED);
+      return false;
+    }
+    if (decision.delayMillis() > 0) {
+      return !hold(request, decision.delayMillis());
+    }
+    return true;
+  }
+
+  /** Returns false, letting the request proceed now, when no scheduler is running. */
+  private synchronized boolean hold(HttpServletRequest request, long delayMillis) {
+    if (scheduler == null) {
+      return false;
+    }
+    request.setAttribute(ADMITTED, Boolean.TRUE);
+    AsyncContext asyncContext = request.startAsync();
+    asyncContext.setTimeout(delayMillis + ASYNC_TIMEOUT_MARGIN_MS);
+    scheduler.schedule((Runnable) asyncContext::dispatch, delayMillis, TimeUnit.MILLISECONDS);
+    return true;
+  }
+
+  @Override
+  public synchronized void start() {
+    if (scheduler == null) {
+      scheduler =
+          Executors.newSingleThreadScheduledExecutor(
+              task -> {
+                Thread thread = new Thread(task, "rate-limit-shaper");
+                thread.setDaemon(true);
+                return thread;
+              });
+    }
+  }
+
+  /** Held requests are still dispatched: shutdown() runs the delayed tasks already scheduled. */
+  @Override
+  public synchronized void stop() {
+    if (scheduler != null) {
+      scheduler.shutdown();
+      scheduler = null;
+    }
+  }
+
+  @Override
+  public synchronized boolean isRunning() {
+    return scheduler != null;
+  }
+
+  private static void write(
+      HttpServletResponse response, HttpStatus status, String contentType, byte[] body)
+      throws IOException {
+    response.setStatus(status.value());
+    response.setContentType(contentType);
+    response.setContentLength(body.length);
+    response.getOutputStream().write(body);
+  }
+}
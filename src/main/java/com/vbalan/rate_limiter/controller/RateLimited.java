@@ -0,0 +1,17 @@
+package com.vbalan.rate_limiter.controller;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a handler method as rate limited. {@link RateLimitInterceptor} authenticates the caller and
+ * applies the limiter configured for {@link #value()} before the method runs.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RateLimited {
+  /** Endpoint name, as used under {@code rate-limit.endpoints}. */
+  String value();
+}
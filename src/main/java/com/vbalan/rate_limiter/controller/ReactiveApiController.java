@@ -0,0 +1,79 @@
+package com.vbalan.rate_limiter.controller;
+
+import com.vbalan.rate_limiter.model.ClientConfiguration;
+import com.vbalan.rate_limiter.model.CustomApiResponse;
+import com.vbalan.rate_limiter.model.ErrorResponse;
+import com.vbalan.rate_limiter.service.AuthenticationService;
+import com.vbalan.rate_limiter.service.RateLimitDecision;
+import com.vbalan.rate_limiter.service.RateLimitService;
+import java.time.Duration;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * WebFlux variant of {@link ApiController}, active when the application runs as a reactive web
+ * application. Decisions come from the limiters' async path, so no event loop thread waits on
+ * storage I/O; engines that can only block are decided on the bounded elastic scheduler.
+ */
+@RestController
+@RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveApiController {
+
+  private final AuthenticationService authenticationService;
+  private final RateLimitService rateLimitService;
+
+  @GetMapping("/foo")
+  public Mono<ResponseEntity<Object>> foo(@RequestHeader("Authorization") String authorization) {
+    return handle(authorization, "foo");
+  }
+
+  @GetMapping("/bar")
+  public Mono<ResponseEntity<Object>> bar(@RequestHeader("Authorization") String authorization) {
+    return handle(authorization, "bar");
+  }
+
+  private Mono<ResponseEntity<Object>> handle(String authorization, String endpoint) {
+    String clientId = authenticationService.extractClientId(authorization);
+    if (!authenticationService.isValidClient(clientId)) {
+      return Mono.just(ResponseEntity.status(401).build());
+    }
+
+    ClientConfiguration config = authenticationService.getClientConfiguration(clientId);
+
+    return decide(endpoint, clientId, config)
+        .flatMap(
+            decision -> {
+              ResponseEntity.BodyBuilder response =
+                  ResponseEntity.status(
+                      decision.allowed() ? HttpStatus.OK : HttpStatus.TOO_MANY_REQUESTS);
+              RateLimitHeaders.write(decision, response::header);
+              if (!decision.allowed()) {
+                return Mono.just(response.body(new ErrorResponse("Rate limit exceeded")));
+              }
+              Mono<ResponseEntity<Object>> ok =
+                  Mono.just(response.body(new CustomApiResponse(true)));
+              // A shaping engine's delay is a timer on the event loop, not a blocked thread.
+              return decision.delayMillis() > 0
+                  ? ok.delayElement(Duration.ofMillis(decision.delayMillis()))
+                  : ok;
+            });
+  }
+
+  private Mono<RateLimitDecision> decide(
+      String endpoint, String clientId, ClientConfiguration config) {
+    // An engine without a non-blocking path would stall the event loop on storage I/O.
+    if (rateLimitService.isBlocking(endpoint)) {
+      return Mono.fromCallable(() -> rateLimitService.decide(endpoint, clientId, config))
+          .subscribeOn(Schedulers.boundedElastic());
+    }
+    return Mono.fromCompletionStage(() -> rateLimitService.decideAsync(endpoint, clientId, config));
+  }
+}
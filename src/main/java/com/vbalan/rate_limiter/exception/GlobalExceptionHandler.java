@@ -7,6 +7,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MissingRequestHeaderException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.server.MissingRequestValueException;
 
 @RestControllerAdvice
 @Slf4j
@@ -31,4 +32,14 @@ public class GlobalExceptionHandler {
     return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
         .body("No Authorization header provided");
   }
+
+  /** WebFlux reports a missing header with its own exception type. */
+  @ExceptionHandler(MissingRequestValueException.class)
+  public ResponseEntity<String> handleMissingValue(MissingRequestValueException ex) {
+    if (!"header".equals(ex.getLabel())) {
+      return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getReason());
+    }
+    return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+        .body("No Authorization header provided");
+  }
 }
@@ -1,7 +1,11 @@
 package com.vbalan.rate_limiter.exception;
 
+/**
+ * Raised on the paths that still reject by exception. Rejections are frequent under abuse, so the
+ * exception is created without a stack trace.
+ */
 public class RateLimitExceededException extends RuntimeException {
   public RateLimitExceededException(String message) {
-    super(message);
+    super(message, null, false, false);
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,11 @@
+package com.vbalan.rate_limiter.exception;
+
+public class StorageUnavailableException extends RuntimeException {
+  public StorageUnavailableException(String message) {
+    super(message);
+  }
+
+  public StorageUnavailableException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
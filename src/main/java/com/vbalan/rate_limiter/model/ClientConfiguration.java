@@ -1,5 +1,7 @@
 package com.vbalan.rate_limiter.model;
 
+import java.util.ArrayList;
+import java.util.List;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -10,4 +12,17 @@ import lombok.NoArgsConstructor;
 public class ClientConfiguration {
   private int requestsPerMinute;
   private int burstCapacity;
+  // Limits the multi-limit engine enforces together; empty means requestsPerMinute/burstCapacity.
+  private List<LimitConfiguration> limits = new ArrayList<>();
+  // Tenant whose quota this client also counts against; null for none.
+  private String tenant;
+
+  public ClientConfiguration(int requestsPerMinute, int burstCapacity) {
+    this(requestsPerMinute, burstCapacity, new ArrayList<>());
+  }
+
+  public ClientConfiguration(
+      int requestsPerMinute, int burstCapacity, List<LimitConfiguration> limits) {
+    this(requestsPerMinute, burstCapacity, limits, null);
+  }
 }
@@ -0,0 +1,17 @@
+package com.vbalan.rate_limiter.model;
+
+import java.time.Duration;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** One limit of a composite policy: {@code requests} per {@code period}. */
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class LimitConfiguration {
+  private int requests;
+  private Duration period;
+  // Requests allowed at once; 0 means the full quota of the period.
+  private int burst;
+}
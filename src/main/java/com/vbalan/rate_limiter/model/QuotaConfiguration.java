@@ -0,0 +1,14 @@
+package com.vbalan.rate_limiter.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** A quota shared by many clients, such as a tenant's or the global one. */
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class QuotaConfiguration {
+  // 0 means unlimited.
+  private int requestsPerMinute;
+}
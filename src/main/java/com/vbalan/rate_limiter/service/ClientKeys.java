@@ -0,0 +1,14 @@
+package com.vbalan.rate_limiter.service;
+
+/**
+ * Storage key layout for per-client state: {@code <type>:{<clientId>}}. The braces are a Redis
+ * Cluster hash tag, so every key of one client hashes to the same slot and a script touching
+ * several of them stays legal in cluster mode, while different clients still spread across shards.
+ */
+final class ClientKeys {
+  private ClientKeys() {}
+
+  static String of(String type, String clientId) {
+    return type + ":{" + clientId + "}";
+  }
+}
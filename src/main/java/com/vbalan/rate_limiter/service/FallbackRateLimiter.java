@@ -0,0 +1,71 @@
+package com.vbalan.rate_limiter.service;
+
+import com.vbalan.rate_limiter.exception.StorageUnavailableException;
+import com.vbalan.rate_limiter.model.ClientConfiguration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Decides through the wrapped engine while storage is healthy and through {@link LocalFallback}
+ * while its circuit is open. A request whose own storage call fails is decided locally as well,
+ * rather than failing with a server error.
+ */
+class FallbackRateLimiter implements RateLimiter {
+  private final RateLimiter delegate;
+  private final LocalFallback fallback;
+
+  FallbackRateLimiter(RateLimiter delegate, LocalFallback fallback) {
+    this.delegate = delegate;
+    this.fallback = fallback;
+  }
+
+  @Override
+  public boolean allowRequest(String clientId, ClientConfiguration config) {
+    if (fallback.isActive()) {
+      return fallback.decide(clientId, config).allowed();
+    }
+    try {
+      return delegate.allowRequest(clientId, config);
+    } catch (StorageUnavailableException e) {
+      return fallback.decide(clientId, config).allowed();
+    }
+  }
+
+  @Override
+  public RateLimitDecision decide(String clientId, ClientConfiguration config) {
+    if (fallback.isActive()) {
+      return fallback.decide(clientId, config);
+    }
+    try {
+      return delegate.decide(clientId, config);
+    } catch (StorageUnavailableException e) {
+      return fallback.decide(clientId, config);
+    }
+  }
+
+  @Override
+  public CompletionStage<RateLimitDecision> decideAsync(
+      String clientId, ClientConfiguration config) {
+    if (fallback.isActive()) {
+      return CompletableFuture.completedFuture(fallback.decide(clientId, config));
+    }
+    return delegate
+        .decideAsync(clientId, config)
+        .exceptionally(
+            error -> {
+              Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+              if (cause instanceof StorageUnavailableException) {
+                return fallback.decide(clientId, config);
+              }
+              throw error instanceof CompletionException completion
+                  ? completion
+                  : new CompletionException(error);
+            });
+  }
+
+  @Override
+  public boolean isBlocking() {
+    return delegate.isBlocking();
+  }
+}
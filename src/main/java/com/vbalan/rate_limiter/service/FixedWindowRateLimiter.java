@@ -0,0 +1,63 @@
+package com.vbalan.rate_limiter.service;
+
+import com.vbalan.rate_limiter.model.ClientConfiguration;
+import com.vbalan.rate_limiter.storage.RateLimitStorage;
+import java.time.Duration;
+import java.util.concurrent.CompletionStage;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fixed window counter: one counter per client and minute, incremented on every request and
+ * expiring one window after it was created. A decision is a single increment, an {@code AtomicLong}
+ * add in memory or one {@code INCRBY} script on Redis, and nothing else is read or written. The
+ * price is the window edge: a client can spend its whole limit at the end of one window and again
+ * at the start of the next.
+ */
+@Component("fixed-window")
+public class FixedWindowRateLimiter implements RateLimiter {
+  private static final long WINDOW_SIZE_MS = 60000;
+  private static final Duration TTL = Duration.ofMillis(WINDOW_SIZE_MS);
+
+  private final RateLimitStorage storage;
+
+  public FixedWindowRateLimiter(RateLimitStorage storage) {
+    this.storage = storage;
+  }
+
+  @Override
+  public boolean allowRequest(String clientId, ClientConfiguration config) {
+    long now = System.currentTimeMillis();
+    return storage.increment(key(clientId, now), 1, TTL) <= config.getRequestsPerMinute();
+  }
+
+  @Override
+  public RateLimitDecision decide(String clientId, ClientConfiguration config) {
+    long now = System.currentTimeMillis();
+    return decision(storage.increment(key(clientId, now), 1, TTL), config, now);
+  }
+
+  @Override
+  public CompletionStage<RateLimitDecision> decideAsync(
+      String clientId, ClientConfiguration config) {
+    long now = System.currentTimeMillis();
+    return storage
+        .incrementAsync(key(clientId, now), 1, TTL)
+        .thenApply(count -> decision(count, config, now));
+  }
+
+  @Override
+  public boolean isBlocking() {
+    return false;
+  }
+
+  private static String key(String clientId, long now) {
+    return ClientKeys.of("fixed_window", clientId) + ":" + (now - now % WINDOW_SIZE_MS);
+  }
+
+  private static RateLimitDecision decision(long count, ClientConfiguration config, long now) {
+    long limit = config.getRequestsPerMinute();
+    long untilWindowEnd = WINDOW_SIZE_MS - now % WINDOW_SIZE_MS;
+    return new RateLimitDecision(
+        count <= limit, limit, limit - count, untilWindowEnd, untilWindowEnd);
+  }
+}
@@ -0,0 +1,124 @@
+package com.vbalan.rate_limiter.service;
+
+import com.vbalan.rate_limiter.model.ClientConfiguration;
+import com.vbalan.rate_limiter.storage.AtomicOperation;
+import java.util.List;
+
+/**
+ * Generic cell rate algorithm: the whole state is the theoretical arrival time (TAT) of the next
+ * request, in microseconds. Each allowed request pushes it one emission interval ({@code 60s /
+ * requestsPerMinute}) into the future, and a request is allowed while that stays within {@code
+ * burstCapacity} intervals of now. Denials leave the state untouched, and a TAT in the past counts
+ * as a full bucket, so the key only needs to live until its TAT. State is {@code [tat]}; the reply
+ * is {@code [allowed, tat - now]}.
+ */
+class GcraOperation implements AtomicOperation {
+  /** Retry-After of a client allowed no requests: the whole minute its rate is defined over. */
+  static final long DENY_ALL_RETRY_MILLIS = 60_000;
+
+  private static final String SCRIPT =
+      """
+      local ttl = tonumber(ARGV[1])
+      local now = tonumber(ARGV[2]) * 1000
+      local interval = tonumber(ARGV[3])
+      local tolerance = tonumber(ARGV[4]) * interval
+      local tat = now
+      local stored = redis.call('GET', KEYS[1])
+      if stored and #stored == 8 then
+        local stored_tat = struct.unpack('>i8', stored)
+        tat = math.max(stored_tat, now)
+      end
+      local allowed = 0
+      if tat + interval - now <= tolerance then
+        tat = tat + interval
+        allowed = 1
+        if ttl > 0 then
+          redis.call('SET', KEYS[1], struct.pack('>i8', tat), 'PX', ttl)
+        else
+          redis.call('SET', KEYS[1], struct.pack('>i8', tat))
+        end
+      end
+      return {allowed, tat - now}
+      """;
+
+  private final String clientId;
+  private final ClientConfiguration config;
+  private final long now;
+  private long[] reply;
+
+  GcraOperation(String clientId, ClientConfiguration config, long now) {
+    this.clientId = clientId;
+    this.config = config;
+    this.now = now;
+  }
+
+  @Override
+  public List<String> keys() {
+    return List.of(ClientKeys.of("gcra", clientId));
+  }
+
+  @Override
+  public long[] arguments() {
+    return new long[] {now, interval(config), config.getBurstCapacity()};
+  }
+
+  @Override
+  public String script() {
+    return SCRIPT;
+  }
+
+  @Override
+  public long[] apply(long[] state) {
+    long nowMicros = now * 1000;
+    long interval = interval(config);
+    long tat = state == null ? nowMicros : Math.max(state[0], nowMicros);
+    boolean allowed = tat + interval - nowMicros <= config.getBurstCapacity() * interval;
+    if (allowed) {
+      tat += interval;
+      state = state == null ? new long[1] : state;
+      state[0] = tat;
+    }
+    reply = new long[] {allowed ? 1 : 0, tat - nowMicros};
+    return state;
+  }
+
+  @Override
+  public long[] reply() {
+    return reply;
+  }
+
+  /**
+   * The decision for a client whose {@code requestsPerMinute} is zero or less. Its emission
+   * interval would be infinite, so it never earns a request and nothing is stored for it.
+   */
+  static RateLimitDecision denyAll() {
+    return new RateLimitDecision(false, 0, 0, 0, DENY_ALL_RETRY_MILLIS);
+  }
+
+  /** Emission interval in microseconds; the TAT may never run further ahead than the burst. */
+  static long interval(ClientConfiguration config) {
+    return 60_000_000L / Math.max(config.getRequestsPerMinute(), 1);
+  }
+
+  /** Longest time a stored TAT can matter, used as the key's TTL. */
+  static long ttlMillis(ClientConfiguration config) {
+    return Math.max(1, (config.getBurstCapacity() * interval(config) + 999) / 1000);
+  }
+
+  /** Builds the decision from a {@code [allowed, tat - now]} reply. */
+  static RateLimitDecision decision(long[] reply, ClientConfiguration config) {
+    long interval = interval(config);
+    long burst = config.getBurstCapacity();
+    long ahead = reply[1];
+    return new RateLimitDecision(
+        reply[0] == 1,
+        burst,
+        (burst * interval - ahead) / interval,
+        millis(ahead),
+        millis(ahead + interval - burst * interval));
+  }
+
+  private static long millis(long micros) {
+    return Math.ceilDiv(micros, 1000);
+  }
+}
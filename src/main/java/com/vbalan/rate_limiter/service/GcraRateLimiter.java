@@ -0,0 +1,55 @@
+package com.vbalan.rate_limiter.service;
+
+import com.vbalan.rate_limiter.model.ClientConfiguration;
+import com.vbalan.rate_limiter.storage.RateLimitStorage;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import org.springframework.stereotype.Component;
+
+/**
+ * Token bucket semantics from a single key per client: see {@link GcraOperation}. Compared to
+ * {@code token-bucket} a decision writes one key instead of two, and a denial writes nothing.
+ */
+@Component("gcra")
+public class GcraRateLimiter implements RateLimiter {
+  private final RateLimitStorage storage;
+
+  public GcraRateLimiter(RateLimitStorage storage) {
+    this.storage = storage;
+  }
+
+  @Override
+  public RateLimitDecision decide(String clientId, ClientConfiguration clientConfiguration) {
+    if (clientConfiguration.getRequestsPerMinute() <= 0) {
+      return GcraOperation.denyAll();
+    }
+    long now = System.currentTimeMillis();
+    long[] reply =
+        storage.compute(
+            new GcraOperation(clientId, clientConfiguration, now), ttl(clientConfiguration));
+    return GcraOperation.decision(reply, clientConfiguration);
+  }
+
+  @Override
+  public CompletionStage<RateLimitDecision> decideAsync(
+      String clientId, ClientConfiguration clientConfiguration) {
+    if (clientConfiguration.getRequestsPerMinute() <= 0) {
+      return CompletableFuture.completedFuture(GcraOperation.denyAll());
+    }
+    long now = System.currentTimeMillis();
+    return storage
+        .computeAsync(
+            new GcraOperation(clientId, clientConfiguration, now), ttl(clientConfiguration))
+        .thenApply(reply -> GcraOperation.decision(reply, clientConfiguration));
+  }
+
+  @Override
+  public boolean isBlocking() {
+    return false;
+  }
+
+  private static Duration ttl(ClientConfiguration clientConfiguration) {
+    return Duration.ofMillis(GcraOperation.ttlMillis(clientConfiguration));
+  }
+}
@@ -0,0 +1,278 @@
+package com.vbalan.rate_limiter.service;
+
+import com.vbalan.rate_limiter.config.ClientConfig;
+import com.vbalan.rate_limiter.model.ClientConfiguration;
+import com.vbalan.rate_limiter.model.QuotaConfiguration;
+import com.vbalan.rate_limiter.storage.RateLimitStorage;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tenant and global quotas layered over each client's own limit. A request takes a slot from its
+ * tenant's quota and then the global one, in per-minute fixed windows, and only then asks the
+ * client's engine. The first level that denies it decides, and the slots taken before it are handed
+ * back, so a denied request leaves the levels it passed as it found them. A client over its own
+ * limit therefore holds a shared slot only while its engine decides and cannot use up its tenant's
+ * quota by hammering its own. The engine goes last because its state cannot be handed back.
+ *
+ * <p>With in-memory storage each level is a {@link StripedWindowCounter}, so request threads do not
+ * all contend on one counter. With Redis storage each level is one {@code INCRBY} key per window,
+ * shared by every node.
+ */
+@Slf4j
+@Component
+public class HierarchicalQuotas {
+  private static final long WINDOW_SIZE_MS = 60000;
+  private static final Duration TTL = Duration.ofMillis(WINDOW_SIZE_MS);
+
+  private final RateLimitStorage storage;
+  private final boolean shared;
+  private final Map<String, Level> tenants = new HashMap<>();
+  private final Level global;
+
+  public HierarchicalQuotas(
+      ClientConfig clientConfig,
+      RateLimitStorage storage,
+      @Value("${rate-limit.storage.type:memory}") String storageType) {
+    this.storage = storage;
+    this.shared = storageType.equalsIgnoreCase("redis");
+    clientConfig
+        .getTenants()
+        .forEach(
+            (tenant, quota) -> {
+              if (quota.getRequestsPerMinute() > 0) {
+                tenants.put(tenant, new Level("quota:tenant:" + tenant + ":", quota));
+              }
+            });
+    QuotaConfiguration globalQuota = clientConfig.getGlobal();
+    this.global =
+        globalQuota != null && globalQuota.getRequestsPerMinute() > 0
+            ? new Level("quota:global:", globalQuota)
+            : null;
+    clientConfig
+        .getClients()
+        .forEach(
+            (clientId, config) -> {
+              String tenant = config.getTenant();
+              if (tenant != null && !clientConfig.getTenants().containsKey(tenant)) {
+                throw new IllegalStateException(
+                    "Client " + clientId + " belongs to unknown tenant " + tenant);
+              }
+            });
+  }
+
+  /** Whether any shared quota is configured; if not, the limiters are not wrapped at all. */
+  boolean isEnabled() {
+    return global != null || !tenants.isEmpty();
+  }
+
+  /**
+   * Takes a slot at each shared level and then asks the client's own limit; true if all allow the
+   * request. A denial at any step hands back the slots taken before it.
+   */
+  boolean allowRequest(ClientConfiguration config, BooleanSupplier client) {
+    long now = System.currentTimeMillis();
+    Level tenant = tenant(config);
+    if (tenant != null && !tenant.tryAcquire(now)) {
+      return false;
+    }
+    if (global != null && !global.tryAcquire(now)) {
+      release(tenant, null, now);
+      return false;
+    }
+    boolean allowed;
+    try {
+      allowed = client.getAsBoolean();
+    } catch (RuntimeException e) {
+      release(tenant, global, now);
+      throw e;
+    }
+    if (!allowed) {
+      release(tenant, global, now);
+    }
+    return allowed;
+  }
+
+  /**
+   * Like {@link #allowRequest}, but returns the tightest of the three levels: the first one that
+   * denies the request, or else the one with the fewest requests left.
+   */
+  RateLimitDecision decide(ClientConfiguration config, Supplier<RateLimitDecision> client) {
+    long now = System.currentTimeMillis();
+    Level tenant = tenant(config);
+    RateLimitDecision tenantLevel = tenant != null ? tenant.decide(now) : null;
+    if (tenantLevel != null && !tenantLevel.allowed()) {
+      return tenantLevel;
+    }
+    RateLimitDecision globalLevel = global != null ? global.decide(now) : null;
+    if (globalLevel != null && !globalLevel.allowed()) {
+      release(tenant, null, now);
+      return globalLevel;
+    }
+    RateLimitDecision decision;
+    try {
+      decision = client.get();
+    } catch (RuntimeException e) {
+      release(tenant, global, now);
+      throw e;
+    }
+    if (!decision.allowed()) {
+      release(tenant, global, now);
+      return decision;
+    }
+    return tighter(tighter(decision, tenantLevel), globalLevel);
+  }
+
+  CompletionStage<RateLimitDecision> decideAsync(
+      ClientConfiguration config, Supplier<CompletionStage<RateLimitDecision>> client) {
+    long now = System.currentTimeMillis();
+    Level tenant = tenant(config);
+    return decideAsync(tenant, now)
+        .thenCompose(
+            tenantLevel -> {
+              if (tenantLevel != null && !tenantLevel.allowed()) {
+                return CompletableFuture.completedFuture(tenantLevel);
+              }
+              return decideAsync(global, now)
+                  .thenCompose(
+                      globalLevel -> {
+                        if (globalLevel != null && !globalLevel.allowed()) {
+                          return releaseAsync(tenant, null, now).thenApply(ignored -> globalLevel);
+                        }
+                        return client
+                            .get()
+                            .thenCompose(
+                                decision ->
+                                    decision.allowed()
+                                        ? CompletableFuture.completedFuture(
+                                            tighter(tighter(decision, tenantLevel), globalLevel))
+                                        : releaseAsync(tenant, global, now)
+                                            .thenApply(ignored -> decision))
+                            .exceptionallyCompose(
+                                error ->
+                                    releaseAsync(tenant, global, now)
+                                        .thenCompose(
+                                            ignored -> CompletableFuture.failedFuture(error)));
+                      });
+            });
+  }
+
+  private static CompletionStage<RateLimitDecision> decideAsync(Level level, long now) {
+    return level != null ? level.decideAsync(now) : CompletableFuture.completedFuture(null);
+  }
+
+  /** A failed hand-back only leaves a slot taken, so it never fails the request. */
+  private static void release(Level tenant, Level global, long now) {
+    for (Level level : new Level[] {tenant, global}) {
+      if (level != null) {
+        try {
+          level.release(now);
+        } catch (RuntimeException e) {
+          log.debug("Could not hand back a quota slot; it stays taken until the window ends", e);
+        }
+      }
+    }
+  }
+
+  /** Completes once both levels are handed back, whether or not that worked; see above. */
+  private static CompletionStage<Void> releaseAsync(Level tenant, Level global, long now) {
+    CompletionStage<?> tenantReleased =
+        tenant != null ? tenant.releaseAsync(now) : CompletableFuture.completedFuture(null);
+    CompletionStage<?> globalReleased =
+        global != null ? global.releaseAsync(now) : CompletableFuture.completedFuture(null);
+    return tenantReleased
+        .exceptionally(error -> null)
+        .thenCombine(globalReleased.exceptionally(error -> null), (a, b) -> null);
+  }
+
+  private Level tenant(ClientConfiguration config) {
+    String tenant = config.getTenant();
+    return tenant != null ? tenants.get(tenant) : null;
+  }
+
+  /** Keeps the client's delay, if any, whichever level's quota is reported. */
+  private static RateLimitDecision tighter(RateLimitDecision current, RateLimitDecision level) {
+    if (level == null || level.allowed() && level.remaining() >= current.remaining()) {
+      return current;
+    }
+    return new RateLimitDecision(
+        level.allowed(),
+        level.limit(),
+        level.remaining(),
+        level.resetMillis(),
+        level.retryAfterMillis(),
+        current.delayMillis());
+  }
+
+  private final class Level {
+    private final String keyPrefix;
+    private final long limit;
+    private final StripedWindowCounter counter;
+
+    Level(String keyPrefix, QuotaConfiguration quota) {
+      this.keyPrefix = keyPrefix;
+      this.limit = quota.getRequestsPerMinute();
+      this.counter =
+          shared ? null : new StripedWindowCounter(Runtime.getRuntime().availableProcessors());
+    }
+
+    boolean tryAcquire(long now) {
+      return shared
+          ? storage.increment(key(now), 1, TTL) <= limit
+          : counter.tryAcquire(limit, now / WINDOW_SIZE_MS);
+    }
+
+    RateLimitDecision decide(long now) {
+      if (shared) {
+        return decision(storage.increment(key(now), 1, TTL), now);
+      }
+      long window = now / WINDOW_SIZE_MS;
+      boolean allowed = counter.tryAcquire(limit, window);
+      long untilWindowEnd = WINDOW_SIZE_MS - now % WINDOW_SIZE_MS;
+      return new RateLimitDecision(
+          allowed, limit, limit - counter.count(window), untilWindowEnd, untilWindowEnd);
+    }
+
+    CompletionStage<RateLimitDecision> decideAsync(long now) {
+      if (!shared) {
+        return CompletableFuture.completedFuture(decide(now));
+      }
+      return storage.incrementAsync(key(now), 1, TTL).thenApply(count -> decision(count, now));
+    }
+
+    /** Hands back a slot taken at {@code now}; a slot of a window that has ended stays taken. */
+    void release(long now) {
+      if (shared) {
+        storage.increment(key(now), -1, TTL);
+      } else {
+        counter.release(now / WINDOW_SIZE_MS);
+      }
+    }
+
+    CompletionStage<?> releaseAsync(long now) {
+      if (!shared) {
+        release(now);
+        return CompletableFuture.completedFuture(null);
+      }
+      return storage.incrementAsync(key(now), -1, TTL);
+    }
+
+    private String key(long now) {
+      return keyPrefix + (now - now % WINDOW_SIZE_MS);
+    }
+
+    private RateLimitDecision decision(long count, long now) {
+      long untilWindowEnd = WINDOW_SIZE_MS - now % WINDOW_SIZE_MS;
+      return new RateLimitDecision(
+          count <= limit, limit, limit - count, untilWindowEnd, untilWindowEnd);
+    }
+  }
+}
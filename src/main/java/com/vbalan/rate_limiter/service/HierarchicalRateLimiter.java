@@ -0,0 +1,39 @@
+package com.vbalan.rate_limiter.service;
+
+import com.vbalan.rate_limiter.model.ClientConfiguration;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Applies the tenant and global quotas around the wrapped engine's per-client decision; see {@link
+ * HierarchicalQuotas}.
+ */
+class HierarchicalRateLimiter implements RateLimiter {
+  private final RateLimiter delegate;
+  private final HierarchicalQuotas quotas;
+
+  HierarchicalRateLimiter(RateLimiter delegate, HierarchicalQuotas quotas) {
+    this.delegate = delegate;
+    this.quotas = quotas;
+  }
+
+  @Override
+  public boolean allowRequest(String clientId, ClientConfiguration config) {
+    return quotas.allowRequest(config, () -> delegate.allowRequest(clientId, config));
+  }
+
+  @Override
+  public RateLimitDecision decide(String clientId, ClientConfiguration config) {
+    return quotas.decide(config, () -> delegate.decide(clientId, config));
+  }
+
+  @Override
+  public CompletionStage<RateLimitDecision> decideAsync(
+      String clientId, ClientConfiguration config) {
+    return quotas.decideAsync(config, () -> delegate.decideAsync(clientId, config));
+  }
+
+  @Override
+  public boolean isBlocking() {
+    return delegate.isBlocking();
+  }
+}
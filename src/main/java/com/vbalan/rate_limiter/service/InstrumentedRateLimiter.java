@@ -0,0 +1,69 @@
+package com.vbalan.rate_limiter.service;
+
+import com.vbalan.rate_limiter.model.ClientConfiguration;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every decision of the wrapped engine. Both outcome timers are registered up front, so a
+ * decision costs two {@link System#nanoTime()} calls and one record, with no tag lookup.
+ */
+class InstrumentedRateLimiter implements RateLimiter {
+  static final String DECISIONS = "rate.limit.decisions";
+
+  private final RateLimiter delegate;
+  private final Timer allowed;
+  private final Timer denied;
+
+  InstrumentedRateLimiter(RateLimiter delegate, MeterRegistry registry, Tags tags) {
+    this.delegate = delegate;
+    this.allowed = timer(registry, tags.and("outcome", "allowed"));
+    this.denied = timer(registry, tags.and("outcome", "denied"));
+  }
+
+  @Override
+  public boolean allowRequest(String clientId, ClientConfiguration config) {
+    long start = System.nanoTime();
+    boolean result = delegate.allowRequest(clientId, config);
+    (result ? allowed : denied).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    return result;
+  }
+
+  @Override
+  public RateLimitDecision decide(String clientId, ClientConfiguration config) {
+    long start = System.nanoTime();
+    RateLimitDecision decision = delegate.decide(clientId, config);
+    (decision.allowed() ? allowed : denied).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    return decision;
+  }
+
+  @Override
+  public CompletionStage<RateLimitDecision> decideAsync(
+      String clientId, ClientConfiguration config) {
+    long start = System.nanoTime();
+    return delegate
+        .decideAsync(clientId, config)
+        .whenComplete(
+            (decision, error) -> {
+              if (error == null) {
+                (decision.allowed() ? allowed : denied)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+              }
+            });
+  }
+
+  @Override
+  public boolean isBlocking() {
+    return delegate.isBlocking();
+  }
+
+  private static Timer timer(MeterRegistry registry, Tags tags) {
+    return Timer.builder(DECISIONS)
+        .description("Rate limit decisions by endpoint, algorithm, backend and outcome")
+        .tags(tags)
+        .register(registry);
+  }
+}
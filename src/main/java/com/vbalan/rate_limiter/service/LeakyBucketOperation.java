@@ -0,0 +1,113 @@
+package com.vbalan.rate_limiter.service;
+
+import com.vbalan.rate_limiter.model.ClientConfiguration;
+import com.vbalan.rate_limiter.storage.AtomicOperation;
+import java.util.List;
+
+/**
+ * Leaky bucket as a queue: requests leave at one per emission interval ({@code 60s /
+ * requestsPerMinute}), and the whole state is the time the next free slot opens, in microseconds. A
+ * request takes the earliest free slot and is told to wait until then; one whose slot is more than
+ * {@code maxDelay} away is rejected and reserves nothing. Unlike {@link GcraOperation} no burst
+ * passes through undelayed, so the backend sees a steady rate. State is {@code [next]}; the reply
+ * is {@code [allowed, delay, next - now]}.
+ */
+class LeakyBucketOperation implements AtomicOperation {
+  private static final String SCRIPT =
+      """
+      local ttl = tonumber(ARGV[1])
+      local now = tonumber(ARGV[2]) * 1000
+      local interval = tonumber(ARGV[3])
+      local max_delay = tonumber(ARGV[4])
+      local next = now
+      local stored = redis.call('GET', KEYS[1])
+      if stored and #stored == 8 then
+        next = math.max(struct.unpack('>i8', stored), now)
+      end
+      local delay = next - now
+      local allowed = 0
+      if delay <= max_delay then
+        next = next + interval
+        allowed = 1
+        if ttl > 0 then
+          redis.call('SET', KEYS[1], struct.pack('>i8', next), 'PX', ttl)
+        else
+          redis.call('SET', KEYS[1], struct.pack('>i8', next))
+        end
+      end
+      return {allowed, delay, next - now}
+      """;
+
+  private final String clientId;
+  private final ClientConfiguration config;
+  private final long maxDelayMicros;
+  private final long now;
+  private long[] reply;
+
+  LeakyBucketOperation(String clientId, ClientConfiguration config, long maxDelayMicros, long now) {
+    this.clientId = clientId;
+    this.config = config;
+    this.maxDelayMicros = maxDelayMicros;
+    this.now = now;
+  }
+
+  @Override
+  public List<String> keys() {
+    return List.of(ClientKeys.of("leaky_bucket", clientId));
+  }
+
+  @Override
+  public long[] arguments() {
+    return new long[] {now, GcraOperation.interval(config), maxDelayMicros};
+  }
+
+  @Override
+  public String script() {
+    return SCRIPT;
+  }
+
+  @Override
+  public long[] apply(long[] state) {
+    long nowMicros = now * 1000;
+    long next = state == null ? nowMicros : Math.max(state[0], nowMicros);
+    long delay = next - nowMicros;
+    boolean allowed = delay <= maxDelayMicros;
+    if (allowed) {
+      next += GcraOperation.interval(config);
+      state = state == null ? new long[1] : state;
+      state[0] = next;
+    }
+    reply = new long[] {allowed ? 1 : 0, delay, next - nowMicros};
+    return state;
+  }
+
+  @Override
+  public long[] reply() {
+    return reply;
+  }
+
+  /** Longest time a stored slot can matter, used as the key's TTL. */
+  static long ttlMillis(ClientConfiguration config, long maxDelayMicros) {
+    return Math.max(1, Math.ceilDiv(maxDelayMicros + GcraOperation.interval(config), 1000));
+  }
+
+  /**
+   * Builds the decision from a {@code [allowed, delay, next - now]} reply. The limit is the number
+   * of requests that fit in the queue; remaining is how many more would be accepted right now.
+   */
+  static RateLimitDecision decision(long[] reply, ClientConfiguration config, long maxDelayMicros) {
+    long interval = GcraOperation.interval(config);
+    long ahead = reply[2];
+    return new RateLimitDecision(
+        reply[0] == 1,
+        maxDelayMicros / interval + 1,
+        Math.floorDiv(maxDelayMicros - ahead, interval) + 1,
+        millis(ahead),
+        millis(ahead - maxDelayMicros),
+        millis(reply[1]));
+  }
+
+  private static long millis(long micros) {
+    return Math.ceilDiv(micros, 1000);
+  }
+}
@@ -0,0 +1,69 @@
+package com.vbalan.rate_limiter.service;
+
+import com.vbalan.rate_limiter.model.ClientConfiguration;
+import com.vbalan.rate_limiter.storage.RateLimitStorage;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Shaping counterpart of {@link TokenBucketRateLimiter}: instead of rejecting a burst it spaces the
+ * requests out at the client's rate, returning each one's wait as {@link
+ * RateLimitDecision#delayMillis()}. Only requests that would wait longer than {@code
+ * rate-limit.shaping.max-delay} are rejected. See {@link LeakyBucketOperation}.
+ */
+@Component("leaky-bucket")
+public class LeakyBucketRateLimiter implements RateLimiter {
+  private final RateLimitStorage storage;
+  private final long maxDelayMicros;
+
+  public LeakyBucketRateLimiter(
+      RateLimitStorage storage, @Value("${rate-limit.shaping.max-delay:500ms}") Duration maxDelay) {
+    if (maxDelay.isNegative()) {
+      throw new IllegalArgumentException("max-delay must not be negative: " + maxDelay);
+    }
+    this.storage = storage;
+    this.maxDelayMicros = maxDelay.toNanos() / 1000;
+  }
+
+  @Override
+  public RateLimitDecision decide(String clientId, ClientConfiguration clientConfiguration) {
+    // With no rate the queue never drains, so no slot is ever free.
+    if (clientConfiguration.getRequestsPerMinute() <= 0) {
+      return GcraOperation.denyAll();
+    }
+    long now = System.currentTimeMillis();
+    long[] reply =
+        storage.compute(operation(clientId, clientConfiguration, now), ttl(clientConfiguration));
+    return LeakyBucketOperation.decision(reply, clientConfiguration, maxDelayMicros);
+  }
+
+  @Override
+  public CompletionStage<RateLimitDecision> decideAsync(
+      String clientId, ClientConfiguration clientConfiguration) {
+    if (clientConfiguration.getRequestsPerMinute() <= 0) {
+      return CompletableFuture.completedFuture(GcraOperation.denyAll());
+    }
+    long now = System.currentTimeMillis();
+    return storage
+        .computeAsync(operation(clientId, clientConfiguration, now), ttl(clientConfiguration))
+        .thenApply(
+            reply -> LeakyBucketOperation.decision(reply, clientConfiguration, maxDelayMicros));
+  }
+
+  @Override
+  public boolean isBlocking() {
+    return false;
+  }
+
+  private LeakyBucketOperation operation(
+      String clientId, ClientConfiguration clientConfiguration, long now) {
+    return new LeakyBucketOperation(clientId, clientConfiguration, maxDelayMicros, now);
+  }
+
+  private Duration ttl(ClientConfiguration clientConfiguration) {
+    return Duration.ofMillis(LeakyBucketOperation.ttlMillis(clientConfiguration, maxDelayMicros));
+  }
+}
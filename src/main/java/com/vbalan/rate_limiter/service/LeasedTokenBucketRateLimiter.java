@@ -0,0 +1,230 @@
+package com.vbalan.rate_limiter.service;
+
+import com.vbalan.rate_limiter.model.ClientConfiguration;
+import com.vbalan.rate_limiter.storage.CircuitBreakerStorage;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+/**
+ * Token bucket shared through Redis, but consumed locally: a node takes a batch of tokens out of
+ * the client's Redis bucket in one script call and serves decisions from it until the batch is
+ * spent or {@value #LEASE_TTL_MS} ms old. Leftover tokens of an expired lease are dropped, so the
+ * cluster may under-admit by at most one lease per node but never exceeds the shared bucket.
+ *
+ * <p>The lease size tracks the client's request rate on this node, aiming for a lease that lasts
+ * {@value #LEASE_TTL_MS} ms, and is capped at a quarter of the burst capacity so one node cannot
+ * drain the bucket for the others. When Redis has no tokens left the node stops asking until the
+ * next token is due. The Redis state uses the same keys as {@code redis-token-bucket}.
+ */
+@Component("leased-token-bucket")
+@ConditionalOnProperty(name = "rate-limit.storage.type", havingValue = "redis")
+public class LeasedTokenBucketRateLimiter implements RedisScriptEngine, SmartLifecycle {
+  static final long LEASE_TTL_MS = 1000;
+  private static final long TTL_MS = 120000;
+  private static final long IDLE_TTL_MS = 120000;
+  private static final RedisScript<List> SCRIPT =
+      RedisScript.of(
+          """
+          local time = redis.call('TIME')
+          local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+          local rate = tonumber(ARGV[1])
+          local capacity = tonumber(ARGV[2])
+          local ttl = tonumber(ARGV[3])
+          local requested = tonumber(ARGV[4])
+          local tokens = tonumber(redis.call('GET', KEYS[1]))
+          local last_refill = tonumber(redis.call('GET', KEYS[2]))
+          if last_refill == nil then
+            tokens = capacity
+            last_refill = now
+          else
+            tokens = tokens or 0
+            local tokens_to_add = math.floor((now - last_refill) * rate / 60000)
+            if tokens_to_add > 0 then
+              tokens = math.min(capacity, tokens + tokens_to_add)
+              last_refill = now
+            end
+          end
+          local granted = math.min(requested, tokens)
+          tokens = tokens - granted
+          redis.call('SET', KEYS[1], tokens, 'PX', ttl)
+          redis.call('SET', KEYS[2], last_refill, 'PX', ttl)
+          return {granted, tokens}
+          """,
+          List.class);
+
+  private final RedisTemplate<String, String> redisTemplate;
+  private final CircuitBreakerStorage breaker;
+  private final LongSupplier millis;
+  private final ConcurrentHashMap<String, Lease> leases = new ConcurrentHashMap<>();
+  private ScheduledExecutorService sweeper;
+
+  @Autowired
+  public LeasedTokenBucketRateLimiter(
+      RedisTemplate<String, String> redisTemplate, ObjectProvider<CircuitBreakerStorage> breaker) {
+    this(redisTemplate, breaker.getIfAvailable(), monotonicMillis());
+  }
+
+  LeasedTokenBucketRateLimiter(
+      RedisTemplate<String, String> redisTemplate,
+      CircuitBreakerStorage breaker,
+      LongSupplier millis) {
+    this.redisTemplate = redisTemplate;
+    this.breaker = breaker;
+    this.millis = millis;
+    RedisScripts.preload(redisTemplate, SCRIPT);
+  }
+
+  @Override
+  public RateLimitDecision decide(String clientId, ClientConfiguration config) {
+    long now = millis.getAsLong();
+    Lease lease = leases.get(clientId);
+    if (lease == null) {
+      lease = leases.computeIfAbsent(clientId, k -> new Lease());
+    }
+    lease.lastUsed = now;
+    if (now < lease.expiresAt && lease.tryTake()) {
+      return lease.decision(true, config, now);
+    }
+    // A throttled client is denied without the lock, so its requests never queue behind a renewal.
+    if (now < lease.retryAt) {
+      return lease.decision(false, config, now);
+    }
+    // A lock rather than a monitor: renewal waits on Redis, which would pin a virtual thread.
+    lease.lock.lock();
+    try {
+      // Another thread may have renewed the lease, or found Redis empty, while this one waited.
+      if (now < lease.expiresAt && lease.tryTake()) {
+        return lease.decision(true, config, now);
+      }
+      if (now < lease.retryAt) {
+        return lease.decision(false, config, now);
+      }
+      long granted = renew(clientId, config, lease, now);
+      return lease.decision(granted > 0 && lease.tryTake(), config, now);
+    } finally {
+      lease.lock.unlock();
+    }
+  }
+
+  private long renew(String clientId, ClientConfiguration config, Lease lease, long now) {
+    long size = lease.nextSize(config.getBurstCapacity(), now);
+    List<?> reply =
+        RedisScripts.execute(
+            redisTemplate,
+            breaker,
+            SCRIPT,
+            List.of(ClientKeys.of("tokens", clientId), ClientKeys.of("lastRefill", clientId)),
+            config.getRequestsPerMinute(),
+            config.getBurstCapacity(),
+            TTL_MS,
+            size);
+    long granted = reply == null ? 0 : ((Number) reply.getFirst()).longValue();
+    lease.grant(granted, now);
+    if (granted == 0) {
+      int rate = config.getRequestsPerMinute();
+      lease.retryAt = rate > 0 ? now + Math.max(1, 60000 / rate) : now + LEASE_TTL_MS;
+    }
+    return granted;
+  }
+
+  @Override
+  public synchronized void start() {
+    if (sweeper == null) {
+      sweeper =
+          Executors.newSingleThreadScheduledExecutor(
+              task -> {
+                Thread thread = new Thread(task, "leased-token-bucket-sweeper");
+                thread.setDaemon(true);
+                return thread;
+              });
+      sweeper.scheduleWithFixedDelay(this::sweepIdleLeases, 1, 1, TimeUnit.MINUTES);
+    }
+  }
+
+  @Override
+  public synchronized void stop() {
+    if (sweeper != null) {
+      sweeper.shutdown();
+      sweeper = null;
+    }
+  }
+
+  @Override
+  public synchronized boolean isRunning() {
+    return sweeper != null;
+  }
+
+  void sweepIdleLeases() {
+    long now = millis.getAsLong();
+    leases.values().removeIf(lease -> now - lease.lastUsed >= IDLE_TTL_MS);
+  }
+
+  private static LongSupplier monotonicMillis() {
+    long origin = System.nanoTime();
+    return () -> TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - origin);
+  }
+
+  /** Tokens held by this node for one client; renewal state is guarded by {@code lock}. */
+  private static final class Lease {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicLong tokens = new AtomicLong();
+    private volatile long expiresAt;
+    private volatile long retryAt;
+    private volatile long lastUsed;
+    private long size;
+    private long leasedAt;
+    private double ratePerMs;
+
+    boolean tryTake() {
+      long current;
+      do {
+        current = tokens.get();
+        if (current <= 0) {
+          return false;
+        }
+      } while (!tokens.compareAndSet(current, current - 1));
+      return true;
+    }
+
+    /** Sizes the next lease from the rate the previous one was consumed at. */
+    long nextSize(int burstCapacity, long now) {
+      if (size > 0) {
+        long used = size - Math.max(tokens.get(), 0);
+        double observed = (double) used / Math.max(now - leasedAt, 1);
+        ratePerMs = ratePerMs == 0 ? observed : (ratePerMs + observed) / 2;
+      }
+      long max = Math.max(1, burstCapacity / 4);
+      return Math.clamp(Math.round(ratePerMs * LEASE_TTL_MS), 1, max);
+    }
+
+    /**
+     * Only this node's share of the bucket is known locally: remaining counts the leased tokens
+     * left and resets when the lease is renewed; a denied client may retry once Redis is due a
+     * token.
+     */
+    RateLimitDecision decision(boolean allowed, ClientConfiguration config, long now) {
+      return new RateLimitDecision(
+          allowed, config.getBurstCapacity(), tokens.get(), expiresAt - now, retryAt - now);
+    }
+
+    void grant(long granted, long now) {
+      tokens.set(granted);
+      size = granted;
+      leasedAt = now;
+      expiresAt = now + LEASE_TTL_MS;
+    }
+  }
+}
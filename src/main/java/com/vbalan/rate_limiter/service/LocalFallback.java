@@ -0,0 +1,95 @@
+package com.vbalan.rate_limiter.service;
+
+import com.vbalan.rate_limiter.model.ClientConfiguration;
+import com.vbalan.rate_limiter.storage.CircuitBreakerStorage;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+/**
+ * Decides requests on this node alone while the storage circuit is open; see {@link
+ * CircuitBreakerStorage}. Each client gets an in-process token bucket with {@code share} of its
+ * {@code requestsPerMinute} and {@code burstCapacity}, at least one of each unless it is zero. With
+ * the share set to one over the number of nodes, the cluster as a whole stays close to the client's
+ * limit while every node decides independently.
+ *
+ * <p>A client's bucket starts full the first time it falls back. Once the circuit closes, the
+ * shared state in storage takes over again and idle buckets expire.
+ *
+ * <p>Sharded storage has a breaker per shard and none to watch here; calls to a shard whose circuit
+ * is open fail at once and are decided locally one by one, while other shards keep deciding.
+ */
+@Component
+public class LocalFallback implements SmartLifecycle {
+  private final boolean enabled;
+  private final CircuitBreakerStorage breaker;
+  private final double share;
+  private final LocalTokenBucketRateLimiter local = new LocalTokenBucketRateLimiter();
+  private final Map<ClientConfiguration, ClientConfiguration> scaled = new ConcurrentHashMap<>();
+
+  @Autowired
+  public LocalFallback(
+      @Value("${rate-limit.storage.circuit-breaker.enabled:false}") boolean enabled,
+      ObjectProvider<CircuitBreakerStorage> breaker,
+      @Value("${rate-limit.storage.circuit-breaker.local-share:0.5}") double share) {
+    this(enabled, breaker.getIfAvailable(), share);
+  }
+
+  LocalFallback(CircuitBreakerStorage breaker, double share) {
+    this(breaker != null, breaker, share);
+  }
+
+  LocalFallback(boolean enabled, CircuitBreakerStorage breaker, double share) {
+    if (share <= 0 || share > 1) {
+      throw new IllegalArgumentException("local-share must be in (0, 1]: " + share);
+    }
+    this.enabled = enabled;
+    this.breaker = breaker;
+    this.share = share;
+  }
+
+  /** Whether circuit breakers guard the storage; if not, the limiters are not wrapped at all. */
+  boolean isEnabled() {
+    return enabled;
+  }
+
+  boolean isActive() {
+    return breaker != null && breaker.isOpen();
+  }
+
+  RateLimitDecision decide(String clientId, ClientConfiguration config) {
+    return local.decide(clientId, scaled.computeIfAbsent(config, this::scale));
+  }
+
+  private ClientConfiguration scale(ClientConfiguration config) {
+    return new ClientConfiguration(
+        scale(config.getRequestsPerMinute()),
+        scale(config.getBurstCapacity()),
+        config.getLimits(),
+        config.getTenant());
+  }
+
+  /** A configured zero stays zero, so a client that storage denies is denied locally as well. */
+  private int scale(int value) {
+    return value > 0 ? (int) Math.max(1, Math.round(value * share)) : 0;
+  }
+
+  @Override
+  public void start() {
+    local.start();
+  }
+
+  @Override
+  public void stop() {
+    local.stop();
+  }
+
+  @Override
+  public boolean isRunning() {
+    return local.isRunning();
+  }
+}
@@ -0,0 +1,184 @@
+package com.vbalan.rate_limiter.service;
+
+import com.vbalan.rate_limiter.model.ClientConfiguration;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-process token bucket holding each client's bucket in a single {@link AtomicLong}: the last
+ * refill time in monotonic milliseconds in the upper 42 bits and the token count in the lower 22.
+ * A decision is one map lookup and a CAS loop on that word; a drained bucket is denied with a plain
+ * read, so a hot client that is over its limit never contends on that word.
+ *
+ * <p>Refill time advances by the time of the whole tokens added, so fractional progress towards
+ * the next token carries over. Buckets not requested for two minutes are dropped by a background
+ * sweep, matching the TTL of the storage-backed engines. Each bucket keeps its last request time
+ * apart from the word, since denials and a zero refill rate leave the refill time behind.
+ */
+@Component("local-token-bucket")
+@ConditionalOnProperty(
+    name = "rate-limit.storage.type",
+    havingValue = "memory",
+    matchIfMissing = true)
+public class LocalTokenBucketRateLimiter implements RateLimiter, SmartLifecycle {
+  private static final int TOKEN_BITS = 22;
+  static final long MAX_TOKENS = (1L << TOKEN_BITS) - 1;
+  private static final long EVICTED = -1;
+  // Refill times stay far below 2^41 ms, so the sign bit is free to flag a denial.
+  private static final long DENIED = Long.MIN_VALUE;
+  private static final long MINUTE_MS = 60_000;
+  private static final long IDLE_TTL_MS = Duration.ofMinutes(2).toMillis();
+
+  private final ConcurrentHashMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+  private final LongSupplier millis;
+  private ScheduledExecutorService sweeper;
+
+  public LocalTokenBucketRateLimiter() {
+    this(monotonicMillis());
+  }
+
+  LocalTokenBucketRateLimiter(LongSupplier millis) {
+    this.millis = millis;
+  }
+
+  @Override
+  public boolean allowRequest(String clientId, ClientConfiguration config) {
+    return consume(clientId, config, millis.getAsLong()) >= 0;
+  }
+
+  @Override
+  public RateLimitDecision decide(String clientId, ClientConfiguration config) {
+    long now = millis.getAsLong();
+    long result = consume(clientId, config, now);
+    long state = result & ~DENIED;
+    long[] reply = {result >= 0 ? 1 : 0, state & MAX_TOKENS, now - (state >>> TOKEN_BITS)};
+    return TokenBucketOperation.decision(reply, config);
+  }
+
+  @Override
+  public boolean isBlocking() {
+    return false;
+  }
+
+  /**
+   * Takes a token if one is available and returns the bucket state left behind, with {@link
+   * #DENIED} set if there was none.
+   */
+  private long consume(String clientId, ClientConfiguration config, long now) {
+    long capacity = Math.min(config.getBurstCapacity(), MAX_TOKENS);
+    long rate = config.getRequestsPerMinute();
+    while (true) {
+      Bucket bucket = buckets.get(clientId);
+      if (bucket == null) {
+        bucket = buckets.computeIfAbsent(clientId, k -> new Bucket(pack(now, capacity), now));
+      }
+      // At most one write per millisecond, so a hot client's denials stay mostly read-only.
+      if (bucket.lastUsed != now) {
+        bucket.lastUsed = now;
+      }
+      long state = bucket.get();
+      while (state != EVICTED) {
+        long last = state >>> TOKEN_BITS;
+        long tokens = state & MAX_TOKENS;
+        if (tokens >= capacity) {
+          tokens = capacity;
+          last = Math.max(last, now);
+        } else if (now > last && rate > 0) {
+          long elapsed = now - last;
+          long untilFull = ((capacity - tokens) * MINUTE_MS + rate - 1) / rate;
+          if (elapsed >= untilFull) {
+            tokens = capacity;
+            last = now;
+          } else {
+            long added = elapsed * rate / MINUTE_MS;
+            tokens += added;
+            last += added * MINUTE_MS / rate;
+          }
+        }
+        if (tokens == 0) {
+          return DENIED | pack(last, 0);
+        }
+        long next = pack(last, tokens - 1);
+        if (bucket.compareAndSet(state, next)) {
+          return next;
+        }
+        Thread.onSpinWait();
+        state = bucket.get();
+      }
+      buckets.remove(clientId, bucket);
+    }
+  }
+
+  @Override
+  public synchronized void start() {
+    if (sweeper == null) {
+      sweeper =
+          Executors.newSingleThreadScheduledExecutor(
+              task -> {
+                Thread thread = new Thread(task, "local-token-bucket-sweeper");
+                thread.setDaemon(true);
+                return thread;
+              });
+      sweeper.scheduleWithFixedDelay(this::sweepIdleBuckets, 1, 1, TimeUnit.MINUTES);
+    }
+  }
+
+  @Override
+  public synchronized void stop() {
+    if (sweeper != null) {
+      sweeper.shutdown();
+      sweeper = null;
+    }
+  }
+
+  @Override
+  public synchronized boolean isRunning() {
+    return sweeper != null;
+  }
+
+  int size() {
+    return buckets.size();
+  }
+
+  void sweepIdleBuckets() {
+    long now = millis.getAsLong();
+    buckets.forEach(
+        (clientId, bucket) -> {
+          long state = bucket.get();
+          // Retire the word first so a racing request retries on a fresh bucket instead of
+          // consuming from one that is no longer in the map.
+          if (state != EVICTED
+              && now - bucket.lastUsed >= IDLE_TTL_MS
+              && bucket.compareAndSet(state, EVICTED)) {
+            buckets.remove(clientId, bucket);
+          }
+        });
+  }
+
+  private static long pack(long millis, long tokens) {
+    return (millis << TOKEN_BITS) | tokens;
+  }
+
+  private static LongSupplier monotonicMillis() {
+    long origin = System.nanoTime();
+    return () -> TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - origin);
+  }
+
+  /** The packed bucket word, plus when the client last asked for a token. */
+  private static final class Bucket extends AtomicLong {
+    private volatile long lastUsed;
+
+    Bucket(long state, long now) {
+      super(state);
+      this.lastUsed = now;
+    }
+  }
+}
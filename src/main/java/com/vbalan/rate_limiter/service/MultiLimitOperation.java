@@ -0,0 +1,184 @@
+package com.vbalan.rate_limiter.service;
+
+import com.vbalan.rate_limiter.model.ClientConfiguration;
+import com.vbalan.rate_limiter.model.LimitConfiguration;
+import com.vbalan.rate_limiter.storage.AtomicOperation;
+import java.util.List;
+
+/**
+ * Checks and consumes every limit of a client's policy at once. Each limit is a {@link
+ * GcraOperation} cell with its own emission interval and tolerance; their theoretical arrival
+ * times, in microseconds, are packed into one key, so the whole policy is still one read and one
+ * write. A request is allowed only if every limit allows it, and a denial changes nothing. State is
+ * {@code [tat...]} in policy order; the reply is {@code [allowed, tat - now...]}.
+ */
+class MultiLimitOperation implements AtomicOperation {
+  private static final String SCRIPT =
+      """
+      local ttl = tonumber(ARGV[1])
+      local now = tonumber(ARGV[2]) * 1000
+      local n = (#ARGV - 2) / 2
+      local tats = {}
+      local stored = redis.call('GET', KEYS[1])
+      for i = 1, n do
+        tats[i] = now
+        if stored and #stored == 8 * n then
+          tats[i] = math.max(struct.unpack('>i8', stored, 8 * i - 7), now)
+        end
+      end
+      local allowed = 1
+      for i = 1, n do
+        if tats[i] + tonumber(ARGV[1 + 2 * i]) - now > tonumber(ARGV[2 + 2 * i]) then
+          allowed = 0
+        end
+      end
+      if allowed == 1 then
+        local packed = {}
+        for i = 1, n do
+          tats[i] = tats[i] + tonumber(ARGV[1 + 2 * i])
+          packed[i] = struct.pack('>i8', tats[i])
+        end
+        if ttl > 0 then
+          redis.call('SET', KEYS[1], table.concat(packed), 'PX', ttl)
+        else
+          redis.call('SET', KEYS[1], table.concat(packed))
+        end
+      end
+      local reply = {allowed}
+      for i = 1, n do
+        reply[i + 1] = tats[i] - now
+      end
+      return reply
+      """;
+
+  private final String clientId;
+  private final long[] cells;
+  private final long now;
+  private long[] reply;
+
+  /**
+   * @param cells {@code [interval, tolerance]} pairs from {@link #cells(ClientConfiguration)}
+   */
+  MultiLimitOperation(String clientId, long[] cells, long now) {
+    this.clientId = clientId;
+    this.cells = cells;
+    this.now = now;
+  }
+
+  @Override
+  public List<String> keys() {
+    return List.of(ClientKeys.of("multi_limit", clientId));
+  }
+
+  @Override
+  public long[] arguments() {
+    long[] arguments = new long[cells.length + 1];
+    arguments[0] = now;
+    System.arraycopy(cells, 0, arguments, 1, cells.length);
+    return arguments;
+  }
+
+  @Override
+  public String script() {
+    return SCRIPT;
+  }
+
+  @Override
+  public long[] apply(long[] state) {
+    int n = cells.length / 2;
+    long nowMicros = now * 1000;
+    // A policy with a different number of limits than the stored state starts from scratch.
+    boolean fresh = state == null || state.length != n;
+    long[] tats = new long[n];
+    boolean allowed = true;
+    for (int i = 0; i < n; i++) {
+      tats[i] = fresh ? nowMicros : Math.max(state[i], nowMicros);
+      allowed &= tats[i] + cells[2 * i] - nowMicros <= cells[2 * i + 1];
+    }
+    reply = new long[n + 1];
+    reply[0] = allowed ? 1 : 0;
+    for (int i = 0; i < n; i++) {
+      if (allowed) {
+        tats[i] += cells[2 * i];
+      }
+      reply[i + 1] = tats[i] - nowMicros;
+    }
+    return allowed ? tats : state;
+  }
+
+  @Override
+  public long[] reply() {
+    return reply;
+  }
+
+  /**
+   * The policy as {@code [interval, tolerance]} pairs in microseconds, falling back to the single
+   * {@code requestsPerMinute}/{@code burstCapacity} limit when no limits are configured. A limit of
+   * zero requests becomes a cell with the whole period as its interval and no tolerance, which no
+   * request ever fits in; a denial then waits one period.
+   */
+  static long[] cells(ClientConfiguration config) {
+    List<LimitConfiguration> limits = config.getLimits();
+    if (limits == null || limits.isEmpty()) {
+      if (config.getRequestsPerMinute() <= 0) {
+        return new long[] {60_000_000, 0};
+      }
+      long interval = GcraOperation.interval(config);
+      return new long[] {interval, config.getBurstCapacity() * interval};
+    }
+    long[] cells = new long[limits.size() * 2];
+    for (int i = 0; i < limits.size(); i++) {
+      LimitConfiguration limit = limits.get(i);
+      long period = limit.getPeriod().toNanos() / 1000;
+      if (limit.getRequests() == 0) {
+        cells[2 * i] = period;
+        continue;
+      }
+      long interval = period / limit.getRequests();
+      cells[2 * i] = interval;
+      cells[2 * i + 1] = burst(limit.getRequests(), limit.getBurst()) * interval;
+    }
+    return cells;
+  }
+
+  /** Longest time any stored TAT can matter, used as the key's TTL. */
+  static long ttlMillis(long[] cells) {
+    long longest = 1;
+    for (int i = 1; i < cells.length; i += 2) {
+      longest = Math.max(longest, Math.ceilDiv(cells[i], 1000));
+    }
+    return longest;
+  }
+
+  /**
+   * Builds the decision from a {@code [allowed, tat - now...]} reply. Limit and remaining come from
+   * the limit with the fewest requests left; reset and retry wait for every limit.
+   */
+  static RateLimitDecision decision(long[] reply, long[] cells) {
+    long limit = 0;
+    long remaining = Long.MAX_VALUE;
+    long reset = 0;
+    long retry = 0;
+    for (int i = 0; i < cells.length / 2; i++) {
+      long interval = cells[2 * i];
+      long tolerance = cells[2 * i + 1];
+      long ahead = reply[i + 1];
+      long left = (tolerance - ahead) / interval;
+      if (left < remaining) {
+        remaining = left;
+        limit = tolerance / interval;
+      }
+      reset = Math.max(reset, ahead);
+      retry = Math.max(retry, ahead + interval - tolerance);
+    }
+    return new RateLimitDecision(reply[0] == 1, limit, remaining, millis(reset), millis(retry));
+  }
+
+  private static int burst(int requests, int burst) {
+    return burst > 0 ? burst : requests;
+  }
+
+  private static long millis(long micros) {
+    return Math.ceilDiv(micros, 1000);
+  }
+}
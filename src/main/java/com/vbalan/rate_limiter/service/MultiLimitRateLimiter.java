@@ -0,0 +1,48 @@
+package com.vbalan.rate_limiter.service;
+
+import com.vbalan.rate_limiter.model.ClientConfiguration;
+import com.vbalan.rate_limiter.storage.RateLimitStorage;
+import java.time.Duration;
+import java.util.concurrent.CompletionStage;
+import org.springframework.stereotype.Component;
+
+/**
+ * Enforces every limit in a client's {@code limits} policy, e.g. per second, per minute and per
+ * hour, in one storage call: see {@link MultiLimitOperation}. Clients without a policy are limited
+ * by their {@code requestsPerMinute}/{@code burstCapacity} alone, like {@code gcra}.
+ */
+@Component("multi-limit")
+public class MultiLimitRateLimiter implements RateLimiter {
+  private final RateLimitStorage storage;
+
+  public MultiLimitRateLimiter(RateLimitStorage storage) {
+    this.storage = storage;
+  }
+
+  @Override
+  public RateLimitDecision decide(String clientId, ClientConfiguration clientConfiguration) {
+    long now = System.currentTimeMillis();
+    long[] cells = MultiLimitOperation.cells(clientConfiguration);
+    long[] reply = storage.compute(new MultiLimitOperation(clientId, cells, now), ttl(cells));
+    return MultiLimitOperation.decision(reply, cells);
+  }
+
+  @Override
+  public CompletionStage<RateLimitDecision> decideAsync(
+      String clientId, ClientConfiguration clientConfiguration) {
+    long now = System.currentTimeMillis();
+    long[] cells = MultiLimitOperation.cells(clientConfiguration);
+    return storage
+        .computeAsync(new MultiLimitOperation(clientId, cells, now), ttl(cells))
+        .thenApply(reply -> MultiLimitOperation.decision(reply, cells));
+  }
+
+  @Override
+  public boolean isBlocking() {
+    return false;
+  }
+
+  private static Duration ttl(long[] cells) {
+    return Duration.ofMillis(MultiLimitOperation.ttlMillis(cells));
+  }
+}
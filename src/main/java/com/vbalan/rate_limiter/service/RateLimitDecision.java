@@ -0,0 +1,33 @@
+package com.vbalan.rate_limiter.service;
+
+/**
+ * Outcome of one rate limit decision, with the quota state the engine read while making it.
+ *
+ * @param limit requests the client may make in a burst or window
+ * @param remaining requests still available right after this decision
+ * @param resetMillis time until the full limit is available again
+ * @param retryAfterMillis for a denied request, time until the next one can be allowed
+ * @param delayMillis for an allowed request from a shaping engine, how long to hold it before it
+ *     proceeds
+ */
+public record RateLimitDecision(
+    boolean allowed,
+    long limit,
+    long remaining,
+    long resetMillis,
+    long retryAfterMillis,
+    long delayMillis) {
+
+  public RateLimitDecision {
+    remaining = Math.max(remaining, 0);
+    resetMillis = Math.max(resetMillis, 0);
+    retryAfterMillis = allowed ? 0 : Math.max(retryAfterMillis, 0);
+    delayMillis = allowed ? Math.max(delayMillis, 0) : 0;
+  }
+
+  /** A decision that, if allowed, lets the request proceed immediately. */
+  public RateLimitDecision(
+      boolean allowed, long limit, long remaining, long resetMillis, long retryAfterMillis) {
+    this(allowed, limit, remaining, resetMillis, retryAfterMillis, 0);
+  }
+}
@@ -1,20 +1,115 @@
 package com.vbalan.rate_limiter.service;
 
+import com.vbalan.rate_limiter.config.ClientConfig;
 import com.vbalan.rate_limiter.model.ClientConfiguration;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 @Service
-@RequiredArgsConstructor
 public class RateLimitService {
-  private final TokenBucketRateLimiter tokenBucketRateLimiter;
-  private final SlidingWindowRateLimiter slidingWindowRateLimiter;
+  private final Map<String, RateLimiter> endpointRateLimiters = new HashMap<>();
+
+  public RateLimitService(
+      Map<String, RateLimiter> rateLimiters,
+      ClientConfig clientConfig,
+      HierarchicalQuotas quotas,
+      LocalFallback fallback,
+      MeterRegistry meterRegistry,
+      @Value("${rate-limit.storage.type:memory}") String storageType,
+      @Value("${rate-limit.storage.redis.shards:}") List<String> shards) {
+    for (String endpoint : clientConfig.getEndpoints().keySet()) {
+      endpointRateLimiters.put(
+          endpoint,
+          resolve(
+              rateLimiters,
+              clientConfig,
+              quotas,
+              fallback,
+              meterRegistry,
+              storageType,
+              !shards.isEmpty(),
+              endpoint));
+    }
+  }
+
+  public boolean allowRequest(
+      String endpoint, String clientId, ClientConfiguration clientConfiguration) {
+    return rateLimiter(endpoint).allowRequest(clientId, clientConfiguration);
+  }
 
   public boolean allowRequestForFoo(String clientId, ClientConfiguration clientConfiguration) {
-    return tokenBucketRateLimiter.allowRequest(clientId, clientConfiguration);
+    return allowRequest("foo", clientId, clientConfiguration);
   }
 
   public boolean allowRequestForBar(String clientId, ClientConfiguration clientConfiguration) {
-    return slidingWindowRateLimiter.allowRequest(clientId, clientConfiguration);
+    return allowRequest("bar", clientId, clientConfiguration);
+  }
+
+  public RateLimitDecision decide(
+      String endpoint, String clientId, ClientConfiguration clientConfiguration) {
+    return rateLimiter(endpoint).decide(clientId, clientConfiguration);
+  }
+
+  public CompletionStage<RateLimitDecision> decideAsync(
+      String endpoint, String clientId, ClientConfiguration clientConfiguration) {
+    return rateLimiter(endpoint).decideAsync(clientId, clientConfiguration);
+  }
+
+  /**
+   * Whether the endpoint's engine can only decide by blocking; see {@link RateLimiter#isBlocking}.
+   */
+  public boolean isBlocking(String endpoint) {
+    return rateLimiter(endpoint).isBlocking();
+  }
+
+  private RateLimiter rateLimiter(String endpoint) {
+    RateLimiter rateLimiter = endpointRateLimiters.get(endpoint);
+    if (rateLimiter == null) {
+      throw new IllegalArgumentException("No rate limit configured for endpoint " + endpoint);
+    }
+    return rateLimiter;
+  }
+
+  private static RateLimiter resolve(
+      Map<String, RateLimiter> rateLimiters,
+      ClientConfig clientConfig,
+      HierarchicalQuotas quotas,
+      LocalFallback fallback,
+      MeterRegistry meterRegistry,
+      String storageType,
+      boolean sharded,
+      String endpoint) {
+    String algorithm = clientConfig.getEndpoints().get(endpoint);
+    RateLimiter rateLimiter = rateLimiters.get(algorithm);
+    if (rateLimiter == null) {
+      throw new IllegalStateException(
+          "No rate limiter '" + algorithm + "' available for endpoint " + endpoint);
+    }
+    if (sharded && rateLimiter instanceof RedisScriptEngine) {
+      throw new IllegalStateException(
+          "Rate limiter '"
+              + algorithm
+              + "' for endpoint "
+              + endpoint
+              + " keeps all its keys on spring.data.redis and cannot use"
+              + " rate-limit.storage.redis.shards");
+    }
+    if (quotas.isEnabled()) {
+      rateLimiter = new HierarchicalRateLimiter(rateLimiter, quotas);
+    }
+    if (fallback.isEnabled()) {
+      rateLimiter = new FallbackRateLimiter(rateLimiter, fallback);
+    }
+    return new InstrumentedRateLimiter(
+        rateLimiter,
+        meterRegistry,
+        Tags.of(
+            "endpoint", endpoint, "algorithm", algorithm, "backend", storageType.toLowerCase()));
   }
 }
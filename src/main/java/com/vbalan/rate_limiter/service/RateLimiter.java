@@ -0,0 +1,48 @@
+package com.vbalan.rate_limiter.service;
+
+import com.vbalan.rate_limiter.model.ClientConfiguration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * A rate limiting engine. Implementations are registered under their algorithm name and selected
+ * per endpoint through {@code rate-limit.endpoints}.
+ */
+public interface RateLimiter {
+  /**
+   * Decides one request. The quota fields of the decision come from the state read for the decision
+   * itself, never from an extra storage call.
+   */
+  RateLimitDecision decide(String clientId, ClientConfiguration clientConfiguration);
+
+  default boolean allowRequest(String clientId, ClientConfiguration clientConfiguration) {
+    return decide(clientId, clientConfiguration).allowed();
+  }
+
+  /**
+   * Non-blocking decision for the reactive endpoints. Engines backed by {@link
+   * com.vbalan.rate_limiter.storage.RateLimitStorage} complete when the storage does; the default
+   * decides on the caller's thread.
+   */
+  default CompletionStage<RateLimitDecision> decideAsync(
+      String clientId, ClientConfiguration clientConfiguration) {
+    try {
+      return CompletableFuture.completedFuture(decide(clientId, clientConfiguration));
+    } catch (RuntimeException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  /**
+   * Whether {@link #decideAsync} waits on storage I/O on the calling thread, as the default one
+   * does. The reactive endpoints decide such engines on a worker thread instead of an event loop.
+   */
+  default boolean isBlocking() {
+    return true;
+  }
+
+  default CompletionStage<Boolean> allowRequestAsync(
+      String clientId, ClientConfiguration clientConfiguration) {
+    return decideAsync(clientId, clientConfiguration).thenApply(RateLimitDecision::allowed);
+  }
+}
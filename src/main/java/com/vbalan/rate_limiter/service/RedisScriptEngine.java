@@ -0,0 +1,8 @@
+package com.vbalan.rate_limiter.service;
+
+/**
+ * An engine that runs its own scripts on the {@code spring.data.redis} server instead of going
+ * through {@link com.vbalan.rate_limiter.storage.RateLimitStorage}, so sharded storage would not
+ * spread its keys. {@link RateLimitService} refuses such an engine while shards are configured.
+ */
+interface RedisScriptEngine extends RateLimiter {}
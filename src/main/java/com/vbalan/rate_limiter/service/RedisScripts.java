@@ -0,0 +1,59 @@
+package com.vbalan.rate_limiter.service;
+
+import com.vbalan.rate_limiter.storage.CircuitBreakerStorage;
+import com.vbalan.rate_limiter.storage.LongCodec;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Supplier;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+final class RedisScripts {
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static final RedisSerializer<List> REPLY_SERIALIZER =
+      (RedisSerializer) RedisSerializer.byteArray();
+
+  private RedisScripts() {}
+
+  /** Loads the script into the Redis script cache so the first EVALSHA does not miss. */
+  static void preload(RedisTemplate<String, String> redisTemplate, RedisScript<?> script) {
+    byte[] source = script.getScriptAsString().getBytes(StandardCharsets.UTF_8);
+    redisTemplate.execute(
+        (RedisCallback<String>) connection -> connection.scriptingCommands().scriptLoad(source));
+  }
+
+  /**
+   * Runs the script by SHA with numeric arguments written as raw ASCII bytes, under {@code breaker}
+   * when there is one, so a failing Redis throws {@link
+   * com.vbalan.rate_limiter.exception.StorageUnavailableException} like the storage engines do.
+   */
+  static List<?> execute(
+      RedisTemplate<String, String> redisTemplate,
+      CircuitBreakerStorage breaker,
+      RedisScript<List> script,
+      List<String> keys,
+      long... arguments) {
+    Object[] args = new Object[arguments.length];
+    for (int i = 0; i < arguments.length; i++) {
+      args[i] = LongCodec.toAscii(arguments[i]);
+    }
+    Supplier<List<?>> call =
+        () ->
+            redisTemplate.execute(
+                script, RedisSerializer.byteArray(), REPLY_SERIALIZER, keys, args);
+    return breaker != null ? breaker.guard(call) : call.get();
+  }
+
+  /** Converts an integer array reply; a missing reply reads as a denial with no state. */
+  static long[] toLongs(List<?> reply, int length) {
+    long[] values = new long[length];
+    if (reply != null) {
+      for (int i = 0; i < Math.min(length, reply.size()); i++) {
+        values[i] = ((Number) reply.get(i)).longValue();
+      }
+    }
+    return values;
+  }
+}
@@ -0,0 +1,81 @@
+package com.vbalan.rate_limiter.service;
+
+import com.vbalan.rate_limiter.model.ClientConfiguration;
+import com.vbalan.rate_limiter.storage.CircuitBreakerStorage;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sliding window log kept in a Redis sorted set per client, scored by request time. Trimming,
+ * counting and recording happen in one script, so each decision moves a constant number of bytes
+ * regardless of how many requests the window holds. The reply carries the ages of the oldest and
+ * newest entries, read with two O(log n) lookups, for the decision's reset and retry times.
+ */
+@Component("redis-sliding-window")
+@ConditionalOnProperty(name = "rate-limit.storage.type", havingValue = "redis")
+public class RedisSlidingWindowRateLimiter implements RedisScriptEngine {
+  private static final long WINDOW_SIZE_MS = 60000;
+  private static final long TTL_MS = 120000;
+  private static final RedisScript<List> SCRIPT =
+      RedisScript.of(
+          """
+          local time = redis.call('TIME')
+          local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+          local limit = tonumber(ARGV[1])
+          redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', now - tonumber(ARGV[2]))
+          local count = redis.call('ZCARD', KEYS[1])
+          local allowed = 0
+          if count < limit then
+            redis.call('ZADD', KEYS[1], now, time[1] .. time[2] .. ':' .. ARGV[4])
+            count = count + 1
+            allowed = 1
+          end
+          local oldest_age, newest_age = 0, 0
+          if count > 0 then
+            redis.call('PEXPIRE', KEYS[1], ARGV[3])
+            local oldest = redis.call('ZRANGE', KEYS[1], 0, 0, 'WITHSCORES')
+            local newest = redis.call('ZRANGE', KEYS[1], -1, -1, 'WITHSCORES')
+            oldest_age = now - tonumber(oldest[2])
+            newest_age = now - tonumber(newest[2])
+          end
+          return {allowed, count, oldest_age, newest_age}
+          """,
+          List.class);
+
+  private final RedisTemplate<String, String> redisTemplate;
+  private final CircuitBreakerStorage breaker;
+
+  @Autowired
+  public RedisSlidingWindowRateLimiter(
+      RedisTemplate<String, String> redisTemplate, ObjectProvider<CircuitBreakerStorage> breaker) {
+    this(redisTemplate, breaker.getIfAvailable());
+  }
+
+  RedisSlidingWindowRateLimiter(
+      RedisTemplate<String, String> redisTemplate, CircuitBreakerStorage breaker) {
+    this.redisTemplate = redisTemplate;
+    this.breaker = breaker;
+    RedisScripts.preload(redisTemplate, SCRIPT);
+  }
+
+  @Override
+  public RateLimitDecision decide(String clientId, ClientConfiguration config) {
+    List<?> reply =
+        RedisScripts.execute(
+            redisTemplate,
+            breaker,
+            SCRIPT,
+            List.of(ClientKeys.of("sliding_log", clientId)),
+            config.getRequestsPerMinute(),
+            WINDOW_SIZE_MS,
+            TTL_MS,
+            ThreadLocalRandom.current().nextLong());
+    return SlidingWindowOperation.decision(RedisScripts.toLongs(reply, 4), config, WINDOW_SIZE_MS);
+  }
+}
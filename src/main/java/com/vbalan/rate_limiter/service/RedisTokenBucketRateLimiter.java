@@ -0,0 +1,83 @@
+package com.vbalan.rate_limiter.service;
+
+import com.vbalan.rate_limiter.model.ClientConfiguration;
+import com.vbalan.rate_limiter.storage.CircuitBreakerStorage;
+import java.util.List;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+/**
+ * Token bucket that lives entirely in Redis: refill, consume and TTL refresh run as one script
+ * against the Redis server clock, so app nodes with skewed clocks share a consistent bucket. The
+ * script is loaded at startup and invoked by SHA, keeping each decision to a single round trip.
+ */
+@Component("redis-token-bucket")
+@ConditionalOnProperty(name = "rate-limit.storage.type", havingValue = "redis")
+public class RedisTokenBucketRateLimiter implements RedisScriptEngine {
+  private static final long TTL_MS = 120000;
+  private static final RedisScript<List> SCRIPT =
+      RedisScript.of(
+          """
+          local time = redis.call('TIME')
+          local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+          local rate = tonumber(ARGV[1])
+          local capacity = tonumber(ARGV[2])
+          local ttl = tonumber(ARGV[3])
+          local tokens = tonumber(redis.call('GET', KEYS[1]))
+          local last_refill = tonumber(redis.call('GET', KEYS[2]))
+          if last_refill == nil then
+            tokens = capacity
+            last_refill = now
+          else
+            tokens = tokens or 0
+            local tokens_to_add = math.floor((now - last_refill) * rate / 60000)
+            if tokens_to_add > 0 then
+              tokens = math.min(capacity, tokens + tokens_to_add)
+              last_refill = now
+            end
+          end
+          local allowed = 0
+          if tokens > 0 then
+            tokens = tokens - 1
+            allowed = 1
+          end
+          redis.call('SET', KEYS[1], tokens, 'PX', ttl)
+          redis.call('SET', KEYS[2], last_refill, 'PX', ttl)
+          return {allowed, tokens, now - last_refill}
+          """,
+          List.class);
+
+  private final RedisTemplate<String, String> redisTemplate;
+  private final CircuitBreakerStorage breaker;
+
+  @Autowired
+  public RedisTokenBucketRateLimiter(
+      RedisTemplate<String, String> redisTemplate, ObjectProvider<CircuitBreakerStorage> breaker) {
+    this(redisTemplate, breaker.getIfAvailable());
+  }
+
+  RedisTokenBucketRateLimiter(
+      RedisTemplate<String, String> redisTemplate, CircuitBreakerStorage breaker) {
+    this.redisTemplate = redisTemplate;
+    this.breaker = breaker;
+    RedisScripts.preload(redisTemplate, SCRIPT);
+  }
+
+  @Override
+  public RateLimitDecision decide(String clientId, ClientConfiguration clientConfiguration) {
+    List<?> reply =
+        RedisScripts.execute(
+            redisTemplate,
+            breaker,
+            SCRIPT,
+            List.of(ClientKeys.of("tokens", clientId), ClientKeys.of("lastRefill", clientId)),
+            clientConfiguration.getRequestsPerMinute(),
+            clientConfiguration.getBurstCapacity(),
+            TTL_MS);
+    return TokenBucketOperation.decision(RedisScripts.toLongs(reply, 3), clientConfiguration);
+  }
+}
@@ -0,0 +1,128 @@
+package com.vbalan.rate_limiter.service;
+
+import com.vbalan.rate_limiter.model.ClientConfiguration;
+import com.vbalan.rate_limiter.storage.AtomicOperation;
+import java.util.List;
+
+/**
+ * Approximates a sliding window from two fixed windows: the previous window's count is weighted by
+ * how much of it still overlaps the sliding window. State is {@code [windowStart, currentCount,
+ * previousCount]}; the reply is {@code [allowed, currentCount, previousCount, elapsed]}, where
+ * {@code elapsed} is the time since the current window started.
+ */
+class SlidingWindowCounterOperation implements AtomicOperation {
+  private static final String SCRIPT =
+      """
+      local ttl = tonumber(ARGV[1])
+      local now = tonumber(ARGV[2])
+      local window = tonumber(ARGV[3])
+      local limit = tonumber(ARGV[4])
+      local window_start = now - (now % window)
+      local stored_start, current, previous = nil, 0, 0
+      local stored = redis.call('GET', KEYS[1])
+      if stored and #stored == 24 then
+        stored_start, current, previous = struct.unpack('>i8>i8>i8', stored)
+      end
+      if stored_start ~= window_start then
+        if stored_start == window_start - window then
+          previous = current
+        else
+          previous = 0
+        end
+        current = 0
+      end
+      local allowed = 0
+      if previous * (window - (now - window_start)) + (current + 1) * window <= limit * window then
+        current = current + 1
+        allowed = 1
+      end
+      local state = struct.pack('>i8>i8>i8', window_start, current, previous)
+      if ttl > 0 then
+        redis.call('SET', KEYS[1], state, 'PX', ttl)
+      else
+        redis.call('SET', KEYS[1], state)
+      end
+      return {allowed, current, previous, now - window_start}
+      """;
+
+  private final String clientId;
+  private final ClientConfiguration config;
+  private final long now;
+  private final long windowSizeMs;
+  private long[] reply;
+
+  SlidingWindowCounterOperation(
+      String clientId, ClientConfiguration config, long now, long windowSizeMs) {
+    this.clientId = clientId;
+    this.config = config;
+    this.now = now;
+    this.windowSizeMs = windowSizeMs;
+  }
+
+  @Override
+  public List<String> keys() {
+    return List.of(ClientKeys.of("sliding_counter", clientId));
+  }
+
+  @Override
+  public long[] arguments() {
+    return new long[] {now, windowSizeMs, config.getRequestsPerMinute()};
+  }
+
+  @Override
+  public String script() {
+    return SCRIPT;
+  }
+
+  @Override
+  public long[] apply(long[] state) {
+    long windowStart = now - (now % windowSizeMs);
+    if (state == null) {
+      state = new long[3];
+      state[0] = windowStart;
+    } else if (state[0] != windowStart) {
+      state[2] = state[0] == windowStart - windowSizeMs ? state[1] : 0;
+      state[1] = 0;
+      state[0] = windowStart;
+    }
+
+    long previousWeight = windowSizeMs - (now - windowStart);
+    boolean allowed =
+        state[2] * previousWeight + (state[1] + 1) * windowSizeMs
+            <= config.getRequestsPerMinute() * windowSizeMs;
+    if (allowed) {
+      state[1]++;
+    }
+    reply = new long[] {allowed ? 1 : 0, state[1], state[2], now - windowStart};
+    return state;
+  }
+
+  /**
+   * Builds the decision from a {@code [allowed, currentCount, previousCount, elapsed]} reply. The
+   * weighted count is all the engine knows, so a denied client is told to retry once enough of the
+   * previous window has slid out, or at the next window otherwise.
+   */
+  static RateLimitDecision decision(long[] reply, ClientConfiguration config, long windowSizeMs) {
+    long limit = config.getRequestsPerMinute();
+    long current = reply[1];
+    long previous = reply[2];
+    long untilWindowEnd = windowSizeMs - reply[3];
+    long weighted = previous * untilWindowEnd + current * windowSizeMs;
+    long remaining = (limit * windowSizeMs - weighted) / windowSizeMs;
+
+    long untilReset =
+        current > 0 ? untilWindowEnd + windowSizeMs : previous > 0 ? untilWindowEnd : 0;
+    long untilNext = untilWindowEnd;
+    long spare = limit - current - 1;
+    if (previous > 0 && spare >= 0) {
+      // Allowed again once previous * (untilWindowEnd - t) <= spare * windowSizeMs.
+      untilNext = Math.clamp(untilWindowEnd - spare * windowSizeMs / previous, 0, untilWindowEnd);
+    }
+    return new RateLimitDecision(reply[0] == 1, limit, remaining, untilReset, untilNext);
+  }
+
+  @Override
+  public long[] reply() {
+    return reply;
+  }
+}
@@ -0,0 +1,43 @@
+package com.vbalan.rate_limiter.service;
+
+import com.vbalan.rate_limiter.model.ClientConfiguration;
+import com.vbalan.rate_limiter.storage.RateLimitStorage;
+import java.time.Duration;
+import java.util.concurrent.CompletionStage;
+import org.springframework.stereotype.Component;
+
+@Component("sliding-window-counter")
+public class SlidingWindowCounterRateLimiter implements RateLimiter {
+  private final RateLimitStorage storage;
+  private static final long WINDOW_SIZE_MS = 60000;
+
+  public SlidingWindowCounterRateLimiter(RateLimitStorage storage) {
+    this.storage = storage;
+  }
+
+  @Override
+  public RateLimitDecision decide(String clientId, ClientConfiguration config) {
+    long now = System.currentTimeMillis();
+    long[] reply =
+        storage.compute(
+            new SlidingWindowCounterOperation(clientId, config, now, WINDOW_SIZE_MS),
+            Duration.ofMinutes(2));
+    return SlidingWindowCounterOperation.decision(reply, config, WINDOW_SIZE_MS);
+  }
+
+  @Override
+  public CompletionStage<RateLimitDecision> decideAsync(
+      String clientId, ClientConfiguration config) {
+    long now = System.currentTimeMillis();
+    return storage
+        .computeAsync(
+            new SlidingWindowCounterOperation(clientId, config, now, WINDOW_SIZE_MS),
+            Duration.ofMinutes(2))
+        .thenApply(reply -> SlidingWindowCounterOperation.decision(reply, config, WINDOW_SIZE_MS));
+  }
+
+  @Override
+  public boolean isBlocking() {
+    return false;
+  }
+}
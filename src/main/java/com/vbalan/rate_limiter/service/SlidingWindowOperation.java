@@ -0,0 +1,151 @@
+package com.vbalan.rate_limiter.service;
+
+import com.vbalan.rate_limiter.model.ClientConfiguration;
+import com.vbalan.rate_limiter.storage.AtomicOperation;
+import java.util.List;
+
+/**
+ * Drops expired timestamps and records the request if the window has room, in a single storage
+ * call. The reply is {@code [allowed, requestsInWindow, oldestAge, newestAge]}, ages in
+ * milliseconds and zero for an empty window.
+ *
+ * <p>In memory the state is a circular buffer sized to the client's limit, laid out as {@code
+ * [head, size, timestamps...]}: expired entries are evicted by advancing the head, so a decision
+ * never allocates per timestamp. On Redis the log is a packed array of 8-byte timestamps.
+ */
+class SlidingWindowOperation implements AtomicOperation {
+  private static final int HEAD = 0;
+  private static final int SIZE = 1;
+  private static final int DATA = 2;
+  private static final String SCRIPT =
+      """
+      local ttl = tonumber(ARGV[1])
+      local now = tonumber(ARGV[2])
+      local window_start = now - tonumber(ARGV[3])
+      local limit = tonumber(ARGV[4])
+      local timestamps = {}
+      local oldest, newest = now, now
+      local stored = redis.call('GET', KEYS[1])
+      if stored then
+        for offset = 1, #stored - 7, 8 do
+          local timestamp = struct.unpack('>i8', stored, offset)
+          if timestamp > window_start then
+            if #timestamps == 0 then
+              oldest = timestamp
+            end
+            newest = timestamp
+            timestamps[#timestamps + 1] = struct.pack('>i8', timestamp)
+          end
+        end
+      end
+      local allowed = 0
+      if #timestamps < limit then
+        if #timestamps == 0 then
+          oldest = now
+        end
+        newest = now
+        timestamps[#timestamps + 1] = struct.pack('>i8', now)
+        allowed = 1
+      end
+      if #timestamps == 0 then
+        redis.call('DEL', KEYS[1])
+      elseif ttl > 0 then
+        redis.call('SET', KEYS[1], table.concat(timestamps), 'PX', ttl)
+      else
+        redis.call('SET', KEYS[1], table.concat(timestamps))
+      end
+      return {allowed, #timestamps, now - oldest, now - newest}
+      """;
+
+  private final String clientId;
+  private final ClientConfiguration config;
+  private final long now;
+  private final long windowSizeMs;
+  private long[] reply;
+
+  SlidingWindowOperation(
+      String clientId, ClientConfiguration config, long now, long windowSizeMs) {
+    this.clientId = clientId;
+    this.config = config;
+    this.now = now;
+    this.windowSizeMs = windowSizeMs;
+  }
+
+  @Override
+  public List<String> keys() {
+    return List.of(ClientKeys.of("sliding_requests", clientId));
+  }
+
+  @Override
+  public long[] arguments() {
+    return new long[] {now, windowSizeMs, config.getRequestsPerMinute()};
+  }
+
+  @Override
+  public String script() {
+    return SCRIPT;
+  }
+
+  @Override
+  public long[] apply(long[] state) {
+    int limit = config.getRequestsPerMinute();
+    if (state == null || capacity(state) != limit) {
+      state = resize(state, limit);
+    }
+
+    long windowStart = now - windowSizeMs;
+    while (state[SIZE] > 0 && state[DATA + (int) state[HEAD]] <= windowStart) {
+      state[HEAD] = (state[HEAD] + 1) % limit;
+      state[SIZE]--;
+    }
+
+    boolean allowed = state[SIZE] < limit;
+    if (allowed) {
+      state[DATA + (int) ((state[HEAD] + state[SIZE]) % limit)] = now;
+      state[SIZE]++;
+    }
+
+    reply = new long[] {allowed ? 1 : 0, state[SIZE], 0, 0};
+    if (state[SIZE] > 0) {
+      reply[2] = now - state[DATA + (int) state[HEAD]];
+      reply[3] = now - state[DATA + (int) ((state[HEAD] + state[SIZE] - 1) % limit)];
+    }
+    return state[SIZE] > 0 ? state : null;
+  }
+
+  /**
+   * Builds the decision from a {@code [allowed, requestsInWindow, oldestAge, newestAge]} reply: the
+   * oldest entry leaving the window frees the next slot, the newest leaving it empties the window.
+   */
+  static RateLimitDecision decision(long[] reply, ClientConfiguration config, long windowSizeMs) {
+    long limit = config.getRequestsPerMinute();
+    long count = reply[1];
+    long untilEmpty = count == 0 ? 0 : windowSizeMs - reply[3];
+    long untilNext = count == 0 ? windowSizeMs : windowSizeMs - reply[2];
+    return new RateLimitDecision(reply[0] == 1, limit, limit - count, untilEmpty, untilNext);
+  }
+
+  private static int capacity(long[] ring) {
+    return ring.length - DATA;
+  }
+
+  /** Copies the newest entries of {@code ring} into a buffer of the given capacity. */
+  private static long[] resize(long[] ring, int capacity) {
+    long[] resized = new long[DATA + capacity];
+    if (ring != null && capacity > 0) {
+      int size = (int) Math.min(ring[SIZE], capacity);
+      int oldCapacity = capacity(ring);
+      long first = ring[HEAD] + ring[SIZE] - size;
+      for (int i = 0; i < size; i++) {
+        resized[DATA + i] = ring[DATA + (int) ((first + i) % oldCapacity)];
+      }
+      resized[SIZE] = size;
+    }
+    return resized;
+  }
+
+  @Override
+  public long[] reply() {
+    return reply;
+  }
+}
@@ -0,0 +1,93 @@
+package com.vbalan.rate_limiter.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed window request counter for a limit shared by many threads. The counter is split into
+ * stripes on separate cache lines, each owning an equal share of the window's limit. A thread
+ * counts on its home stripe and only moves on to the others once that share is used up, so threads
+ * rarely write the same cache line. The total still never exceeds the limit, and a request is
+ * denied only after every stripe was seen full. Each stripe packs {@code [window:32 | count:32]}
+ * into one long updated by CAS, so a new window resets it without a separate sweep.
+ */
+final class StripedWindowCounter {
+  // Longs per 64-byte cache line, so neighbouring stripes never share one.
+  private static final int PADDING = 8;
+  private static final long COUNT_MASK = 0xFFFFFFFFL;
+
+  private final AtomicLongArray cells;
+  private final int mask;
+
+  StripedWindowCounter(int stripes) {
+    int size = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+    this.cells = new AtomicLongArray(size * PADDING);
+    this.mask = size - 1;
+  }
+
+  /** Counts one request in {@code window} if fewer than {@code limit} were counted so far. */
+  boolean tryAcquire(long limit, long window) {
+    int stripes = mask + 1;
+    int home = probe() & mask;
+    for (int i = 0; i < stripes; i++) {
+      int stripe = (home + i) & mask;
+      long share = limit / stripes + (stripe < limit % stripes ? 1 : 0);
+      if (tryAcquire(stripe * PADDING, share, window)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Uncounts one request of {@code window}, starting from the home stripe. Any stripe will do, as
+   * each one only has to stay within its share. Does nothing once the window has moved on.
+   */
+  void release(long window) {
+    long tag = (window & COUNT_MASK) << 32;
+    int stripes = mask + 1;
+    int home = probe() & mask;
+    for (int i = 0; i < stripes; i++) {
+      int index = ((home + i) & mask) * PADDING;
+      long cell;
+      while ((cell = cells.get(index)) != tag && (cell & ~COUNT_MASK) == tag) {
+        if (cells.compareAndSet(index, cell, cell - 1)) {
+          return;
+        }
+      }
+    }
+  }
+
+  /** Requests counted in {@code window}, summed over all stripes. */
+  long count(long window) {
+    long total = 0;
+    for (int index = 0; index < cells.length(); index += PADDING) {
+      long cell = cells.get(index);
+      if (cell >>> 32 == (window & COUNT_MASK)) {
+        total += cell & COUNT_MASK;
+      }
+    }
+    return total;
+  }
+
+  int stripes() {
+    return mask + 1;
+  }
+
+  private boolean tryAcquire(int index, long share, long window) {
+    long tag = (window & COUNT_MASK) << 32;
+    while (true) {
+      long cell = cells.get(index);
+      long count = (cell & ~COUNT_MASK) == tag ? cell & COUNT_MASK : 0;
+      if (count >= share) {
+        return false;
+      }
+      if (cells.compareAndSet(index, cell, tag | (count + 1))) {
+        return true;
+      }
+    }
+  }
+
+  private static int probe() {
+    return (int) ((Thread.currentThread().threadId() * 0x9E3779B97F4A7C15L) >>> 32);
+  }
+}
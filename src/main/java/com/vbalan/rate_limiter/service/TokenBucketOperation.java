@@ -0,0 +1,114 @@
+package com.vbalan.rate_limiter.service;
+
+import com.vbalan.rate_limiter.model.ClientConfiguration;
+import com.vbalan.rate_limiter.storage.AtomicOperation;
+import java.util.List;
+
+/**
+ * Refills and consumes one token in a single storage call. State is {@code [tokens, lastRefill]};
+ * the reply is {@code [allowed, tokens, millisSinceRefill]}.
+ */
+class TokenBucketOperation implements AtomicOperation {
+  private static final String SCRIPT =
+      """
+      local ttl = tonumber(ARGV[1])
+      local now = tonumber(ARGV[2])
+      local rate = tonumber(ARGV[3])
+      local capacity = tonumber(ARGV[4])
+      local tokens = tonumber(redis.call('GET', KEYS[1]))
+      local last_refill = tonumber(redis.call('GET', KEYS[2]))
+      if last_refill == nil then
+        tokens = capacity
+        last_refill = now
+      else
+        tokens = tokens or 0
+        local tokens_to_add = math.floor((now - last_refill) * rate / 60000)
+        if tokens_to_add > 0 then
+          tokens = math.min(capacity, tokens + tokens_to_add)
+          last_refill = now
+        end
+      end
+      local allowed = 0
+      if tokens > 0 then
+        tokens = tokens - 1
+        allowed = 1
+      end
+      if ttl > 0 then
+        redis.call('SET', KEYS[1], tokens, 'PX', ttl)
+        redis.call('SET', KEYS[2], last_refill, 'PX', ttl)
+      else
+        redis.call('SET', KEYS[1], tokens)
+        redis.call('SET', KEYS[2], last_refill)
+      end
+      return {allowed, tokens, now - last_refill}
+      """;
+
+  private final String clientId;
+  private final ClientConfiguration config;
+  private final long now;
+  private long[] reply;
+
+  TokenBucketOperation(String clientId, ClientConfiguration config, long now) {
+    this.clientId = clientId;
+    this.config = config;
+    this.now = now;
+  }
+
+  @Override
+  public List<String> keys() {
+    return List.of(ClientKeys.of("tokens", clientId), ClientKeys.of("lastRefill", clientId));
+  }
+
+  @Override
+  public long[] arguments() {
+    return new long[] {now, config.getRequestsPerMinute(), config.getBurstCapacity()};
+  }
+
+  @Override
+  public String script() {
+    return SCRIPT;
+  }
+
+  @Override
+  public long[] apply(long[] state) {
+    if (state == null) {
+      state = new long[] {config.getBurstCapacity(), now};
+    } else {
+      long tokensToAdd = ((now - state[1]) * config.getRequestsPerMinute()) / (60 * 1000);
+      if (tokensToAdd > 0) {
+        state[0] = Math.min(config.getBurstCapacity(), state[0] + tokensToAdd);
+        state[1] = now;
+      }
+    }
+
+    boolean allowed = state[0] > 0;
+    if (allowed) {
+      state[0]--;
+    }
+    reply = new long[] {allowed ? 1 : 0, state[0], now - state[1]};
+    return state;
+  }
+
+  /** Builds the decision from a {@code [allowed, tokens, millisSinceRefill]} reply. */
+  static RateLimitDecision decision(long[] reply, ClientConfiguration config) {
+    long capacity = config.getBurstCapacity();
+    long rate = config.getRequestsPerMinute();
+    long tokens = reply[1];
+    if (rate <= 0) {
+      return new RateLimitDecision(reply[0] == 1, capacity, tokens, 0, 60_000);
+    }
+    long sinceRefill = reply[2];
+    long untilFull = tokens >= capacity ? 0 : millisFor(capacity - tokens, rate) - sinceRefill;
+    long untilNext = millisFor(1, rate) - sinceRefill;
+    return new RateLimitDecision(reply[0] == 1, capacity, tokens, untilFull, untilNext);
+  }
+
+  private static long millisFor(long tokens, long ratePerMinute) {
+    return (tokens * 60_000 + ratePerMinute - 1) / ratePerMinute;
+  }
+
+  @Override
+  public long[] reply() {
+    return reply;
+  }
+}
@@ -0,0 +1,32 @@
+package com.vbalan.rate_limiter.storage;
+
+import java.util.List;
+
+/**
+ * A read-modify-write step that a {@link RateLimitStorage} applies atomically in a single call.
+ *
+ * <p>{@link InMemoryStorage} keeps the state of the first key as a {@code long[]} and runs {@link
+ * #apply(long[])} inside one {@code ConcurrentHashMap.compute}. {@link RedisStorage} runs {@link
+ * #script()} server side with {@code KEYS = keys()}, {@code ARGV[1]} the TTL in milliseconds and
+ * {@code ARGV[2..]} the {@link #arguments()} as decimal numbers. Counters are stored as plain
+ * integers and tuples or logs as packed big-endian {@code struct.pack('>i8', ...)} values. Both
+ * paths must produce the same reply.
+ */
+public interface AtomicOperation {
+
+  List<String> keys();
+
+  long[] arguments();
+
+  String script();
+
+  /**
+   * Applies the operation to the current state, {@code null} when the key is absent or expired.
+   * Returns the new state, which may be the same array updated in place, or {@code null} to remove
+   * the key.
+   */
+  long[] apply(long[] state);
+
+  /** The reply of the last {@link #apply(long[])} call, shaped like the script's return value. */
+  long[] reply();
+}
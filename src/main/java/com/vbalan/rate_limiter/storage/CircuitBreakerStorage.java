@@ -0,0 +1,346 @@
+package com.vbalan.rate_limiter.storage;
+
+import com.vbalan.rate_limiter.exception.StorageUnavailableException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.Lifecycle;
+import org.springframework.context.SmartLifecycle;
+
+/**
+ * Stops sending calls to a storage that has become slow or unreachable. The outcomes of the last
+ * {@code windowSize} calls are kept in a ring; a call fails if it throws or takes longer than
+ * {@code slowCallThreshold}. Once the window is full and at least {@code failureRatePercent} of it
+ * failed, the circuit opens: every call throws {@link StorageUnavailableException} at once instead
+ * of waiting for the command timeout, so callers can fall back without stalling.
+ *
+ * <p>While open, a background probe reads one key every {@code probeInterval}. After {@value
+ * #PROBE_SUCCESSES} fast probes in a row the circuit closes with an empty window. Calls that fail
+ * while it is closed are rethrown as {@link StorageUnavailableException} with the original cause.
+ */
+@Slf4j
+public class CircuitBreakerStorage implements RateLimitStorage, SmartLifecycle {
+  static final int PROBE_SUCCESSES = 3;
+  static final String PROBE_KEY = "circuit-breaker:probe";
+
+  private final RateLimitStorage delegate;
+  private final long slowCallNanos;
+  private final int failureRatePercent;
+  private final int windowSize;
+  private final Duration probeInterval;
+  private final LongSupplier nanoTime;
+  private final AtomicIntegerArray outcomes;
+  private final AtomicLong calls = new AtomicLong();
+  private final AtomicInteger failures = new AtomicInteger();
+  private volatile boolean open;
+  private int probeSuccesses;
+  private ScheduledExecutorService prober;
+
+  public CircuitBreakerStorage(
+      RateLimitStorage delegate,
+      Duration slowCallThreshold,
+      int failureRatePercent,
+      int windowSize,
+      Duration probeInterval) {
+    this(
+        delegate,
+        slowCallThreshold,
+        failureRatePercent,
+        windowSize,
+        probeInterval,
+        System::nanoTime);
+  }
+
+  CircuitBreakerStorage(
+      RateLimitStorage delegate,
+      Duration slowCallThreshold,
+      int failureRatePercent,
+      int windowSize,
+      Duration probeInterval,
+      LongSupplier nanoTime) {
+    if (windowSize <= 0) {
+      throw new IllegalArgumentException("windowSize must be positive");
+    }
+    if (failureRatePercent <= 0 || failureRatePercent > 100) {
+      throw new IllegalArgumentException("failureRatePercent must be in 1..100");
+    }
+    this.delegate = delegate;
+    this.slowCallNanos = slowCallThreshold.toNanos();
+    this.failureRatePercent = failureRatePercent;
+    this.windowSize = windowSize;
+    this.probeInterval = probeInterval;
+    this.nanoTime = nanoTime;
+    this.outcomes = new AtomicIntegerArray(windowSize);
+  }
+
+  public boolean isOpen() {
+    return open;
+  }
+
+  /**
+   * Runs a Redis call that does not go through this storage, such as a script engine's, under the
+   * same circuit: it is rejected while the circuit is open, and its failures and slow replies count
+   * towards opening it.
+   */
+  public <T> T guard(Supplier<T> call) {
+    long start = acquire();
+    T value;
+    try {
+      value = call.get();
+    } catch (RuntimeException e) {
+      throw failed(e);
+    }
+    release(start);
+    return value;
+  }
+
+  @Override
+  public void expire(String key, Duration duration) {
+    long start = acquire();
+    try {
+      delegate.expire(key, duration);
+    } catch (RuntimeException e) {
+      throw failed(e);
+    }
+    release(start);
+  }
+
+  @Override
+  public Long get(String key) {
+    long start = acquire();
+    Long value;
+    try {
+      value = delegate.get(key);
+    } catch (RuntimeException e) {
+      throw failed(e);
+    }
+    release(start);
+    return value;
+  }
+
+  @Override
+  public void set(String key, String value, Duration duration) {
+    long start = acquire();
+    try {
+      delegate.set(key, value, duration);
+    } catch (RuntimeException e) {
+      throw failed(e);
+    }
+    release(start);
+  }
+
+  @Override
+  public void delete(String key) {
+    long start = acquire();
+    try {
+      delegate.delete(key);
+    } catch (RuntimeException e) {
+      throw failed(e);
+    }
+    release(start);
+  }
+
+  @Override
+  public String getString(String key) {
+    long start = acquire();
+    String value;
+    try {
+      value = delegate.getString(key);
+    } catch (RuntimeException e) {
+      throw failed(e);
+    }
+    release(start);
+    return value;
+  }
+
+  @Override
+  public long increment(String key, long delta, Duration duration) {
+    long start = acquire();
+    long value;
+    try {
+      value = delegate.increment(key, delta, duration);
+    } catch (RuntimeException e) {
+      throw failed(e);
+    }
+    release(start);
+    return value;
+  }
+
+  @Override
+  public long[] compute(AtomicOperation operation, Duration duration) {
+    long start = acquire();
+    long[] reply;
+    try {
+      reply = delegate.compute(operation, duration);
+    } catch (RuntimeException e) {
+      throw failed(e);
+    }
+    release(start);
+    return reply;
+  }
+
+  @Override
+  public CompletionStage<Long> incrementAsync(String key, long delta, Duration duration) {
+    if (open) {
+      return CompletableFuture.failedFuture(rejected());
+    }
+    long start = nanoTime.getAsLong();
+    return delegate
+        .incrementAsync(key, delta, duration)
+        .handle(
+            (value, error) -> {
+              if (error != null) {
+                throw failed(error);
+              }
+              release(start);
+              return value;
+            });
+  }
+
+  @Override
+  public CompletionStage<long[]> computeAsync(AtomicOperation operation, Duration duration) {
+    if (open) {
+      return CompletableFuture.failedFuture(rejected());
+    }
+    long start = nanoTime.getAsLong();
+    return delegate
+        .computeAsync(operation, duration)
+        .handle(
+            (reply, error) -> {
+              if (error != null) {
+                throw failed(error);
+              }
+              release(start);
+              return reply;
+            });
+  }
+
+  /**
+   * Starts the delegate as well when it has a lifecycle, since shards are not beans of their own.
+   */
+  @Override
+  public synchronized void start() {
+    if (delegate instanceof Lifecycle lifecycle) {
+      lifecycle.start();
+    }
+    if (prober == null) {
+      prober =
+          Executors.newSingleThreadScheduledExecutor(
+              task -> {
+                Thread thread = new Thread(task, "storage-circuit-breaker-probe");
+                thread.setDaemon(true);
+                return thread;
+              });
+      long interval = probeInterval.toMillis();
+      prober.scheduleWithFixedDelay(this::probe, interval, interval, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @Override
+  public synchronized void stop() {
+    if (prober != null) {
+      prober.shutdownNow();
+      prober = null;
+    }
+    if (delegate instanceof Lifecycle lifecycle) {
+      lifecycle.stop();
+    }
+  }
+
+  @Override
+  public synchronized boolean isRunning() {
+    return prober != null;
+  }
+
+  /** Runs on the probe thread only; does nothing while the circuit is closed. */
+  void probe() {
+    if (!open) {
+      return;
+    }
+    long start = nanoTime.getAsLong();
+    boolean healthy;
+    try {
+      delegate.get(PROBE_KEY);
+      healthy = nanoTime.getAsLong() - start <= slowCallNanos;
+    } catch (RuntimeException e) {
+      healthy = false;
+    }
+    probeSuccesses = healthy ? probeSuccesses + 1 : 0;
+    if (probeSuccesses >= PROBE_SUCCESSES) {
+      probeSuccesses = 0;
+      close();
+    }
+  }
+
+  private long acquire() {
+    if (open) {
+      throw rejected();
+    }
+    return nanoTime.getAsLong();
+  }
+
+  private void release(long start) {
+    record(nanoTime.getAsLong() - start > slowCallNanos);
+  }
+
+  private StorageUnavailableException failed(Throwable error) {
+    record(true);
+    Throwable cause =
+        error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    return cause instanceof StorageUnavailableException unavailable
+        ? unavailable
+        : new StorageUnavailableException("Rate limit storage call failed", cause);
+  }
+
+  private static StorageUnavailableException rejected() {
+    return new StorageUnavailableException("Rate limit storage circuit is open");
+  }
+
+  /** Replaces the oldest outcome in the ring; a success over a success touches nothing shared. */
+  private void record(boolean failed) {
+    long call = calls.getAndIncrement();
+    int previous = outcomes.getAndSet((int) (call % windowSize), failed ? 1 : 0);
+    if (!failed) {
+      if (previous == 1) {
+        failures.decrementAndGet();
+      }
+      return;
+    }
+    int failing = previous == 0 ? failures.incrementAndGet() : failures.get();
+    if (call + 1 >= windowSize && failing * 100L >= (long) failureRatePercent * windowSize) {
+      trip();
+    }
+  }
+
+  private synchronized void trip() {
+    if (!open) {
+      open = true;
+      log.warn(
+          "Rate limit storage circuit opened: {} of the last {} calls failed or took longer than"
+              + " {} ms",
+          failures.get(),
+          windowSize,
+          TimeUnit.NANOSECONDS.toMillis(slowCallNanos));
+    }
+  }
+
+  private synchronized void close() {
+    for (int i = 0; i < windowSize; i++) {
+      outcomes.set(i, 0);
+    }
+    failures.set(0);
+    calls.set(0);
+    open = false;
+    log.info("Rate limit storage circuit closed after {} healthy probes", PROBE_SUCCESSES);
+  }
+}
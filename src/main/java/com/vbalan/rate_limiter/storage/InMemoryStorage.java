@@ -1,79 +1,288 @@
 package com.vbalan.rate_limiter.storage;
 
-import com.vbalan.rate_limiter.exception.StorageInitializationException;
 import java.time.Duration;
-import java.time.LocalDateTime;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import org.springframework.context.SmartLifecycle;
 
-public class InMemoryStorage implements RateLimitStorage {
-  private final ConcurrentHashMap<String, String> storage = new ConcurrentHashMap<>();
-  private final ConcurrentHashMap<String, LocalDateTime> expirations = new ConcurrentHashMap<>();
+/**
+ * Keeps values in their native form: strings as given, counters as {@link AtomicLong} and numeric
+ * state as {@code long[]}, so limiters never pay for string conversion in memory.
+ *
+ * <p>Deadlines are monotonic nanoseconds kept on the entry itself and checked on every read; a
+ * {@link TimingWheel} reclaims expired entries in the background, so a cleanup pass only touches
+ * keys that are actually due.
+ *
+ * <p>The reaper runs while the storage is started as a Spring lifecycle bean and visits at most
+ * {@code sweepBatchSize} entries per tick. Past {@code maxEntries} keys, writes evict the entries
+ * nearest to expiry; since limiters refresh the TTL on every request, those are the clients that
+ * have been idle longest. Keys without an expiry are never evicted.
+ */
+public class InMemoryStorage implements RateLimitStorage, SmartLifecycle {
+  public static final int DEFAULT_MAX_ENTRIES = 1_000_000;
+  public static final int DEFAULT_SWEEP_BATCH_SIZE = 10_000;
+  private static final long TICK_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  private final ConcurrentHashMap<String, Entry> storage = new ConcurrentHashMap<>();
+  private final TimingWheel<Entry> expirations = new TimingWheel<>(TICK_NANOS);
+  private final int maxEntries;
+  private final int sweepBatchSize;
+  private final LongSupplier nanoTime;
+  private final long origin;
+  private ScheduledExecutorService reaper;
 
   public InMemoryStorage() {
-    try (ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1)) {
-      scheduler.scheduleAtFixedRate(this::cleanupExpiredKeys, 1, 1, TimeUnit.MINUTES);
-    } catch (Exception e) {
-      throw new StorageInitializationException("Unable to initialize in memory storage");
+    this(DEFAULT_MAX_ENTRIES, DEFAULT_SWEEP_BATCH_SIZE);
+  }
+
+  public InMemoryStorage(int maxEntries, int sweepBatchSize) {
+    this(maxEntries, sweepBatchSize, System::nanoTime);
+  }
+
+  InMemoryStorage(int maxEntries, int sweepBatchSize, LongSupplier nanoTime) {
+    if (maxEntries <= 0 || sweepBatchSize <= 0) {
+      throw new IllegalArgumentException("maxEntries and sweepBatchSize must be positive");
+    }
+    this.maxEntries = maxEntries;
+    this.sweepBatchSize = sweepBatchSize;
+    this.nanoTime = nanoTime;
+    this.origin = nanoTime.getAsLong();
+  }
+
+  @Override
+  public synchronized void start() {
+    if (reaper == null) {
+      reaper =
+          Executors.newSingleThreadScheduledExecutor(
+              task -> {
+                Thread thread = new Thread(task, "in-memory-storage-reaper");
+                thread.setDaemon(true);
+                return thread;
+              });
+      reaper.scheduleWithFixedDelay(
+          this::cleanupExpiredKeys, TICK_NANOS, TICK_NANOS, TimeUnit.NANOSECONDS);
     }
   }
 
+  @Override
+  public synchronized void stop() {
+    if (reaper != null) {
+      reaper.shutdown();
+      reaper = null;
+    }
+  }
+
+  @Override
+  public synchronized boolean isRunning() {
+    return reaper != null;
+  }
+
   @Override
   public void expire(String key, Duration duration) {
-    expirations.put(key, LocalDateTime.now().plus(duration));
+    long now = now();
+    storage.computeIfPresent(
+        key,
+        (k, entry) -> {
+          if (entry.isExpired(now)) {
+            expirations.cancel(entry);
+            return null;
+          }
+          expirations.schedule(entry, now + duration.toNanos());
+          return entry;
+        });
   }
 
   @Override
   public Long get(String key) {
-    if (isExpired(key)) {
-      delete(key);
-      return null;
-    }
-    String value = storage.get(key);
-    return value != null ? Long.parseLong(value) : null;
+    Object value = value(key);
+    return switch (value) {
+      case null -> null;
+      case AtomicLong counter -> counter.get();
+      case long[] values -> values.length > 0 ? values[0] : null;
+      default -> Long.parseLong(value.toString());
+    };
   }
 
   @Override
   public void set(String key, String value, Duration duration) {
-    storage.put(key, value);
-    if (duration != null) {
-      expire(key, duration);
-    }
+    put(key, value, duration);
   }
 
   @Override
   public void delete(String key) {
-    storage.remove(key);
-    expirations.remove(key);
+    Entry entry = storage.remove(key);
+    if (entry != null) {
+      expirations.cancel(entry);
+    }
   }
 
   @Override
   public String getString(String key) {
-    if (isExpired(key)) {
-      delete(key);
+    Object value = value(key);
+    return switch (value) {
+      case null -> null;
+      case AtomicLong counter -> String.valueOf(counter.get());
+      case long[] values -> join(values);
+      default -> value.toString();
+    };
+  }
+
+  @Override
+  public long increment(String key, long delta, Duration duration) {
+    if (value(key) instanceof AtomicLong counter) {
+      return counter.addAndGet(delta);
+    }
+    long now = now();
+    Entry counter =
+        storage.compute(
+            key,
+            (k, entry) -> {
+              entry = live(k, entry, now);
+              if (!(entry.value instanceof AtomicLong)) {
+                long initial = entry.value instanceof String s ? Long.parseLong(s) : 0;
+                entry.value = new AtomicLong(initial);
+                if (duration != null) {
+                  expirations.schedule(entry, now + duration.toNanos());
+                } else {
+                  expirations.cancel(entry);
+                }
+              }
+              return entry;
+            });
+    evictIfFull();
+    return ((AtomicLong) counter.value).addAndGet(delta);
+  }
+
+  @Override
+  public long[] compute(AtomicOperation operation, Duration duration) {
+    long now = now();
+    storage.compute(
+        operation.keys().getFirst(),
+        (k, entry) -> {
+          long[] state =
+              entry != null && !entry.isExpired(now) && entry.value instanceof long[] s ? s : null;
+          long[] next = operation.apply(state);
+          if (next == null) {
+            if (entry != null) {
+              expirations.cancel(entry);
+            }
+            return null;
+          }
+          entry = live(k, entry, now);
+          entry.value = next;
+          if (duration != null) {
+            expirations.schedule(entry, now + duration.toNanos());
+          }
+          return entry;
+        });
+    evictIfFull();
+    return operation.reply();
+  }
+
+  int size() {
+    return storage.size();
+  }
+
+  void cleanupExpiredKeys() {
+    long now = now();
+    for (Entry expired : expirations.advance(now, sweepBatchSize)) {
+      storage.computeIfPresent(
+          expired.key,
+          (k, entry) -> {
+            if (entry != expired) {
+              return entry;
+            }
+            if (entry.isExpired(now)) {
+              return null;
+            }
+            // The deadline was pushed while the wheel was handing the entry out.
+            expirations.schedule(entry, entry.deadline());
+            return entry;
+          });
+    }
+  }
+
+  private void put(String key, Object value, Duration duration) {
+    long now = now();
+    storage.compute(
+        key,
+        (k, entry) -> {
+          entry = live(k, entry, now);
+          entry.value = value;
+          if (duration != null) {
+            expirations.schedule(entry, now + duration.toNanos());
+          }
+          return entry;
+        });
+    evictIfFull();
+  }
+
+  private void evictIfFull() {
+    long excess = storage.mappingCount() - maxEntries;
+    if (excess <= 0) {
+      return;
+    }
+    for (Entry entry : expirations.evict((int) Math.min(excess, sweepBatchSize))) {
+      storage.remove(entry.key, entry);
+    }
+  }
+
+  private Object value(String key) {
+    Entry entry = storage.get(key);
+    if (entry == null) {
       return null;
     }
-    return storage.get(key);
+    long now = now();
+    if (entry.isExpired(now)) {
+      storage.computeIfPresent(
+          key,
+          (k, current) -> {
+            if (!current.isExpired(now)) {
+              return current;
+            }
+            expirations.cancel(current);
+            return null;
+          });
+      return null;
+    }
+    return entry.value;
   }
 
-  private boolean isExpired(String key) {
-    LocalDateTime expiration = expirations.get(key);
-    return expiration != null && LocalDateTime.now().isAfter(expiration);
+  /** Returns the entry to write into, recycling one whose deadline has already passed. */
+  private Entry live(String key, Entry entry, long now) {
+    if (entry == null) {
+      return new Entry(key);
+    }
+    if (entry.isExpired(now)) {
+      expirations.cancel(entry);
+      entry.value = null;
+    }
+    return entry;
   }
 
-  private void cleanupExpiredKeys() {
-    LocalDateTime now = LocalDateTime.now();
-    expirations
-        .entrySet()
-        .removeIf(
-            entry -> {
-              if (now.isAfter(entry.getValue())) {
-                storage.remove(entry.getKey());
-                return true;
-              }
-              return false;
-            });
+  private long now() {
+    return nanoTime.getAsLong() - origin;
+  }
+
+  private static String join(long[] values) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < values.length; i++) {
+      if (i > 0) sb.append(",");
+      sb.append(values[i]);
+    }
+    return sb.toString();
+  }
+
+  private static final class Entry extends TimingWheel.Node {
+    private final String key;
+    private volatile Object value;
+
+    private Entry(String key) {
+      this.key = key;
+    }
   }
 }
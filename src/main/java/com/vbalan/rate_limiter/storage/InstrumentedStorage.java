@@ -0,0 +1,136 @@
+package com.vbalan.rate_limiter.storage;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the latency of every storage call in a per-operation histogram. Timers are registered
+ * once at construction so the hot path never builds tags or looks up meters.
+ */
+public class InstrumentedStorage implements RateLimitStorage {
+  static final String OPERATIONS = "rate.limit.storage.operations";
+
+  private final RateLimitStorage delegate;
+  private final Timer expire;
+  private final Timer get;
+  private final Timer set;
+  private final Timer delete;
+  private final Timer getString;
+  private final Timer increment;
+  private final Timer compute;
+
+  public InstrumentedStorage(RateLimitStorage delegate, MeterRegistry registry, String backend) {
+    this.delegate = delegate;
+    this.expire = timer(registry, backend, "expire");
+    this.get = timer(registry, backend, "get");
+    this.set = timer(registry, backend, "set");
+    this.delete = timer(registry, backend, "delete");
+    this.getString = timer(registry, backend, "getString");
+    this.increment = timer(registry, backend, "increment");
+    this.compute = timer(registry, backend, "compute");
+  }
+
+  @Override
+  public void expire(String key, Duration duration) {
+    long start = System.nanoTime();
+    try {
+      delegate.expire(key, duration);
+    } finally {
+      record(expire, start);
+    }
+  }
+
+  @Override
+  public Long get(String key) {
+    long start = System.nanoTime();
+    try {
+      return delegate.get(key);
+    } finally {
+      record(get, start);
+    }
+  }
+
+  @Override
+  public void set(String key, String value, Duration duration) {
+    long start = System.nanoTime();
+    try {
+      delegate.set(key, value, duration);
+    } finally {
+      record(set, start);
+    }
+  }
+
+  @Override
+  public void delete(String key) {
+    long start = System.nanoTime();
+    try {
+      delegate.delete(key);
+    } finally {
+      record(delete, start);
+    }
+  }
+
+  @Override
+  public String getString(String key) {
+    long start = System.nanoTime();
+    try {
+      return delegate.getString(key);
+    } finally {
+      record(getString, start);
+    }
+  }
+
+  @Override
+  public long increment(String key, long delta, Duration duration) {
+    long start = System.nanoTime();
+    try {
+      return delegate.increment(key, delta, duration);
+    } finally {
+      record(increment, start);
+    }
+  }
+
+  @Override
+  public long[] compute(AtomicOperation operation, Duration duration) {
+    long start = System.nanoTime();
+    try {
+      return delegate.compute(operation, duration);
+    } finally {
+      record(compute, start);
+    }
+  }
+
+  @Override
+  public CompletionStage<Long> incrementAsync(String key, long delta, Duration duration) {
+    long start = System.nanoTime();
+    return delegate
+        .incrementAsync(key, delta, duration)
+        .whenComplete((value, error) -> record(increment, start));
+  }
+
+  @Override
+  public CompletionStage<long[]> computeAsync(AtomicOperation operation, Duration duration) {
+    long start = System.nanoTime();
+    return delegate
+        .computeAsync(operation, duration)
+        .whenComplete((reply, error) -> record(compute, start));
+  }
+
+  private static void record(Timer timer, long start) {
+    timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+  }
+
+  private static Timer timer(MeterRegistry registry, String backend, String operation) {
+    return Timer.builder(OPERATIONS)
+        .description("Latency of rate limit storage operations")
+        .tag("backend", backend)
+        .tag("operation", operation)
+        .publishPercentileHistogram()
+        .minimumExpectedValue(Duration.ofNanos(1_000))
+        .maximumExpectedValue(Duration.ofSeconds(1))
+        .register(registry);
+  }
+}
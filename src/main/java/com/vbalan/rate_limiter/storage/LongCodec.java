@@ -0,0 +1,31 @@
+package com.vbalan.rate_limiter.storage;
+
+/**
+ * Byte encoding for numeric arguments sent to Redis. Script arguments travel as ASCII digits
+ * written straight into a byte array, so Lua's {@code tonumber} reads them without a {@code String}
+ * ever being built in Java.
+ */
+public final class LongCodec {
+  private LongCodec() {}
+
+  public static byte[] toAscii(long value) {
+    if (value == Long.MIN_VALUE) {
+      return "-9223372036854775808".getBytes();
+    }
+    boolean negative = value < 0;
+    long remaining = negative ? -value : value;
+    int length = negative ? 2 : 1;
+    for (long v = remaining; v >= 10; v /= 10) {
+      length++;
+    }
+    byte[] bytes = new byte[length];
+    for (int i = length - 1; i >= (negative ? 1 : 0); i--) {
+      bytes[i] = (byte) ('0' + remaining % 10);
+      remaining /= 10;
+    }
+    if (negative) {
+      bytes[0] = '-';
+    }
+    return bytes;
+  }
+}
@@ -1,6 +1,8 @@
 package com.vbalan.rate_limiter.storage;
 
 import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 public interface RateLimitStorage {
   void expire(String key, Duration duration);
@@ -12,4 +14,30 @@ public interface RateLimitStorage {
   void delete(String key);
 
   String getString(String key);
+
+  /** Adds {@code delta} to a counter, creating it at zero; the duration applies on creation. */
+  long increment(String key, long delta, Duration duration);
+
+  long[] compute(AtomicOperation operation, Duration duration);
+
+  /**
+   * Non-blocking {@link #increment}. Backends without asynchronous I/O, such as the in-memory one,
+   * run the call on the caller's thread and return a completed stage.
+   */
+  default CompletionStage<Long> incrementAsync(String key, long delta, Duration duration) {
+    try {
+      return CompletableFuture.completedFuture(increment(key, delta, duration));
+    } catch (RuntimeException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  /** Non-blocking {@link #compute}; see {@link #incrementAsync} for backends without async I/O. */
+  default CompletionStage<long[]> computeAsync(AtomicOperation operation, Duration duration) {
+    try {
+      return CompletableFuture.completedFuture(compute(operation, duration));
+    } catch (RuntimeException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
 }
@@ -0,0 +1,257 @@
+package com.vbalan.rate_limiter.storage;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisPipelineException;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+/**
+ * Coalesces script calls from concurrent request threads into Redis pipelines. A single flusher
+ * thread takes the first pending call, keeps collecting for up to {@code window} or until {@code
+ * maxBatchSize} calls are queued, and sends them as one pipeline of EVALSHA commands; every caller
+ * gets its own reply through its future.
+ *
+ * <p>Each script is loaded with SCRIPT LOAD the first time it is batched. A failed pipeline still
+ * reports one result per command, so each caller gets its own reply or error. Only the commands
+ * that hit NOSCRIPT after the script cache was flushed are resent, once, after reloading their
+ * scripts; the rest already ran. While the batcher is stopped, submissions run directly through
+ * {@link RedisTemplate#execute(RedisScript, RedisSerializer, RedisSerializer, List, Object...)}.
+ */
+@Slf4j
+class RedisBatcher {
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static final RedisSerializer<Object> RAW = (RedisSerializer) RedisSerializer.byteArray();
+
+  private final RedisTemplate<String, String> redisTemplate;
+  private final long windowNanos;
+  private final int maxBatchSize;
+  private final BlockingQueue<Command> pending;
+  // SHAs known to be in the Redis script cache; only touched by the flusher thread.
+  private final Set<String> loaded = new HashSet<>();
+  private volatile Thread flusher;
+
+  RedisBatcher(RedisTemplate<String, String> redisTemplate, Duration window, int maxBatchSize) {
+    this(redisTemplate, window, maxBatchSize, new LinkedBlockingQueue<>());
+  }
+
+  RedisBatcher(
+      RedisTemplate<String, String> redisTemplate,
+      Duration window,
+      int maxBatchSize,
+      BlockingQueue<Command> pending) {
+    if (maxBatchSize <= 0) {
+      throw new IllegalArgumentException("maxBatchSize must be positive");
+    }
+    this.redisTemplate = redisTemplate;
+    this.windowNanos = window.toNanos();
+    this.maxBatchSize = maxBatchSize;
+    this.pending = pending;
+  }
+
+  CompletableFuture<Object> submit(RedisScript<?> script, List<String> keys, Object[] args) {
+    Command command = new Command(script, keys, args, new CompletableFuture<>());
+    if (flusher == null) {
+      executeDirectly(command);
+    } else {
+      pending.add(command);
+      // The flusher may have stopped and drained the queue before the add landed. Whoever removes
+      // the command from the queue runs it, so it runs exactly once.
+      if (flusher == null && pending.remove(command)) {
+        executeDirectly(command);
+      }
+    }
+    return command.result;
+  }
+
+  synchronized void start() {
+    if (flusher == null) {
+      // Publish the thread before it runs, since the loop exits once it is no longer the flusher.
+      flusher = Thread.ofPlatform().name("redis-batcher").daemon().unstarted(this::run);
+      flusher.start();
+    }
+  }
+
+  synchronized void stop() {
+    Thread thread = flusher;
+    if (thread != null) {
+      flusher = null;
+      thread.interrupt();
+    }
+  }
+
+  boolean isRunning() {
+    return flusher != null;
+  }
+
+  private void run() {
+    List<Command> batch = new ArrayList<>(maxBatchSize);
+    try {
+      while (flusher == Thread.currentThread()) {
+        Command first = pending.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        collect(batch);
+        flush(batch);
+        batch.clear();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      // Whatever is still queued was submitted before stop; do not leave callers hanging. Commands
+      // of a batch that was already sent are done and must not run twice. Lettuce fails every call
+      // on an interrupted thread, so the flag is cleared for the drain and restored afterwards.
+      boolean interrupted = Thread.interrupted();
+      for (Command command : batch) {
+        if (!command.result.isDone()) {
+          executeDirectly(command);
+        }
+      }
+      Command command;
+      while ((command = pending.poll()) != null) {
+        executeDirectly(command);
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private void collect(List<Command> batch) throws InterruptedException {
+    long deadline = System.nanoTime() + windowNanos;
+    while (batch.size() < maxBatchSize) {
+      Command next = pending.poll();
+      if (next == null) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          return;
+        }
+        next = pending.poll(remaining, TimeUnit.NANOSECONDS);
+        if (next == null) {
+          return;
+        }
+      }
+      batch.add(next);
+    }
+  }
+
+  void flush(List<Command> batch) {
+    List<Command> missing = send(batch, true);
+    if (!missing.isEmpty()) {
+      log.debug("{} scripts missing from Redis, reloading", missing.size());
+      loaded.clear();
+      send(missing, false);
+    }
+  }
+
+  /**
+   * Sends one pipeline and completes each command from its own reply. With {@code keepNoScript},
+   * the commands that failed with NOSCRIPT are left pending and returned, since only those did not
+   * run; the others ran whether or not they failed and must not be sent again.
+   */
+  private List<Command> send(List<Command> batch, boolean keepNoScript) {
+    List<Object> replies;
+    try {
+      replies = pipeline(batch);
+    } catch (RedisPipelineException e) {
+      replies = e.getPipelineResult();
+      if (replies.size() != batch.size()) {
+        batch.forEach(command -> command.result.completeExceptionally(e));
+        return List.of();
+      }
+    } catch (RuntimeException e) {
+      batch.forEach(command -> command.result.completeExceptionally(e));
+      return List.of();
+    }
+
+    List<Command> missing = new ArrayList<>();
+    for (int i = 0; i < batch.size(); i++) {
+      Command command = batch.get(i);
+      Object reply = replies.get(i);
+      if (!(reply instanceof Throwable failure)) {
+        command.result.complete(reply);
+      } else if (keepNoScript && isNoScript(failure)) {
+        missing.add(command);
+      } else {
+        command.result.completeExceptionally(failure);
+      }
+    }
+    return missing;
+  }
+
+  private List<Object> pipeline(List<Command> batch) {
+    for (Command command : batch) {
+      RedisScript<?> script = command.script;
+      if (loaded.add(script.getSha1())) {
+        byte[] source = script.getScriptAsString().getBytes(StandardCharsets.UTF_8);
+        redisTemplate.execute(
+            (RedisCallback<String>)
+                connection -> connection.scriptingCommands().scriptLoad(source));
+      }
+    }
+    return redisTemplate.executePipelined(
+        (RedisCallback<Object>)
+            connection -> {
+              for (Command command : batch) {
+                connection
+                    .scriptingCommands()
+                    .evalSha(
+                        command.script.getSha1(),
+                        ReturnType.fromJavaType(command.script.getResultType()),
+                        command.keys.size(),
+                        command.keysAndArgs());
+              }
+              return null;
+            },
+        RAW);
+  }
+
+  private static boolean isNoScript(Throwable e) {
+    for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+      if (cause.getMessage() != null && cause.getMessage().contains("NOSCRIPT")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @SuppressWarnings("unchecked")
+  private void executeDirectly(Command command) {
+    try {
+      command.result.complete(
+          redisTemplate.execute(
+              (RedisScript<Object>) command.script, RAW, RAW, command.keys, command.args));
+    } catch (RuntimeException e) {
+      command.result.completeExceptionally(e);
+    }
+  }
+
+  record Command(
+      RedisScript<?> script, List<String> keys, Object[] args, CompletableFuture<Object> result) {
+
+    byte[][] keysAndArgs() {
+      byte[][] keysAndArgs = new byte[keys.size() + args.length][];
+      for (int i = 0; i < keys.size(); i++) {
+        keysAndArgs[i] = keys.get(i).getBytes(StandardCharsets.UTF_8);
+      }
+      for (int i = 0; i < args.length; i++) {
+        keysAndArgs[keys.size() + i] = (byte[]) args[i];
+      }
+      return keysAndArgs;
+    }
+  }
+}
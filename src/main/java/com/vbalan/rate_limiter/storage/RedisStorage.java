@@ -1,12 +1,106 @@
 package com.vbalan.rate_limiter.storage;
 
 import java.time.Duration;
-import lombok.RequiredArgsConstructor;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisElementReader;
+import org.springframework.data.redis.serializer.RedisElementWriter;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+/**
+ * Counters are kept as Redis integers, which Redis stores natively, while pairs and logs are packed
+ * binary values. Script arguments are sent as raw bytes, so no {@code String} is built per call.
+ *
+ * <p>With batching enabled, {@link #increment} and {@link #compute} calls from concurrent requests
+ * are sent to Redis together as one pipeline; see {@link RedisBatcher}. Given a reactive template,
+ * the async variants run the same scripts on Lettuce's non-blocking connection, which already
+ * multiplexes concurrent commands, so they bypass the batcher.
+ */
+public class RedisStorage implements RateLimitStorage, SmartLifecycle {
+  private static final RedisScript<Long> INCREMENT_SCRIPT =
+      RedisScript.of(
+          """
+          local value = redis.call('INCRBY', KEYS[1], ARGV[2])
+          if tonumber(ARGV[1]) > 0 and redis.call('PTTL', KEYS[1]) == -1 then
+            redis.call('PEXPIRE', KEYS[1], ARGV[1])
+          end
+          return value
+          """,
+          Long.class);
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static final RedisSerializer<Object> REPLY_SERIALIZER =
+      (RedisSerializer) RedisSerializer.byteArray();
+
+  private static final RedisElementWriter<byte[]> ARGS_WRITER =
+      RedisElementWriter.from(RedisSerializer.byteArray());
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static final RedisElementReader<Object> REPLY_READER =
+      (RedisElementReader) RedisElementReader.from(RedisSerializer.byteArray());
 
-@RequiredArgsConstructor
-public class RedisStorage implements RateLimitStorage {
   private final RedisTemplate<String, String> redisTemplate;
+  private final ReactiveRedisTemplate<String, String> reactiveTemplate;
+  private final RedisBatcher batcher;
+  private final long timeoutNanos;
+  private final Map<String, RedisScript<List>> scripts = new ConcurrentHashMap<>();
+
+  public RedisStorage(RedisTemplate<String, String> redisTemplate) {
+    this(redisTemplate, null, null, null);
+  }
+
+  public RedisStorage(
+      RedisTemplate<String, String> redisTemplate,
+      ReactiveRedisTemplate<String, String> reactiveTemplate) {
+    this(redisTemplate, reactiveTemplate, null, null);
+  }
+
+  /**
+   * Batches script calls for up to {@code window} or {@code maxBatchSize} calls per pipeline. A
+   * caller waits at most {@code timeout} for its reply, like an unbatched command would, so the
+   * timeout must be positive.
+   */
+  public RedisStorage(
+      RedisTemplate<String, String> redisTemplate,
+      ReactiveRedisTemplate<String, String> reactiveTemplate,
+      Duration window,
+      int maxBatchSize,
+      Duration timeout) {
+    this(
+        redisTemplate,
+        reactiveTemplate,
+        new RedisBatcher(redisTemplate, window, maxBatchSize),
+        requirePositive(timeout));
+  }
+
+  private RedisStorage(
+      RedisTemplate<String, String> redisTemplate,
+      ReactiveRedisTemplate<String, String> reactiveTemplate,
+      RedisBatcher batcher,
+      Duration timeout) {
+    this.redisTemplate = redisTemplate;
+    this.reactiveTemplate = reactiveTemplate;
+    this.batcher = batcher;
+    this.timeoutNanos = timeout != null ? timeout.toNanos() : 0;
+  }
+
+  private static Duration requirePositive(Duration timeout) {
+    if (timeout == null || !timeout.isPositive()) {
+      throw new IllegalArgumentException("Batched call timeout must be positive: " + timeout);
+    }
+    return timeout;
+  }
 
   @Override
   public void expire(String key, Duration duration) {
@@ -37,4 +131,114 @@ public class RedisStorage implements RateLimitStorage {
   public void delete(String key) {
     redisTemplate.delete(key);
   }
+
+  @Override
+  public long increment(String key, long delta, Duration duration) {
+    Long value =
+        (Long) execute(INCREMENT_SCRIPT, List.of(key), incrementArguments(delta, duration));
+    return value != null ? value : 0;
+  }
+
+  @Override
+  public CompletionStage<Long> incrementAsync(String key, long delta, Duration duration) {
+    if (reactiveTemplate == null) {
+      return RateLimitStorage.super.incrementAsync(key, delta, duration);
+    }
+    return executeAsync(INCREMENT_SCRIPT, List.of(key), incrementArguments(delta, duration))
+        .thenApply(value -> value != null ? (Long) value : 0L);
+  }
+
+  @Override
+  public long[] compute(AtomicOperation operation, Duration duration) {
+    return toLongs(
+        (List<?>)
+            execute(script(operation.script()), operation.keys(), arguments(operation, duration)));
+  }
+
+  @Override
+  public CompletionStage<long[]> computeAsync(AtomicOperation operation, Duration duration) {
+    if (reactiveTemplate == null) {
+      return RateLimitStorage.super.computeAsync(operation, duration);
+    }
+    return executeAsync(
+            script(operation.script()), operation.keys(), arguments(operation, duration))
+        .thenApply(reply -> toLongs((List<?>) reply));
+  }
+
+  @Override
+  public void start() {
+    if (batcher != null) {
+      batcher.start();
+    }
+  }
+
+  @Override
+  public void stop() {
+    if (batcher != null) {
+      batcher.stop();
+    }
+  }
+
+  @Override
+  public boolean isRunning() {
+    return batcher != null && batcher.isRunning();
+  }
+
+  @SuppressWarnings("unchecked")
+  private Object execute(RedisScript<?> script, List<String> keys, Object... args) {
+    if (batcher == null) {
+      return redisTemplate.execute(
+          (RedisScript<Object>) script, RedisSerializer.byteArray(), REPLY_SERIALIZER, keys, args);
+    }
+    try {
+      return batcher.submit(script, keys, args).get(timeoutNanos, TimeUnit.NANOSECONDS);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw new RedisSystemException("Batched Redis call failed", e.getCause());
+    } catch (TimeoutException e) {
+      throw new QueryTimeoutException("Batched Redis call timed out", e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RedisSystemException("Interrupted while waiting for a batched Redis call", e);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private CompletionStage<Object> executeAsync(
+      RedisScript<?> script, List<String> keys, Object... args) {
+    return reactiveTemplate
+        .execute((RedisScript<Object>) script, keys, List.of(args), ARGS_WRITER, REPLY_READER)
+        .next()
+        .toFuture();
+  }
+
+  private static Object[] incrementArguments(long delta, Duration duration) {
+    return new Object[] {
+      LongCodec.toAscii(duration != null ? duration.toMillis() : 0), LongCodec.toAscii(delta)
+    };
+  }
+
+  private static Object[] arguments(AtomicOperation operation, Duration duration) {
+    long[] arguments = operation.arguments();
+    Object[] args = new Object[arguments.length + 1];
+    args[0] = LongCodec.toAscii(duration != null ? duration.toMillis() : 0);
+    for (int i = 0; i < arguments.length; i++) {
+      args[i + 1] = LongCodec.toAscii(arguments[i]);
+    }
+    return args;
+  }
+
+  private static long[] toLongs(List<?> reply) {
+    long[] result = new long[reply != null ? reply.size() : 0];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = ((Number) reply.get(i)).longValue();
+    }
+    return result;
+  }
+
+  private RedisScript<List> script(String source) {
+    return scripts.computeIfAbsent(source, s -> RedisScript.of(s, List.class));
+  }
 }
@@ -0,0 +1,169 @@
+package com.vbalan.rate_limiter.storage;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import org.springframework.context.Lifecycle;
+import org.springframework.context.SmartLifecycle;
+
+/**
+ * Spreads keys over independent backends with a consistent-hash ring. Each shard owns {@code
+ * virtualNodes} points on the ring, placed by hashing its name, and a key belongs to the first
+ * point at or after its own hash. Adding or removing a shard therefore only moves the keys between
+ * its points and their predecessors, about {@code 1/n} of them, and naming shards by address keeps
+ * the ring stable across restarts and reorderings.
+ *
+ * <p>Keys route by their hash tag when they have one, as Redis Cluster does, so all keys of one
+ * client share a shard and a multi-key {@link AtomicOperation} runs on the shard of its first key.
+ */
+public class ShardedStorage implements RateLimitStorage, SmartLifecycle {
+  public static final int DEFAULT_VIRTUAL_NODES = 160;
+
+  private final List<RateLimitStorage> shards;
+  private final long[] points;
+  private final RateLimitStorage[] owners;
+
+  /** Builds the ring from shards keyed by a stable name, such as their {@code host:port}. */
+  public ShardedStorage(Map<String, ? extends RateLimitStorage> shards, int virtualNodes) {
+    if (shards.isEmpty()) {
+      throw new IllegalArgumentException("At least one shard is required");
+    }
+    if (virtualNodes < 1) {
+      throw new IllegalArgumentException("virtualNodes must be positive: " + virtualNodes);
+    }
+    record Point(long hash, String name, RateLimitStorage shard) {}
+    List<Point> ring = new ArrayList<>(shards.size() * virtualNodes);
+    shards.forEach(
+        (name, shard) -> {
+          for (int i = 0; i < virtualNodes; i++) {
+            String point = name + "#" + i;
+            ring.add(new Point(hash(point, 0, point.length()), name, shard));
+          }
+        });
+    // Ties between shards are broken by name, so every node builds the same ring.
+    ring.sort(Comparator.comparingLong(Point::hash).thenComparing(Point::name));
+    this.shards = List.copyOf(shards.values());
+    this.points = new long[ring.size()];
+    this.owners = new RateLimitStorage[ring.size()];
+    for (int i = 0; i < ring.size(); i++) {
+      points[i] = ring.get(i).hash();
+      owners[i] = ring.get(i).shard();
+    }
+  }
+
+  @Override
+  public void expire(String key, Duration duration) {
+    shard(key).expire(key, duration);
+  }
+
+  @Override
+  public Long get(String key) {
+    return shard(key).get(key);
+  }
+
+  @Override
+  public void set(String key, String value, Duration duration) {
+    shard(key).set(key, value, duration);
+  }
+
+  @Override
+  public void delete(String key) {
+    shard(key).delete(key);
+  }
+
+  @Override
+  public String getString(String key) {
+    return shard(key).getString(key);
+  }
+
+  @Override
+  public long increment(String key, long delta, Duration duration) {
+    return shard(key).increment(key, delta, duration);
+  }
+
+  @Override
+  public long[] compute(AtomicOperation operation, Duration duration) {
+    return shard(operation.keys().get(0)).compute(operation, duration);
+  }
+
+  @Override
+  public CompletionStage<Long> incrementAsync(String key, long delta, Duration duration) {
+    return shard(key).incrementAsync(key, delta, duration);
+  }
+
+  @Override
+  public CompletionStage<long[]> computeAsync(AtomicOperation operation, Duration duration) {
+    return shard(operation.keys().get(0)).computeAsync(operation, duration);
+  }
+
+  /** Shards are not beans of their own, so their lifecycle, such as a batcher, runs from here. */
+  @Override
+  public void start() {
+    for (RateLimitStorage shard : shards) {
+      if (shard instanceof Lifecycle lifecycle) {
+        lifecycle.start();
+      }
+    }
+  }
+
+  @Override
+  public void stop() {
+    for (RateLimitStorage shard : shards) {
+      if (shard instanceof Lifecycle lifecycle) {
+        lifecycle.stop();
+      }
+    }
+  }
+
+  @Override
+  public boolean isRunning() {
+    for (RateLimitStorage shard : shards) {
+      if (shard instanceof Lifecycle lifecycle && lifecycle.isRunning()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  RateLimitStorage shard(String key) {
+    int index = Arrays.binarySearch(points, routingHash(key));
+    if (index < 0) {
+      index = -index - 1;
+    }
+    return owners[index == points.length ? 0 : index];
+  }
+
+  /** Hashes the hash tag, the text inside the first pair of braces if not empty, else the key. */
+  static long routingHash(String key) {
+    int open = key.indexOf('{');
+    if (open >= 0) {
+      int close = key.indexOf('}', open + 1);
+      if (close > open + 1) {
+        return hash(key, open + 1, close);
+      }
+    }
+    return hash(key, 0, key.length());
+  }
+
+  /**
+   * FNV-1a over the characters followed by the MurmurHash3 finalizer. FNV alone clusters similar
+   * keys such as {@code client-1} and {@code client-2}; the finalizer spreads them over the ring.
+   */
+  static long hash(String value, int from, int to) {
+    long h = 0xcbf29ce484222325L;
+    for (int i = from; i < to; i++) {
+      h ^= value.charAt(i);
+      h *= 0x100000001b3L;
+    }
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+}
@@ -0,0 +1,174 @@
+package com.vbalan.rate_limiter.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel over a monotonic nanosecond clock: four levels of 64 slots, each level
+ * covering 64 times the span of the one below. Nodes are intrusive, so each one sits in at most one
+ * slot and scheduling allocates nothing; schedule, cancel and expiry are amortized O(1), and {@link
+ * #advance} only visits slots whose time has come.
+ *
+ * <p>Pushing a scheduled node's deadline later does not take the lock. The node stays in its old
+ * slot and is re-filed at its current deadline when that slot is reached, so callers must re-check
+ * the deadline of nodes returned by {@link #advance} against concurrent updates.
+ */
+final class TimingWheel<N extends TimingWheel.Node> {
+  private static final int SLOT_BITS = 6;
+  private static final int SLOTS = 1 << SLOT_BITS;
+  private static final int LEVELS = 4;
+  private static final long MAX_DELTA = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+  static class Node {
+    private volatile long deadline = Long.MAX_VALUE;
+    private volatile boolean scheduled;
+    private long tick;
+    private Node prev;
+    private Node next;
+
+    long deadline() {
+      return deadline;
+    }
+
+    boolean isExpired(long now) {
+      return deadline <= now;
+    }
+  }
+
+  private final long tickNanos;
+  private final Node[][] slots = new Node[LEVELS][SLOTS];
+  private long currentTick;
+
+  TimingWheel(long tickNanos) {
+    this.tickNanos = tickNanos;
+    for (Node[] level : slots) {
+      for (int i = 0; i < SLOTS; i++) {
+        Node head = new Node();
+        head.prev = head;
+        head.next = head;
+        level[i] = head;
+      }
+    }
+  }
+
+  void schedule(Node node, long deadline) {
+    long previous = node.deadline;
+    node.deadline = deadline;
+    if (node.scheduled && deadline >= previous) {
+      return;
+    }
+    synchronized (this) {
+      if (node.scheduled) {
+        unlink(node);
+      }
+      insert(node);
+    }
+  }
+
+  synchronized void cancel(Node node) {
+    node.deadline = Long.MAX_VALUE;
+    if (node.scheduled) {
+      unlink(node);
+    }
+  }
+
+  /**
+   * Moves the wheel up to {@code now} and returns the nodes whose deadline has passed. At most
+   * {@code limit} nodes are visited per call; when the budget runs out the wheel stays on the
+   * current tick and the next call resumes where this one stopped.
+   */
+  @SuppressWarnings("unchecked")
+  synchronized List<N> advance(long now, int limit) {
+    List<N> expired = new ArrayList<>();
+    long targetTick = Math.floorDiv(now, tickNanos);
+    int visited = 0;
+    for (; currentTick <= targetTick; currentTick++) {
+      for (int level = 1;
+          level < LEVELS && (currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0;
+          level++) {
+        Node head = slots[level][slot(currentTick, level)];
+        while (head.next != head) {
+          if (visited++ == limit) {
+            return expired;
+          }
+          Node node = head.next;
+          unlink(node);
+          insert(node);
+        }
+      }
+      Node head = slots[0][slot(currentTick, 0)];
+      while (head.next != head) {
+        if (visited++ == limit) {
+          return expired;
+        }
+        Node node = head.next;
+        unlink(node);
+        if (node.isExpired(now)) {
+          expired.add((N) node);
+        } else {
+          insert(node);
+        }
+      }
+    }
+    return expired;
+  }
+
+  /**
+   * Removes up to {@code count} nodes, nearest deadline first. Order is exact to the tick on the
+   * lowest level and to the slot span above it; nodes whose deadline was pushed since they were
+   * filed are moved to their current slot instead of being evicted early.
+   */
+  @SuppressWarnings("unchecked")
+  synchronized List<N> evict(int count) {
+    List<N> evicted = new ArrayList<>();
+    for (int level = 0; level < LEVELS; level++) {
+      long base = currentTick >>> (SLOT_BITS * level);
+      // Above the lowest level, the slot matching the current tick holds the farthest deadlines.
+      for (int i = level == 0 ? 0 : 1; i <= (level == 0 ? SLOTS - 1 : SLOTS); i++) {
+        Node head = slots[level][(int) (base + i) & (SLOTS - 1)];
+        while (head.next != head) {
+          if (evicted.size() == count) {
+            return evicted;
+          }
+          Node node = head.next;
+          unlink(node);
+          if (tickFor(node) > node.tick) {
+            insert(node);
+          } else {
+            evicted.add((N) node);
+          }
+        }
+      }
+    }
+    return evicted;
+  }
+
+  private void insert(Node node) {
+    node.tick = tickFor(node);
+    long delta = node.tick - currentTick;
+    int level = delta == 0 ? 0 : (63 - Long.numberOfLeadingZeros(delta)) / SLOT_BITS;
+    Node head = slots[level][slot(node.tick, level)];
+    node.prev = head.prev;
+    node.next = head;
+    head.prev.next = node;
+    head.prev = node;
+    node.scheduled = true;
+  }
+
+  private long tickFor(Node node) {
+    long delta = Math.ceilDiv(node.deadline, tickNanos) - currentTick;
+    return currentTick + Math.min(Math.max(delta, 0), MAX_DELTA);
+  }
+
+  private static void unlink(Node node) {
+    node.prev.next = node.next;
+    node.next.prev = node.prev;
+    node.prev = null;
+    node.next = null;
+    node.scheduled = false;
+  }
+
+  private static int slot(long tick, int level) {
+    return (int) (tick >>> (SLOT_BITS * level)) & (SLOTS - 1);
+  }
+}
@@ -0,0 +1,60 @@
+package com.vbalan.rate_limiter.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.vbalan.rate_limiter.model.ClientConfiguration;
+import com.vbalan.rate_limiter.model.LimitConfiguration;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class ClientConfigTest {
+
+  private static ClientConfig withLimit(LimitConfiguration limit) {
+    ClientConfig clientConfig = new ClientConfig();
+    clientConfig.getClients().put("client-1", new ClientConfiguration(10, 5, List.of(limit)));
+    return clientConfig;
+  }
+
+  @Test
+  void afterPropertiesSet_ValidLimits_ShouldPass() {
+    ClientConfig clientConfig = withLimit(new LimitConfiguration(0, Duration.ofHours(1), 0));
+    clientConfig.getClients().put("client-2", new ClientConfiguration(10, 5));
+
+    assertDoesNotThrow(clientConfig::afterPropertiesSet);
+  }
+
+  @Test
+  void afterPropertiesSet_MissingPeriod_ShouldThrow() {
+    ClientConfig clientConfig = withLimit(new LimitConfiguration(10, null, 0));
+
+    IllegalStateException thrown =
+        assertThrows(IllegalStateException.class, clientConfig::afterPropertiesSet);
+
+    assertTrue(thrown.getMessage().contains("client-1"));
+  }
+
+  @Test
+  void afterPropertiesSet_NonPositivePeriod_ShouldThrow() {
+    assertThrows(
+        IllegalStateException.class,
+        withLimit(new LimitConfiguration(10, Duration.ZERO, 0))::afterPropertiesSet);
+    assertThrows(
+        IllegalStateException.class,
+        withLimit(new LimitConfiguration(10, Duration.ofSeconds(-1), 0))::afterPropertiesSet);
+  }
+
+  @Test
+  void afterPropertiesSet_NegativeRequests_ShouldThrow() {
+    ClientConfig clientConfig = withLimit(new LimitConfiguration(-1, Duration.ofSeconds(1), 0));
+
+    assertThrows(IllegalStateException.class, clientConfig::afterPropertiesSet);
+  }
+
+  @Test
+  void afterPropertiesSet_PeriodFinerThanOneMicrosecondPerRequest_ShouldThrow() {
+    ClientConfig clientConfig = withLimit(new LimitConfiguration(2_000, Duration.ofMillis(1), 0));
+
+    assertThrows(IllegalStateException.class, clientConfig::afterPropertiesSet);
+  }
+}
@@ -10,6 +10,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import com.vbalan.rate_limiter.exception.GlobalExceptionHandler;
 import com.vbalan.rate_limiter.model.ClientConfiguration;
 import com.vbalan.rate_limiter.service.AuthenticationService;
+import com.vbalan.rate_limiter.service.RateLimitDecision;
 import com.vbalan.rate_limiter.service.RateLimitService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -39,12 +40,15 @@ class ApiControllerTest {
   private static final String VALID_AUTH_HEADER_CLIENT_TWO = "Bearer " + VALID_CLIENT_ID_TWO;
   private static final String INVALID_AUTH_HEADER = "Bearer " + INVALID_CLIENT_ID;
   private static final String MALFORMED_AUTH_HEADER = "InvalidHeader";
+  private static final RateLimitDecision ALLOWED = new RateLimitDecision(true, 5, 4, 6000, 0);
+  private static final RateLimitDecision DENIED = new RateLimitDecision(false, 5, 0, 30000, 5500);
 
   @BeforeEach
   void setUp() {
     mockMvc =
         MockMvcBuilders.standaloneSetup(apiController)
             .setControllerAdvice(new GlobalExceptionHandler())
+            .addInterceptors(new RateLimitInterceptor(authenticationService, rateLimitService))
             .build();
   }
 
@@ -55,7 +59,7 @@ class ApiControllerTest {
         .thenReturn(VALID_CLIENT_ID_ONE);
     when(authenticationService.isValidClient(VALID_CLIENT_ID_ONE)).thenReturn(true);
     when(authenticationService.getClientConfiguration(VALID_CLIENT_ID_ONE)).thenReturn(config);
-    when(rateLimitService.allowRequestForFoo(VALID_CLIENT_ID_ONE, config)).thenReturn(true);
+    when(rateLimitService.decide("foo", VALID_CLIENT_ID_ONE, config)).thenReturn(ALLOWED);
 
     mockMvc
         .perform(
@@ -64,12 +68,16 @@ class ApiControllerTest {
                 .contentType(MediaType.APPLICATION_JSON))
         .andExpect(status().isOk())
         .andExpect(content().contentType(MediaType.APPLICATION_JSON))
-        .andExpect(jsonPath("$.success").value(true));
+        .andExpect(jsonPath("$.success").value(true))
+        .andExpect(header().string("X-RateLimit-Limit", "5"))
+        .andExpect(header().string("X-RateLimit-Remaining", "4"))
+        .andExpect(header().string("X-RateLimit-Reset", "6"))
+        .andExpect(header().doesNotExist("Retry-After"));
 
     verify(authenticationService).extractClientId(VALID_AUTH_HEADER_CLIENT_ONE);
     verify(authenticationService).isValidClient(VALID_CLIENT_ID_ONE);
     verify(authenticationService).getClientConfiguration(VALID_CLIENT_ID_ONE);
-    verify(rateLimitService).allowRequestForFoo(VALID_CLIENT_ID_ONE, config);
+    verify(rateLimitService).decide("foo", VALID_CLIENT_ID_ONE, config);
   }
 
   @Test
@@ -89,13 +97,13 @@ class ApiControllerTest {
   }
 
   @Test
-  void testFooEndpoint_RateLimitExceeded_ThrowsException() throws Exception {
+  void testFooEndpoint_RateLimitExceeded_ReturnsTooManyRequests() throws Exception {
     ClientConfiguration config = new ClientConfiguration(10, 5);
     when(authenticationService.extractClientId(VALID_AUTH_HEADER_CLIENT_ONE))
         .thenReturn(VALID_CLIENT_ID_ONE);
     when(authenticationService.isValidClient(VALID_CLIENT_ID_ONE)).thenReturn(true);
     when(authenticationService.getClientConfiguration(VALID_CLIENT_ID_ONE)).thenReturn(config);
-    when(rateLimitService.allowRequestForFoo(VALID_CLIENT_ID_ONE, config)).thenReturn(false);
+    when(rateLimitService.decide("foo", VALID_CLIENT_ID_ONE, config)).thenReturn(DENIED);
 
     mockMvc
         .perform(
@@ -104,12 +112,15 @@ class ApiControllerTest {
                 .contentType(MediaType.APPLICATION_JSON))
         .andExpect(status().isTooManyRequests())
         .andExpect(content().contentType(MediaType.APPLICATION_JSON))
-        .andExpect(jsonPath("$.error").value("Rate limit exceeded"));
+        .andExpect(jsonPath("$.error").value("Rate limit exceeded"))
+        .andExpect(header().string("X-RateLimit-Remaining", "0"))
+        .andExpect(header().string("X-RateLimit-Reset", "30"))
+        .andExpect(header().string("Retry-After", "6"));
 
     verify(authenticationService).extractClientId(VALID_AUTH_HEADER_CLIENT_ONE);
     verify(authenticationService).isValidClient(VALID_CLIENT_ID_ONE);
     verify(authenticationService).getClientConfiguration(VALID_CLIENT_ID_ONE);
-    verify(rateLimitService).allowRequestForFoo(VALID_CLIENT_ID_ONE, config);
+    verify(rateLimitService).decide("foo", VALID_CLIENT_ID_ONE, config);
   }
 
   @Test
@@ -146,7 +157,7 @@ class ApiControllerTest {
         .thenReturn(VALID_CLIENT_ID_ONE);
     when(authenticationService.isValidClient(VALID_CLIENT_ID_ONE)).thenReturn(true);
     when(authenticationService.getClientConfiguration(VALID_CLIENT_ID_ONE)).thenReturn(config);
-    when(rateLimitService.allowRequestForBar(VALID_CLIENT_ID_ONE, config)).thenReturn(true);
+    when(rateLimitService.decide("bar", VALID_CLIENT_ID_ONE, config)).thenReturn(ALLOWED);
 
     mockMvc
         .perform(
@@ -160,7 +171,7 @@ class ApiControllerTest {
     verify(authenticationService).extractClientId(VALID_AUTH_HEADER_CLIENT_ONE);
     verify(authenticationService).isValidClient(VALID_CLIENT_ID_ONE);
     verify(authenticationService).getClientConfiguration(VALID_CLIENT_ID_ONE);
-    verify(rateLimitService).allowRequestForBar(VALID_CLIENT_ID_ONE, config);
+    verify(rateLimitService).decide("bar", VALID_CLIENT_ID_ONE, config);
   }
 
   @Test
@@ -180,13 +191,13 @@ class ApiControllerTest {
   }
 
   @Test
-  void testBarEndpoint_RateLimitExceeded_ThrowsException() throws Exception {
+  void testBarEndpoint_RateLimitExceeded_ReturnsTooManyRequests() throws Exception {
     ClientConfiguration config = new ClientConfiguration(15, 8);
     when(authenticationService.extractClientId(VALID_AUTH_HEADER_CLIENT_ONE))
         .thenReturn(VALID_CLIENT_ID_ONE);
     when(authenticationService.isValidClient(VALID_CLIENT_ID_ONE)).thenReturn(true);
     when(authenticationService.getClientConfiguration(VALID_CLIENT_ID_ONE)).thenReturn(config);
-    when(rateLimitService.allowRequestForBar(VALID_CLIENT_ID_ONE, config)).thenReturn(false);
+    when(rateLimitService.decide("bar", VALID_CLIENT_ID_ONE, config)).thenReturn(DENIED);
 
     mockMvc
         .perform(
@@ -200,7 +211,7 @@ class ApiControllerTest {
     verify(authenticationService).extractClientId(VALID_AUTH_HEADER_CLIENT_ONE);
     verify(authenticationService).isValidClient(VALID_CLIENT_ID_ONE);
     verify(authenticationService).getClientConfiguration(VALID_CLIENT_ID_ONE);
-    verify(rateLimitService).allowRequestForBar(VALID_CLIENT_ID_ONE, config);
+    verify(rateLimitService).decide("bar", VALID_CLIENT_ID_ONE, config);
   }
 
   @Test
@@ -237,8 +248,8 @@ class ApiControllerTest {
         .thenReturn(VALID_CLIENT_ID_ONE);
     when(authenticationService.isValidClient(VALID_CLIENT_ID_ONE)).thenReturn(true);
     when(authenticationService.getClientConfiguration(VALID_CLIENT_ID_ONE)).thenReturn(config);
-    when(rateLimitService.allowRequestForFoo(VALID_CLIENT_ID_ONE, config)).thenReturn(true);
-    when(rateLimitService.allowRequestForBar(VALID_CLIENT_ID_ONE, config)).thenReturn(true);
+    when(rateLimitService.decide("foo", VALID_CLIENT_ID_ONE, config)).thenReturn(ALLOWED);
+    when(rateLimitService.decide("bar", VALID_CLIENT_ID_ONE, config)).thenReturn(ALLOWED);
 
     mockMvc
         .perform(
@@ -256,8 +267,8 @@ class ApiControllerTest {
         .andExpect(status().isOk())
         .andExpect(jsonPath("$.success").value(true));
 
-    verify(rateLimitService).allowRequestForFoo(VALID_CLIENT_ID_ONE, config);
-    verify(rateLimitService).allowRequestForBar(VALID_CLIENT_ID_ONE, config);
+    verify(rateLimitService).decide("foo", VALID_CLIENT_ID_ONE, config);
+    verify(rateLimitService).decide("bar", VALID_CLIENT_ID_ONE, config);
   }
 
   @Test
@@ -270,16 +281,14 @@ class ApiControllerTest {
     when(authenticationService.isValidClient(VALID_CLIENT_ID_ONE)).thenReturn(true);
     when(authenticationService.getClientConfiguration(VALID_CLIENT_ID_ONE))
         .thenReturn(configClientOne);
-    when(rateLimitService.allowRequestForBar(VALID_CLIENT_ID_ONE, configClientOne))
-        .thenReturn(true);
+    when(rateLimitService.decide("bar", VALID_CLIENT_ID_ONE, configClientOne)).thenReturn(ALLOWED);
 
     when(authenticationService.extractClientId(VALID_AUTH_HEADER_CLIENT_TWO))
         .thenReturn(VALID_CLIENT_ID_TWO);
     when(authenticationService.isValidClient(VALID_CLIENT_ID_TWO)).thenReturn(true);
     when(authenticationService.getClientConfiguration(VALID_CLIENT_ID_TWO))
         .thenReturn(configClientTwo);
-    when(rateLimitService.allowRequestForBar(VALID_CLIENT_ID_TWO, configClientTwo))
-        .thenReturn(false);
+    when(rateLimitService.decide("bar", VALID_CLIENT_ID_TWO, configClientTwo)).thenReturn(DENIED);
 
     mockMvc
         .perform(
@@ -302,11 +311,11 @@ class ApiControllerTest {
     verify(authenticationService).extractClientId(VALID_AUTH_HEADER_CLIENT_ONE);
     verify(authenticationService).isValidClient(VALID_CLIENT_ID_ONE);
     verify(authenticationService).getClientConfiguration(VALID_CLIENT_ID_ONE);
-    verify(rateLimitService).allowRequestForBar(VALID_CLIENT_ID_ONE, configClientOne);
+    verify(rateLimitService).decide("bar", VALID_CLIENT_ID_ONE, configClientOne);
 
     verify(authenticationService).extractClientId(VALID_AUTH_HEADER_CLIENT_TWO);
     verify(authenticationService).isValidClient(VALID_CLIENT_ID_TWO);
     verify(authenticationService).getClientConfiguration(VALID_CLIENT_ID_TWO);
-    verify(rateLimitService).allowRequestForBar(VALID_CLIENT_ID_TWO, configClientTwo);
+    verify(rateLimitService).decide("bar", VALID_CLIENT_ID_TWO, configClientTwo);
   }
 }
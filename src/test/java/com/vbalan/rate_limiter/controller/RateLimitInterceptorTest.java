@@ -0,0 +1,129 @@
+package com.vbalan.rate_limiter.controller;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.vbalan.rate_limiter.exception.RateLimitExceededException;
+import com.vbalan.rate_limiter.model.ClientConfiguration;
+import com.vbalan.rate_limiter.service.AuthenticationService;
+import com.vbalan.rate_limiter.service.RateLimitDecision;
+import com.vbalan.rate_limiter.service.RateLimitService;
+import jakarta.servlet.DispatcherType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+@ExtendWith(MockitoExtension.class)
+class RateLimitInterceptorTest {
+
+  @Mock private AuthenticationService authenticationService;
+
+  @Mock private RateLimitService rateLimitService;
+
+  private RateLimitInterceptor interceptor;
+  private final MockHttpServletRequest request = new MockHttpServletRequest();
+  private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+  @BeforeEach
+  void setUp() {
+    interceptor = new RateLimitInterceptor(authenticationService, rateLimitService);
+  }
+
+  @Test
+  void preHandle_HandlerWithoutAnnotation_ShouldPassThrough() throws Exception {
+    HandlerMethod handler = new HandlerMethod(new Handlers(), "open");
+
+    assertTrue(interceptor.preHandle(request, response, handler));
+    verifyNoInteractions(authenticationService, rateLimitService);
+  }
+
+  @Test
+  void preHandle_NonMethodHandler_ShouldPassThrough() throws Exception {
+    assertTrue(interceptor.preHandle(request, response, new Object()));
+    verifyNoInteractions(authenticationService, rateLimitService);
+  }
+
+  @Test
+  void preHandle_AnnotatedHandler_ShouldLimitUnderAnnotatedEndpoint() throws Exception {
+    ClientConfiguration config = new ClientConfiguration(10, 5);
+    request.addHeader("Authorization", "Bearer client-1");
+    when(authenticationService.extractClientId("Bearer client-1")).thenReturn("client-1");
+    when(authenticationService.isValidClient("client-1")).thenReturn(true);
+    when(authenticationService.getClientConfiguration("client-1")).thenReturn(config);
+    when(rateLimitService.decide("custom", "client-1", config))
+        .thenReturn(new RateLimitDecision(false, 5, 0, 30000, 200));
+
+    HandlerMethod handler = new HandlerMethod(new Handlers(), "limited");
+
+    assertFalse(interceptor.preHandle(request, response, handler));
+    assertEquals(429, response.getStatus());
+    assertEquals("{\"error\":\"Rate limit exceeded\"}", response.getContentAsString());
+    assertEquals("1", response.getHeader("Retry-After"));
+  }
+
+  @Test
+  void preHandle_DelayedDecision_ShouldHoldRequestAndDispatchAfterDelay() throws Exception {
+    ClientConfiguration config = new ClientConfiguration(10, 5);
+    request.addHeader("Authorization", "Bearer client-1");
+    request.setAsyncSupported(true);
+    when(authenticationService.extractClientId("Bearer client-1")).thenReturn("client-1");
+    when(authenticationService.isValidClient("client-1")).thenReturn(true);
+    when(authenticationService.getClientConfiguration("client-1")).thenReturn(config);
+    when(rateLimitService.decide("custom", "client-1", config))
+        .thenReturn(new RateLimitDecision(true, 4, 2, 200, 0, 50));
+    HandlerMethod handler = new HandlerMethod(new Handlers(), "limited");
+    interceptor.start();
+    try {
+      assertFalse(interceptor.preHandle(request, response, handler));
+      assertTrue(request.isAsyncStarted());
+      assertEquals("2", response.getHeader("X-RateLimit-Remaining"));
+
+      MockAsyncContext asyncContext = (MockAsyncContext) request.getAsyncContext();
+      long deadline = System.nanoTime() + 5_000_000_000L;
+      while (asyncContext.getDispatchedPath() == null && System.nanoTime() < deadline) {
+        Thread.sleep(5);
+      }
+      assertNotNull(asyncContext.getDispatchedPath());
+
+      request.setDispatcherType(DispatcherType.ASYNC);
+      assertTrue(interceptor.preHandle(request, response, handler));
+      verify(rateLimitService, times(1)).decide("custom", "client-1", config);
+    } finally {
+      interceptor.stop();
+    }
+  }
+
+  @Test
+  void preHandle_AsyncDispatchWithoutAdmission_ShouldDecideAgain() throws Exception {
+    request.setDispatcherType(DispatcherType.ASYNC);
+    request.addHeader("Authorization", "Bearer client-1");
+    when(authenticationService.extractClientId("Bearer client-1")).thenReturn("client-1");
+    when(authenticationService.isValidClient("client-1")).thenReturn(false);
+
+    HandlerMethod handler = new HandlerMethod(new Handlers(), "limited");
+
+    assertFalse(interceptor.preHandle(request, response, handler));
+    assertEquals(401, response.getStatus());
+  }
+
+  @Test
+  void rateLimitExceededException_ShouldNotCaptureStackTrace() {
+    RateLimitExceededException exception = new RateLimitExceededException("denied");
+
+    assertEquals(0, exception.getStackTrace().length);
+    assertEquals("denied", exception.getMessage());
+  }
+
+  static class Handlers {
+    public void open() {}
+
+    @RateLimited("custom")
+    public void limited() {}
+  }
+}
@@ -0,0 +1,206 @@
+package com.vbalan.rate_limiter.controller;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.vbalan.rate_limiter.exception.GlobalExceptionHandler;
+import com.vbalan.rate_limiter.model.ClientConfiguration;
+import com.vbalan.rate_limiter.service.AuthenticationService;
+import com.vbalan.rate_limiter.service.RateLimitDecision;
+import com.vbalan.rate_limiter.service.RateLimitService;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveApiControllerTest {
+
+  @Mock private AuthenticationService authenticationService;
+
+  @Mock private RateLimitService rateLimitService;
+
+  @InjectMocks private ReactiveApiController reactiveApiController;
+
+  private WebTestClient webTestClient;
+
+  private static final String VALID_CLIENT_ID = "client-1";
+  private static final String INVALID_CLIENT_ID = "invalid-client";
+  private static final String VALID_AUTH_HEADER = "Bearer " + VALID_CLIENT_ID;
+  private static final String INVALID_AUTH_HEADER = "Bearer " + INVALID_CLIENT_ID;
+  private static final RateLimitDecision ALLOWED = new RateLimitDecision(true, 10, 9, 6000, 0);
+  private static final RateLimitDecision DENIED = new RateLimitDecision(false, 10, 0, 60000, 5500);
+
+  @BeforeEach
+  void setUp() {
+    webTestClient =
+        WebTestClient.bindToController(reactiveApiController)
+            .controllerAdvice(new GlobalExceptionHandler())
+            .build();
+  }
+
+  @Test
+  void testFooEndpoint_ValidClientAndAllowedRequest_ReturnsSuccess() {
+    ClientConfiguration config = new ClientConfiguration(10, 5);
+    when(authenticationService.extractClientId(VALID_AUTH_HEADER)).thenReturn(VALID_CLIENT_ID);
+    when(authenticationService.isValidClient(VALID_CLIENT_ID)).thenReturn(true);
+    when(authenticationService.getClientConfiguration(VALID_CLIENT_ID)).thenReturn(config);
+    when(rateLimitService.decideAsync("foo", VALID_CLIENT_ID, config))
+        .thenReturn(CompletableFuture.completedFuture(ALLOWED));
+
+    webTestClient
+        .get()
+        .uri("/foo")
+        .header("Authorization", VALID_AUTH_HEADER)
+        .exchange()
+        .expectStatus()
+        .isOk()
+        .expectHeader()
+        .contentType(MediaType.APPLICATION_JSON)
+        .expectHeader()
+        .valueEquals("X-RateLimit-Remaining", "9")
+        .expectBody()
+        .jsonPath("$.success")
+        .isEqualTo(true);
+  }
+
+  @Test
+  void testFooEndpoint_RateLimitExceeded_ReturnsTooManyRequests() {
+    ClientConfiguration config = new ClientConfiguration(10, 5);
+    when(authenticationService.extractClientId(VALID_AUTH_HEADER)).thenReturn(VALID_CLIENT_ID);
+    when(authenticationService.isValidClient(VALID_CLIENT_ID)).thenReturn(true);
+    when(authenticationService.getClientConfiguration(VALID_CLIENT_ID)).thenReturn(config);
+    when(rateLimitService.decideAsync("foo", VALID_CLIENT_ID, config))
+        .thenReturn(CompletableFuture.completedFuture(DENIED));
+
+    webTestClient
+        .get()
+        .uri("/foo")
+        .header("Authorization", VALID_AUTH_HEADER)
+        .exchange()
+        .expectStatus()
+        .isEqualTo(429)
+        .expectHeader()
+        .valueEquals("Retry-After", "6")
+        .expectHeader()
+        .valueEquals("X-RateLimit-Remaining", "0")
+        .expectBody()
+        .jsonPath("$.error")
+        .isEqualTo("Rate limit exceeded");
+  }
+
+  @Test
+  void testBarEndpoint_DecisionCompletesLater_ReturnsSuccess() {
+    ClientConfiguration config = new ClientConfiguration(10, 5);
+    CompletableFuture<RateLimitDecision> decision = new CompletableFuture<>();
+    when(authenticationService.extractClientId(VALID_AUTH_HEADER)).thenReturn(VALID_CLIENT_ID);
+    when(authenticationService.isValidClient(VALID_CLIENT_ID)).thenReturn(true);
+    when(authenticationService.getClientConfiguration(VALID_CLIENT_ID)).thenReturn(config);
+    when(rateLimitService.decideAsync("bar", VALID_CLIENT_ID, config)).thenReturn(decision);
+
+    CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS)
+        .execute(() -> decision.complete(ALLOWED));
+
+    webTestClient
+        .get()
+        .uri("/bar")
+        .header("Authorization", VALID_AUTH_HEADER)
+        .exchange()
+        .expectStatus()
+        .isOk()
+        .expectBody()
+        .jsonPath("$.success")
+        .isEqualTo(true);
+  }
+
+  @Test
+  void testFooEndpoint_DelayedDecision_ReturnsSuccessAfterDelay() {
+    ClientConfiguration config = new ClientConfiguration(10, 5);
+    when(authenticationService.extractClientId(VALID_AUTH_HEADER)).thenReturn(VALID_CLIENT_ID);
+    when(authenticationService.isValidClient(VALID_CLIENT_ID)).thenReturn(true);
+    when(authenticationService.getClientConfiguration(VALID_CLIENT_ID)).thenReturn(config);
+    when(rateLimitService.decideAsync("foo", VALID_CLIENT_ID, config))
+        .thenReturn(
+            CompletableFuture.completedFuture(new RateLimitDecision(true, 4, 2, 300, 0, 200)));
+
+    long start = System.nanoTime();
+    webTestClient
+        .get()
+        .uri("/foo")
+        .header("Authorization", VALID_AUTH_HEADER)
+        .exchange()
+        .expectStatus()
+        .isOk()
+        .expectBody()
+        .jsonPath("$.success")
+        .isEqualTo(true);
+
+    assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200));
+  }
+
+  @Test
+  void testFooEndpoint_BlockingEngine_DecidesOffEventLoop() {
+    ClientConfiguration config = new ClientConfiguration(10, 5);
+    AtomicReference<String> decidingThread = new AtomicReference<>();
+    when(authenticationService.extractClientId(VALID_AUTH_HEADER)).thenReturn(VALID_CLIENT_ID);
+    when(authenticationService.isValidClient(VALID_CLIENT_ID)).thenReturn(true);
+    when(authenticationService.getClientConfiguration(VALID_CLIENT_ID)).thenReturn(config);
+    when(rateLimitService.isBlocking("foo")).thenReturn(true);
+    when(rateLimitService.decide("foo", VALID_CLIENT_ID, config))
+        .thenAnswer(
+            invocation -> {
+              decidingThread.set(Thread.currentThread().getName());
+              return ALLOWED;
+            });
+
+    webTestClient
+        .get()
+        .uri("/foo")
+        .header("Authorization", VALID_AUTH_HEADER)
+        .exchange()
+        .expectStatus()
+        .isOk()
+        .expectHeader()
+        .valueEquals("X-RateLimit-Remaining", "9");
+
+    assertTrue(decidingThread.get().startsWith("boundedElastic"));
+    verify(rateLimitService, never()).decideAsync("foo", VALID_CLIENT_ID, config);
+  }
+
+  @Test
+  void testBarEndpoint_InvalidClient_ReturnsUnauthorized() {
+    when(authenticationService.extractClientId(INVALID_AUTH_HEADER)).thenReturn(INVALID_CLIENT_ID);
+    when(authenticationService.isValidClient(INVALID_CLIENT_ID)).thenReturn(false);
+
+    webTestClient
+        .get()
+        .uri("/bar")
+        .header("Authorization", INVALID_AUTH_HEADER)
+        .exchange()
+        .expectStatus()
+        .isUnauthorized();
+
+    verify(rateLimitService, never()).decideAsync("bar", INVALID_CLIENT_ID, null);
+  }
+
+  @Test
+  void testFooEndpoint_MissingAuthorizationHeader_ReturnsUnauthorized() {
+    webTestClient
+        .get()
+        .uri("/foo")
+        .exchange()
+        .expectStatus()
+        .isUnauthorized()
+        .expectBody(String.class)
+        .isEqualTo("No Authorization header provided");
+  }
+}
@@ -0,0 +1,47 @@
+package com.vbalan.rate_limiter.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.vbalan.rate_limiter.model.ClientConfiguration;
+import io.lettuce.core.cluster.SlotHash;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class ClientKeysTest {
+
+  @Test
+  void of_ShouldWrapClientIdInHashTag() {
+    assertEquals("tokens:{client-1}", ClientKeys.of("tokens", "client-1"));
+  }
+
+  @Test
+  void tokenBucketKeys_ShouldHashToSameClusterSlot() {
+    List<String> keys =
+        new TokenBucketOperation("client-1", new ClientConfiguration(10, 5), 0).keys();
+
+    assertEquals(2, keys.size());
+    assertEquals(SlotHash.getSlot(keys.get(0)), SlotHash.getSlot(keys.get(1)));
+    assertEquals(SlotHash.getSlot("client-1"), SlotHash.getSlot(keys.get(0)));
+  }
+
+  @Test
+  void clientIdWithBraces_ShouldStillShareSlotAcrossKeys() {
+    String clientId = "odd}{id";
+
+    assertEquals(
+        SlotHash.getSlot(ClientKeys.of("tokens", clientId)),
+        SlotHash.getSlot(ClientKeys.of("lastRefill", clientId)));
+  }
+
+  @Test
+  void differentClients_ShouldSpreadAcrossSlots() {
+    Set<Integer> slots = new HashSet<>();
+    for (int i = 0; i < 100; i++) {
+      slots.add(SlotHash.getSlot(ClientKeys.of("gcra", "client-" + i)));
+    }
+
+    assertTrue(slots.size() > 90);
+  }
+}
@@ -0,0 +1,100 @@
+package com.vbalan.rate_limiter.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.vbalan.rate_limiter.model.ClientConfiguration;
+import com.vbalan.rate_limiter.storage.InMemoryStorage;
+import com.vbalan.rate_limiter.storage.RateLimitStorage;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class FixedWindowRateLimiterTest {
+
+  @Mock private RateLimitStorage storage;
+
+  private FixedWindowRateLimiter rateLimiter;
+  private final ClientConfiguration config = new ClientConfiguration(3, 10);
+  private static final String CLIENT_ID = "test-client";
+
+  @BeforeEach
+  void setUp() {
+    rateLimiter = new FixedWindowRateLimiter(storage);
+  }
+
+  @Test
+  void allowRequest_ShouldIncrementCurrentWindowKeyOnce() {
+    when(storage.increment(anyString(), eq(1L), any(Duration.class))).thenReturn(1L);
+    ArgumentCaptor<String> key = ArgumentCaptor.forClass(String.class);
+    long windowStart = System.currentTimeMillis() / 60000 * 60000;
+
+    assertTrue(rateLimiter.allowRequest(CLIENT_ID, config));
+
+    verify(storage).increment(key.capture(), eq(1L), eq(Duration.ofMinutes(1)));
+    verifyNoMoreInteractions(storage);
+    // The window may have rolled over between reading the clock here and in the limiter.
+    assertTrue(
+        key.getValue().equals("fixed_window:{" + CLIENT_ID + "}:" + windowStart)
+            || key.getValue().equals("fixed_window:{" + CLIENT_ID + "}:" + (windowStart + 60000)));
+  }
+
+  @Test
+  void allowRequest_CountAboveLimit_ShouldDeny() {
+    when(storage.increment(anyString(), eq(1L), any(Duration.class))).thenReturn(3L, 4L);
+
+    assertTrue(rateLimiter.allowRequest(CLIENT_ID, config));
+    assertFalse(rateLimiter.allowRequest(CLIENT_ID, config));
+  }
+
+  @Test
+  void decide_ShouldReportRemainingAndWindowEnd() {
+    when(storage.increment(anyString(), eq(1L), any(Duration.class))).thenReturn(2L, 5L);
+
+    RateLimitDecision allowed = rateLimiter.decide(CLIENT_ID, config);
+    RateLimitDecision denied = rateLimiter.decide(CLIENT_ID, config);
+
+    assertTrue(allowed.allowed());
+    assertEquals(3, allowed.limit());
+    assertEquals(1, allowed.remaining());
+    assertTrue(allowed.resetMillis() > 0 && allowed.resetMillis() <= 60000);
+    assertFalse(denied.allowed());
+    assertEquals(0, denied.remaining());
+    assertEquals(denied.resetMillis(), denied.retryAfterMillis());
+  }
+
+  @Test
+  void decideAsync_ShouldUseAsyncIncrement() {
+    when(storage.incrementAsync(anyString(), eq(1L), any(Duration.class)))
+        .thenReturn(CompletableFuture.completedFuture(4L));
+
+    assertFalse(rateLimiter.decideAsync(CLIENT_ID, config).toCompletableFuture().join().allowed());
+    verify(storage, never()).increment(anyString(), anyLong(), any());
+  }
+
+  @Test
+  void allowRequest_InMemoryStorage_ShouldCountPerClient() {
+    InMemoryStorage inMemory = new InMemoryStorage();
+    FixedWindowRateLimiter limiter = new FixedWindowRateLimiter(inMemory);
+    long windowStart = System.currentTimeMillis() / 60000 * 60000;
+
+    limiter.allowRequest(CLIENT_ID, config);
+    limiter.allowRequest(CLIENT_ID, config);
+    limiter.allowRequest("other-client", config);
+
+    // Skip the count check if the minute rolled over between the calls.
+    if (System.currentTimeMillis() / 60000 * 60000 == windowStart) {
+      Duration ttl = Duration.ofMinutes(1);
+      assertEquals(
+          3, inMemory.increment("fixed_window:{" + CLIENT_ID + "}:" + windowStart, 1, ttl));
+      assertEquals(2, inMemory.increment("fixed_window:{other-client}:" + windowStart, 1, ttl));
+    }
+  }
+}
@@ -0,0 +1,166 @@
+package com.vbalan.rate_limiter.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.vbalan.rate_limiter.model.ClientConfiguration;
+import com.vbalan.rate_limiter.storage.AtomicOperation;
+import com.vbalan.rate_limiter.storage.InMemoryStorage;
+import com.vbalan.rate_limiter.storage.RateLimitStorage;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class GcraRateLimiterTest {
+
+  @Mock private RateLimitStorage storage;
+
+  private final ClientConfiguration config = new ClientConfiguration(10, 5);
+  private static final String CLIENT_ID = "test-client";
+  private static final long NOW = 1_000_000;
+  private static final long INTERVAL_US = 6_000_000;
+
+  private GcraRateLimiter rateLimiter;
+
+  @BeforeEach
+  void setUp() {
+    rateLimiter = new GcraRateLimiter(storage);
+  }
+
+  private static long[] apply(long[] state, long now, ClientConfiguration config) {
+    GcraOperation operation = new GcraOperation(CLIENT_ID, config, now);
+    operation.apply(state);
+    return operation.reply();
+  }
+
+  @Test
+  void apply_NewClient_ShouldAllowBurstCapacityThenDeny() {
+    long[] state = {NOW * 1000};
+
+    for (int i = 0; i < 5; i++) {
+      assertEquals(1, apply(state, NOW, config)[0]);
+    }
+    assertEquals(0, apply(state, NOW, config)[0]);
+    assertEquals(NOW * 1000 + 5 * INTERVAL_US, state[0]);
+  }
+
+  @Test
+  void apply_AfterEmissionInterval_ShouldAllowOneMore() {
+    long[] state = {NOW * 1000 + 5 * INTERVAL_US};
+
+    assertEquals(0, apply(state, NOW + 5_999, config)[0]);
+    assertEquals(1, apply(state, NOW + 6_000, config)[0]);
+    assertEquals(0, apply(state, NOW + 6_000, config)[0]);
+  }
+
+  @Test
+  void apply_TatInThePast_ShouldStartFromNow() {
+    long[] state = {NOW * 1000 - 60_000_000};
+
+    long[] reply = apply(state, NOW, config);
+
+    assertEquals(1, reply[0]);
+    assertEquals(INTERVAL_US, reply[1]);
+    assertEquals(NOW * 1000 + INTERVAL_US, state[0]);
+  }
+
+  @Test
+  void apply_Denied_ShouldLeaveStateUntouched() {
+    GcraOperation operation = new GcraOperation(CLIENT_ID, config, NOW);
+    long[] state = {NOW * 1000 + 5 * INTERVAL_US};
+
+    assertSame(state, operation.apply(state));
+    assertEquals(NOW * 1000 + 5 * INTERVAL_US, state[0]);
+    assertArrayEquals(new long[] {0, 5 * INTERVAL_US}, operation.reply());
+  }
+
+  @Test
+  void decision_Denied_ShouldRetryAfterOneIntervalOfSlack() {
+    RateLimitDecision decision =
+        GcraOperation.decision(new long[] {0, 5 * INTERVAL_US - 1_500_000}, config);
+
+    assertFalse(decision.allowed());
+    assertEquals(5, decision.limit());
+    assertEquals(0, decision.remaining());
+    assertEquals(28_500, decision.resetMillis());
+    assertEquals(4_500, decision.retryAfterMillis());
+  }
+
+  @Test
+  void decision_Allowed_ShouldCountRemainingIntervals() {
+    RateLimitDecision decision = GcraOperation.decision(new long[] {1, 2 * INTERVAL_US}, config);
+
+    assertEquals(new RateLimitDecision(true, 5, 3, 12_000, 0), decision);
+  }
+
+  @Test
+  void decide_ShouldUseSingleKeyWithTtlOfFullBurst() {
+    when(storage.compute(any(AtomicOperation.class), any(Duration.class)))
+        .thenReturn(new long[] {1, INTERVAL_US});
+    ArgumentCaptor<AtomicOperation> captor = ArgumentCaptor.forClass(AtomicOperation.class);
+
+    assertTrue(rateLimiter.decide(CLIENT_ID, config).allowed());
+
+    verify(storage).compute(captor.capture(), eq(Duration.ofSeconds(30)));
+    assertEquals(List.of("gcra:{" + CLIENT_ID + "}"), captor.getValue().keys());
+    assertArrayEquals(new long[] {INTERVAL_US, 5}, tail(captor.getValue().arguments()));
+  }
+
+  @Test
+  void decideAsync_ShouldDecideFromAsyncStorageReply() {
+    when(storage.computeAsync(any(AtomicOperation.class), any(Duration.class)))
+        .thenReturn(CompletableFuture.completedFuture(new long[] {0, 5 * INTERVAL_US}));
+
+    RateLimitDecision decision =
+        rateLimiter.decideAsync(CLIENT_ID, config).toCompletableFuture().join();
+
+    assertFalse(decision.allowed());
+    assertEquals(6_000, decision.retryAfterMillis());
+    verify(storage, never()).compute(any(), any());
+  }
+
+  @Test
+  void decide_ZeroRequestsPerMinute_ShouldDenyWithFullMinuteRetry() {
+    ClientConfiguration blocked = new ClientConfiguration(0, 5);
+
+    RateLimitDecision decision = rateLimiter.decide(CLIENT_ID, blocked);
+    RateLimitDecision async =
+        rateLimiter.decideAsync(CLIENT_ID, blocked).toCompletableFuture().join();
+
+    assertEquals(new RateLimitDecision(false, 0, 0, 0, 60_000), decision);
+    assertEquals(decision, async);
+    verifyNoInteractions(storage);
+  }
+
+  @Test
+  void allowRequest_ZeroRequestsPerMinuteInMemory_ShouldNeverAllow() {
+    GcraRateLimiter inMemory = new GcraRateLimiter(new InMemoryStorage());
+    ClientConfiguration blocked = new ClientConfiguration(0, 5);
+
+    for (int i = 0; i < 10; i++) {
+      assertFalse(inMemory.allowRequest(CLIENT_ID, blocked));
+    }
+  }
+
+  @Test
+  void allowRequest_InMemoryStorage_ShouldAllowBurstCapacity() {
+    GcraRateLimiter inMemory = new GcraRateLimiter(new InMemoryStorage());
+
+    for (int i = 0; i < 5; i++) {
+      assertTrue(inMemory.allowRequest(CLIENT_ID, config));
+    }
+    assertFalse(inMemory.allowRequest(CLIENT_ID, config));
+  }
+
+  private static long[] tail(long[] arguments) {
+    return new long[] {arguments[1], arguments[2]};
+  }
+}
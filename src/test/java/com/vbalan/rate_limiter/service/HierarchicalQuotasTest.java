@@ -0,0 +1,299 @@
+package com.vbalan.rate_limiter.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.vbalan.rate_limiter.config.ClientConfig;
+import com.vbalan.rate_limiter.model.ClientConfiguration;
+import com.vbalan.rate_limiter.model.QuotaConfiguration;
+import com.vbalan.rate_limiter.storage.InMemoryStorage;
+import com.vbalan.rate_limiter.storage.RateLimitStorage;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class HierarchicalQuotasTest {
+
+  @Mock private RateLimitStorage storage;
+
+  @Mock private RateLimiter engine;
+
+  private ClientConfig clientConfig;
+  private final ClientConfiguration acmeClient =
+      new ClientConfiguration(100, 100, List.of(), "acme");
+  private final ClientConfiguration otherClient =
+      new ClientConfiguration(100, 100, List.of(), "other");
+  private static final RateLimitDecision CLIENT_ALLOWED =
+      new RateLimitDecision(true, 100, 99, 600, 0);
+
+  @BeforeEach
+  void setUp() {
+    clientConfig = new ClientConfig();
+    clientConfig.getTenants().put("acme", new QuotaConfiguration(3));
+    clientConfig.getTenants().put("other", new QuotaConfiguration(10));
+  }
+
+  private HierarchicalQuotas quotas(String storageType) {
+    return new HierarchicalQuotas(clientConfig, storage, storageType);
+  }
+
+  @Test
+  void stripedWindowCounter_ShouldAllowExactlyLimitAcrossStripes() {
+    StripedWindowCounter counter = new StripedWindowCounter(8);
+    int allowed = 0;
+    for (int i = 0; i < 20; i++) {
+      allowed += counter.tryAcquire(13, 7) ? 1 : 0;
+    }
+
+    assertEquals(8, counter.stripes());
+    assertEquals(13, allowed);
+    assertEquals(13, counter.count(7));
+  }
+
+  @Test
+  void stripedWindowCounter_LimitBelowStripeCount_ShouldStillAllowLimit() {
+    StripedWindowCounter counter = new StripedWindowCounter(16);
+
+    assertTrue(counter.tryAcquire(2, 1));
+    assertTrue(counter.tryAcquire(2, 1));
+    assertFalse(counter.tryAcquire(2, 1));
+  }
+
+  @Test
+  void stripedWindowCounter_NewWindow_ShouldStartFromZero() {
+    StripedWindowCounter counter = new StripedWindowCounter(4);
+    while (counter.tryAcquire(5, 1)) {}
+
+    assertTrue(counter.tryAcquire(5, 2));
+    assertEquals(1, counter.count(2));
+  }
+
+  @Test
+  void stripedWindowCounter_ConcurrentThreads_ShouldNeverExceedLimit() throws Exception {
+    StripedWindowCounter counter = new StripedWindowCounter(4);
+    AtomicInteger allowed = new AtomicInteger();
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 8; t++) {
+      threads.add(
+          Thread.ofPlatform()
+              .start(
+                  () -> {
+                    try {
+                      start.await();
+                    } catch (InterruptedException e) {
+                      return;
+                    }
+                    for (int i = 0; i < 5000; i++) {
+                      if (counter.tryAcquire(10_000, 3)) {
+                        allowed.incrementAndGet();
+                      }
+                    }
+                  }));
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertEquals(10_000, allowed.get());
+    assertEquals(10_000, counter.count(3));
+  }
+
+  @Test
+  void stripedWindowCounter_Release_ShouldFreeOneSlotOfItsWindowOnly() {
+    StripedWindowCounter counter = new StripedWindowCounter(4);
+    while (counter.tryAcquire(5, 1)) {}
+
+    counter.release(1);
+    counter.release(0);
+
+    assertEquals(4, counter.count(1));
+    assertTrue(counter.tryAcquire(5, 1));
+    assertFalse(counter.tryAcquire(5, 1));
+  }
+
+  @Test
+  void isEnabled_NoTenantOrGlobalQuota_ShouldBeFalse() {
+    clientConfig.getTenants().clear();
+
+    assertFalse(quotas("memory").isEnabled());
+  }
+
+  @Test
+  void constructor_ClientOfUnknownTenant_ShouldFailFast() {
+    clientConfig.getClients().put("client-1", new ClientConfiguration(10, 5, List.of(), "nope"));
+
+    assertThrows(IllegalStateException.class, () -> quotas("memory"));
+  }
+
+  @Test
+  void decide_TenantQuotaUsedUp_ShouldDenyEveryClientOfTenant() {
+    HierarchicalQuotas quotas = quotas("memory");
+
+    for (int i = 0; i < 3; i++) {
+      assertTrue(quotas.decide(acmeClient, () -> CLIENT_ALLOWED).allowed());
+    }
+    RateLimitDecision denied = quotas.decide(acmeClient, () -> CLIENT_ALLOWED);
+
+    assertFalse(denied.allowed());
+    assertEquals(3, denied.limit());
+    assertTrue(denied.retryAfterMillis() > 0);
+    assertTrue(quotas.decide(otherClient, () -> CLIENT_ALLOWED).allowed());
+  }
+
+  @Test
+  void decide_GlobalQuota_ShouldApplyAcrossTenants() {
+    clientConfig.setGlobal(new QuotaConfiguration(4));
+    HierarchicalQuotas quotas = quotas("memory");
+
+    assertTrue(quotas.allowRequest(acmeClient, () -> true));
+    assertTrue(quotas.allowRequest(otherClient, () -> true));
+    assertTrue(quotas.allowRequest(otherClient, () -> true));
+    assertTrue(quotas.allowRequest(new ClientConfiguration(10, 5), () -> true));
+    assertFalse(quotas.allowRequest(otherClient, () -> true));
+  }
+
+  @Test
+  void decide_ShouldReportLevelWithFewestRemainingAndKeepClientDelay() {
+    HierarchicalQuotas quotas = quotas("memory");
+    RateLimitDecision delayed = new RateLimitDecision(true, 100, 99, 600, 0, 250);
+
+    RateLimitDecision decision = quotas.decide(acmeClient, () -> delayed);
+
+    assertTrue(decision.allowed());
+    assertEquals(3, decision.limit());
+    assertEquals(2, decision.remaining());
+    assertEquals(250, decision.delayMillis());
+  }
+
+  @Test
+  void hierarchicalRateLimiter_ClientDenied_ShouldNotConsumeTenantQuota() {
+    HierarchicalRateLimiter limiter = new HierarchicalRateLimiter(engine, quotas("memory"));
+    when(engine.decide("client-1", acmeClient))
+        .thenReturn(new RateLimitDecision(false, 100, 0, 600, 600));
+
+    for (int i = 0; i < 5; i++) {
+      assertFalse(limiter.decide("client-1", acmeClient).allowed());
+    }
+    when(engine.decide("client-1", acmeClient)).thenReturn(CLIENT_ALLOWED);
+
+    assertTrue(limiter.decide("client-1", acmeClient).allowed());
+  }
+
+  @Test
+  void decide_RedisStorage_ShouldIncrementSharedTenantKey() {
+    when(storage.increment(startsWith("quota:tenant:acme:"), eq(1L), eq(Duration.ofMinutes(1))))
+        .thenReturn(4L);
+
+    RateLimitDecision decision = quotas("redis").decide(acmeClient, () -> CLIENT_ALLOWED);
+
+    assertFalse(decision.allowed());
+    assertEquals(3, decision.limit());
+  }
+
+  @Test
+  void decideAsync_RedisStorage_ShouldChainTenantAndGlobalIncrements() {
+    clientConfig.setGlobal(new QuotaConfiguration(1000));
+    when(storage.incrementAsync(startsWith("quota:tenant:acme:"), eq(1L), any(Duration.class)))
+        .thenReturn(CompletableFuture.completedFuture(1L));
+    when(storage.incrementAsync(startsWith("quota:global:"), eq(1L), any(Duration.class)))
+        .thenReturn(CompletableFuture.completedFuture(10L));
+
+    RateLimitDecision decision =
+        quotas("redis")
+            .decideAsync(acmeClient, () -> CompletableFuture.completedFuture(CLIENT_ALLOWED))
+            .toCompletableFuture()
+            .join();
+
+    assertTrue(decision.allowed());
+    assertEquals(3, decision.limit());
+    assertEquals(2, decision.remaining());
+    verify(storage, never()).increment(anyString(), anyLong(), any());
+  }
+
+  @Test
+  void hierarchicalRateLimiter_GlobalQuotaDenied_ShouldLeaveClientAndTenantUnchanged() {
+    clientConfig.setGlobal(new QuotaConfiguration(10));
+    AtomicLong tenantCount = new AtomicLong();
+    when(storage.increment(startsWith("quota:tenant:acme:"), anyLong(), any(Duration.class)))
+        .thenAnswer(invocation -> tenantCount.addAndGet(invocation.getArgument(1, Long.class)));
+    when(storage.increment(startsWith("quota:global:"), eq(1L), any(Duration.class)))
+        .thenReturn(11L, 1L);
+    TokenBucketRateLimiter client = new TokenBucketRateLimiter(new InMemoryStorage());
+    HierarchicalRateLimiter limiter = new HierarchicalRateLimiter(client, quotas("redis"));
+
+    RateLimitDecision denied = limiter.decide("client-1", acmeClient);
+    RateLimitDecision allowed = limiter.decide("client-1", acmeClient);
+
+    assertFalse(denied.allowed());
+    assertEquals(10, denied.limit());
+    assertTrue(allowed.allowed());
+    assertEquals(1, tenantCount.get());
+    assertEquals(2, allowed.remaining());
+    assertEquals(98, client.decide("client-1", acmeClient).remaining());
+  }
+
+  @Test
+  void hierarchicalRateLimiter_AllowRequestClientDenied_ShouldHandBackSharedSlots() {
+    clientConfig.setGlobal(new QuotaConfiguration(3));
+    HierarchicalRateLimiter limiter = new HierarchicalRateLimiter(engine, quotas("memory"));
+    when(engine.allowRequest("client-1", acmeClient)).thenReturn(false);
+
+    for (int i = 0; i < 5; i++) {
+      assertFalse(limiter.allowRequest("client-1", acmeClient));
+    }
+    when(engine.allowRequest("client-1", acmeClient)).thenReturn(true);
+
+    for (int i = 0; i < 3; i++) {
+      assertTrue(limiter.allowRequest("client-1", acmeClient));
+    }
+  }
+
+  @Test
+  void decideAsync_RedisStorageClientDenied_ShouldHandBackTenantAndGlobalSlots() {
+    clientConfig.setGlobal(new QuotaConfiguration(1000));
+    when(storage.incrementAsync(startsWith("quota:"), anyLong(), any(Duration.class)))
+        .thenReturn(CompletableFuture.completedFuture(1L));
+    RateLimitDecision clientDenied = new RateLimitDecision(false, 100, 0, 600, 600);
+
+    RateLimitDecision decision =
+        quotas("redis")
+            .decideAsync(acmeClient, () -> CompletableFuture.completedFuture(clientDenied))
+            .toCompletableFuture()
+            .join();
+
+    assertSame(clientDenied, decision);
+    verify(storage).incrementAsync(startsWith("quota:tenant:acme:"), eq(-1L), any(Duration.class));
+    verify(storage).incrementAsync(startsWith("quota:global:"), eq(-1L), any(Duration.class));
+  }
+
+  @Test
+  void decide_ClientEngineThrows_ShouldHandBackTenantSlotAndRethrow() {
+    HierarchicalQuotas quotas = quotas("memory");
+
+    for (int i = 0; i < 5; i++) {
+      assertThrows(
+          IllegalStateException.class,
+          () ->
+              quotas.decide(
+                  acmeClient,
+                  () -> {
+                    throw new IllegalStateException("storage down");
+                  }));
+    }
+
+    assertEquals(2, quotas.decide(acmeClient, () -> CLIENT_ALLOWED).remaining());
+  }
+}
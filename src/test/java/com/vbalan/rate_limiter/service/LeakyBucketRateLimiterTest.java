@@ -0,0 +1,183 @@
+package com.vbalan.rate_limiter.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.vbalan.rate_limiter.model.ClientConfiguration;
+import com.vbalan.rate_limiter.storage.AtomicOperation;
+import com.vbalan.rate_limiter.storage.InMemoryStorage;
+import com.vbalan.rate_limiter.storage.RateLimitStorage;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class LeakyBucketRateLimiterTest {
+
+  @Mock private RateLimitStorage storage;
+
+  // 600 requests per minute: one slot every 100 ms.
+  private final ClientConfiguration config = new ClientConfiguration(600, 5);
+  private static final String CLIENT_ID = "test-client";
+  private static final long NOW = 1_000_000;
+  private static final long INTERVAL_US = 100_000;
+  private static final long MAX_DELAY_US = 300_000;
+
+  private LeakyBucketRateLimiter rateLimiter;
+
+  @BeforeEach
+  void setUp() {
+    rateLimiter = new LeakyBucketRateLimiter(storage, Duration.ofMillis(300));
+  }
+
+  private static long[] apply(long[] state, long now) {
+    LeakyBucketOperation operation =
+        new LeakyBucketOperation(CLIENT_ID, new ClientConfiguration(600, 5), MAX_DELAY_US, now);
+    operation.apply(state);
+    return operation.reply();
+  }
+
+  @Test
+  void apply_Burst_ShouldDelayEachRequestOneIntervalMoreUntilMaxDelay() {
+    long[] state = {NOW * 1000};
+
+    for (int i = 0; i < 4; i++) {
+      long[] reply = apply(state, NOW);
+      assertEquals(1, reply[0]);
+      assertEquals(i * INTERVAL_US, reply[1]);
+    }
+    assertEquals(0, apply(state, NOW)[0]);
+    assertEquals(NOW * 1000 + 4 * INTERVAL_US, state[0]);
+  }
+
+  @Test
+  void apply_SlotInThePast_ShouldProceedWithoutDelay() {
+    long[] state = {NOW * 1000 - 60_000_000};
+
+    long[] reply = apply(state, NOW);
+
+    assertArrayEquals(new long[] {1, 0, INTERVAL_US}, reply);
+    assertEquals(NOW * 1000 + INTERVAL_US, state[0]);
+  }
+
+  @Test
+  void apply_Denied_ShouldReserveNothing() {
+    LeakyBucketOperation operation = new LeakyBucketOperation(CLIENT_ID, config, MAX_DELAY_US, NOW);
+    long[] state = {NOW * 1000 + 4 * INTERVAL_US};
+
+    assertSame(state, operation.apply(state));
+    assertEquals(NOW * 1000 + 4 * INTERVAL_US, state[0]);
+    assertArrayEquals(new long[] {0, 4 * INTERVAL_US, 4 * INTERVAL_US}, operation.reply());
+  }
+
+  @Test
+  void decision_Allowed_ShouldCarryDelayAndQueueRoom() {
+    RateLimitDecision decision =
+        LeakyBucketOperation.decision(
+            new long[] {1, INTERVAL_US, 2 * INTERVAL_US}, config, MAX_DELAY_US);
+
+    assertEquals(new RateLimitDecision(true, 4, 2, 200, 0, 100), decision);
+  }
+
+  @Test
+  void decision_Denied_ShouldRetryOnceSlotIsWithinMaxDelay() {
+    RateLimitDecision decision =
+        LeakyBucketOperation.decision(
+            new long[] {0, 4 * INTERVAL_US + 50_000, 4 * INTERVAL_US + 50_000},
+            config,
+            MAX_DELAY_US);
+
+    assertFalse(decision.allowed());
+    assertEquals(0, decision.remaining());
+    assertEquals(150, decision.retryAfterMillis());
+    assertEquals(0, decision.delayMillis());
+  }
+
+  @Test
+  void decide_ShouldUseSingleKeyWithTtlOfMaxDelayPlusInterval() {
+    when(storage.compute(any(AtomicOperation.class), any(Duration.class)))
+        .thenReturn(new long[] {1, 0, INTERVAL_US});
+    ArgumentCaptor<AtomicOperation> captor = ArgumentCaptor.forClass(AtomicOperation.class);
+
+    assertEquals(0, rateLimiter.decide(CLIENT_ID, config).delayMillis());
+
+    verify(storage).compute(captor.capture(), eq(Duration.ofMillis(400)));
+    assertEquals(List.of("leaky_bucket:{" + CLIENT_ID + "}"), captor.getValue().keys());
+    long[] arguments = captor.getValue().arguments();
+    assertEquals(INTERVAL_US, arguments[1]);
+    assertEquals(MAX_DELAY_US, arguments[2]);
+  }
+
+  @Test
+  void decideAsync_ShouldDecideFromAsyncStorageReply() {
+    when(storage.computeAsync(any(AtomicOperation.class), any(Duration.class)))
+        .thenReturn(
+            CompletableFuture.completedFuture(new long[] {1, 2 * INTERVAL_US, 3 * INTERVAL_US}));
+
+    RateLimitDecision decision =
+        rateLimiter.decideAsync(CLIENT_ID, config).toCompletableFuture().join();
+
+    assertTrue(decision.allowed());
+    assertEquals(200, decision.delayMillis());
+    verify(storage, never()).compute(any(), any());
+  }
+
+  @Test
+  void decide_InMemoryStorage_ShouldSpaceBurstOutThenReject() {
+    LeakyBucketRateLimiter inMemory =
+        new LeakyBucketRateLimiter(new InMemoryStorage(), Duration.ofMillis(300));
+
+    long previousDelay = -1;
+    for (int i = 0; i < 4; i++) {
+      RateLimitDecision decision = inMemory.decide(CLIENT_ID, config);
+      assertTrue(decision.allowed());
+      assertTrue(decision.delayMillis() > previousDelay);
+      previousDelay = decision.delayMillis();
+    }
+    assertFalse(inMemory.decide(CLIENT_ID, config).allowed());
+  }
+
+  @Test
+  void decide_ZeroMaxDelay_ShouldRejectInsteadOfQueuing() {
+    LeakyBucketRateLimiter strict =
+        new LeakyBucketRateLimiter(new InMemoryStorage(), Duration.ZERO);
+
+    assertTrue(strict.decide(CLIENT_ID, config).allowed());
+    assertFalse(strict.decide(CLIENT_ID, config).allowed());
+  }
+
+  @Test
+  void decide_ZeroRequestsPerMinute_ShouldDenyWithoutQueuing() {
+    ClientConfiguration blocked = new ClientConfiguration(0, 5);
+
+    RateLimitDecision decision = rateLimiter.decide(CLIENT_ID, blocked);
+    RateLimitDecision async =
+        rateLimiter.decideAsync(CLIENT_ID, blocked).toCompletableFuture().join();
+
+    assertFalse(decision.allowed());
+    assertEquals(0, decision.delayMillis());
+    assertEquals(60_000, decision.retryAfterMillis());
+    assertEquals(decision, async);
+    verifyNoInteractions(storage);
+  }
+
+  @Test
+  void constructor_NegativeMaxDelay_ShouldThrow() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new LeakyBucketRateLimiter(storage, Duration.ofMillis(-1)));
+  }
+
+  @Test
+  void rateLimitDecision_Denied_ShouldCarryNoDelay() {
+    assertEquals(0, new RateLimitDecision(false, 1, 0, 0, 10, 500).delayMillis());
+    assertEquals(0, new RateLimitDecision(true, 1, 0, 0, 0).delayMillis());
+  }
+}
@@ -0,0 +1,206 @@
+package com.vbalan.rate_limiter.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.vbalan.rate_limiter.model.ClientConfiguration;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+@ExtendWith(MockitoExtension.class)
+class LeasedTokenBucketRateLimiterTest {
+
+  @Mock private RedisTemplate<String, String> redisTemplate;
+
+  private final AtomicLong clock = new AtomicLong(10_000);
+  private final ClientConfiguration config = new ClientConfiguration(600, 100);
+  private static final String CLIENT_ID = "test-client";
+
+  private LeasedTokenBucketRateLimiter rateLimiter;
+
+  @BeforeEach
+  void setUp() {
+    rateLimiter = new LeasedTokenBucketRateLimiter(redisTemplate, null, clock::get);
+  }
+
+  @SuppressWarnings("unchecked")
+  private void givenGranted(Long... granted) {
+    var stubbing =
+        when(
+            redisTemplate.execute(
+                any(RedisScript.class),
+                any(RedisSerializer.class),
+                any(RedisSerializer.class),
+                anyList(),
+                any(Object[].class)));
+    for (Long value : granted) {
+      stubbing = stubbing.thenReturn(List.of(value, 0L));
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<String> requestedSizes(int times) {
+    ArgumentCaptor<byte[]> size = ArgumentCaptor.forClass(byte[].class);
+    verify(redisTemplate, times(times))
+        .execute(
+            any(RedisScript.class),
+            any(RedisSerializer.class),
+            any(RedisSerializer.class),
+            anyList(),
+            any(),
+            any(),
+            any(),
+            size.capture());
+    return size.getAllValues().stream().map(String::new).toList();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void constructor_ShouldPreloadScript() {
+    verify(redisTemplate).execute(any(RedisCallback.class));
+  }
+
+  @Test
+  void allowRequest_FirstRequest_ShouldLeaseSingleTokenFromSharedBucket() {
+    givenGranted(1L);
+
+    assertTrue(rateLimiter.allowRequest(CLIENT_ID, config));
+
+    assertEquals(List.of("1"), requestedSizes(1));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void allowRequest_ShouldUseTokenBucketKeysAndConfiguration() {
+    givenGranted(1L);
+
+    rateLimiter.allowRequest(CLIENT_ID, config);
+
+    verify(redisTemplate)
+        .execute(
+            any(RedisScript.class),
+            any(RedisSerializer.class),
+            any(RedisSerializer.class),
+            eq(List.of("tokens:{" + CLIENT_ID + "}", "lastRefill:{" + CLIENT_ID + "}")),
+            aryEq("600".getBytes()),
+            aryEq("100".getBytes()),
+            aryEq("120000".getBytes()),
+            aryEq("1".getBytes()));
+  }
+
+  @Test
+  void allowRequest_WithinLease_ShouldNotCallRedis() {
+    givenGranted(1L, 20L);
+    rateLimiter.allowRequest(CLIENT_ID, config);
+    clock.addAndGet(10);
+    rateLimiter.allowRequest(CLIENT_ID, config);
+
+    for (int i = 0; i < 19; i++) {
+      assertTrue(rateLimiter.allowRequest(CLIENT_ID, config));
+    }
+
+    requestedSizes(2);
+  }
+
+  @Test
+  void allowRequest_HighLocalRate_ShouldGrowLeaseUpToQuarterOfCapacity() {
+    givenGranted(1L, 25L, 25L);
+
+    rateLimiter.allowRequest(CLIENT_ID, config);
+    clock.addAndGet(1);
+    rateLimiter.allowRequest(CLIENT_ID, config);
+    for (int i = 0; i < 24; i++) {
+      rateLimiter.allowRequest(CLIENT_ID, config);
+    }
+    clock.addAndGet(1);
+    rateLimiter.allowRequest(CLIENT_ID, config);
+
+    assertEquals(List.of("1", "25", "25"), requestedSizes(3));
+  }
+
+  @Test
+  void allowRequest_ExpiredLease_ShouldRenewInsteadOfUsingLeftovers() {
+    givenGranted(5L, 1L);
+    rateLimiter.allowRequest(CLIENT_ID, config);
+
+    clock.addAndGet(LeasedTokenBucketRateLimiter.LEASE_TTL_MS);
+    rateLimiter.allowRequest(CLIENT_ID, config);
+
+    requestedSizes(2);
+  }
+
+  @Test
+  void allowRequest_SharedBucketEmpty_ShouldDenyAndBackOffUntilNextToken() {
+    givenGranted(0L, 1L);
+
+    assertFalse(rateLimiter.allowRequest(CLIENT_ID, config));
+    clock.addAndGet(99);
+    assertFalse(rateLimiter.allowRequest(CLIENT_ID, config));
+    clock.addAndGet(1);
+    assertTrue(rateLimiter.allowRequest(CLIENT_ID, config));
+
+    requestedSizes(2);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void allowRequest_BackingOff_ShouldDenyWithoutWaitingForRenewal() throws Exception {
+    CountDownLatch renewing = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    when(redisTemplate.execute(
+            any(RedisScript.class),
+            any(RedisSerializer.class),
+            any(RedisSerializer.class),
+            anyList(),
+            any(Object[].class)))
+        .thenReturn(List.of(0L, 0L))
+        .thenAnswer(
+            invocation -> {
+              renewing.countDown();
+              release.await();
+              return List.of(1L, 0L);
+            });
+    assertFalse(rateLimiter.allowRequest(CLIENT_ID, config));
+    clock.addAndGet(100);
+    Thread renewer = new Thread(() -> rateLimiter.allowRequest(CLIENT_ID, config));
+    renewer.start();
+    assertTrue(renewing.await(1, TimeUnit.SECONDS));
+
+    // A request that read the clock before the backoff ended, while the renewal holds the lease.
+    clock.addAndGet(-50);
+    try {
+      assertTimeoutPreemptively(
+          Duration.ofSeconds(1), () -> assertFalse(rateLimiter.allowRequest(CLIENT_ID, config)));
+    } finally {
+      release.countDown();
+      renewer.join();
+    }
+  }
+
+  @Test
+  void sweepIdleLeases_ShouldForgetIdleClients() {
+    givenGranted(1L, 1L);
+    rateLimiter.allowRequest(CLIENT_ID, config);
+
+    clock.addAndGet(120_000);
+    rateLimiter.sweepIdleLeases();
+    rateLimiter.allowRequest(CLIENT_ID, config);
+
+    assertEquals(List.of("1", "1"), requestedSizes(2));
+  }
+}
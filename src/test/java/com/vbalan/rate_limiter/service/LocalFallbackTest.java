@@ -0,0 +1,155 @@
+package com.vbalan.rate_limiter.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.vbalan.rate_limiter.exception.StorageUnavailableException;
+import com.vbalan.rate_limiter.model.ClientConfiguration;
+import com.vbalan.rate_limiter.storage.CircuitBreakerStorage;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class LocalFallbackTest {
+  private static final String CLIENT_ID = "test-client";
+
+  @Mock private CircuitBreakerStorage breaker;
+
+  @Mock private RateLimiter engine;
+
+  private final ClientConfiguration config = new ClientConfiguration(10, 4);
+  private FallbackRateLimiter rateLimiter;
+
+  @BeforeEach
+  void setUp() {
+    rateLimiter = new FallbackRateLimiter(engine, new LocalFallback(breaker, 0.5));
+  }
+
+  @Test
+  void decide_CircuitClosed_ShouldUseEngine() {
+    RateLimitDecision decision = new RateLimitDecision(true, 10, 3, 6000, 0);
+    when(engine.decide(CLIENT_ID, config)).thenReturn(decision);
+
+    assertSame(decision, rateLimiter.decide(CLIENT_ID, config));
+  }
+
+  @Test
+  void decide_CircuitOpen_ShouldEnforceShareOfLimitLocally() {
+    when(breaker.isOpen()).thenReturn(true);
+
+    RateLimitDecision first = rateLimiter.decide(CLIENT_ID, config);
+    RateLimitDecision second = rateLimiter.decide(CLIENT_ID, config);
+    RateLimitDecision third = rateLimiter.decide(CLIENT_ID, config);
+
+    assertTrue(first.allowed());
+    assertEquals(2, first.limit());
+    assertTrue(second.allowed());
+    assertFalse(third.allowed());
+    verifyNoInteractions(engine);
+  }
+
+  @Test
+  void decide_StorageCallFails_ShouldDecideLocally() {
+    when(engine.decide(CLIENT_ID, config))
+        .thenThrow(new StorageUnavailableException("Rate limit storage call failed"));
+
+    RateLimitDecision decision = rateLimiter.decide(CLIENT_ID, config);
+
+    assertTrue(decision.allowed());
+    assertEquals(2, decision.limit());
+  }
+
+  @Test
+  void allowRequest_StorageCallFails_ShouldDecideLocally() {
+    when(engine.allowRequest(CLIENT_ID, config))
+        .thenThrow(new StorageUnavailableException("Rate limit storage call failed"));
+
+    assertTrue(rateLimiter.allowRequest(CLIENT_ID, config));
+  }
+
+  @Test
+  void decide_OtherFailure_ShouldPropagate() {
+    when(engine.decide(CLIENT_ID, config)).thenThrow(new IllegalStateException("bug"));
+
+    assertThrows(IllegalStateException.class, () -> rateLimiter.decide(CLIENT_ID, config));
+  }
+
+  @Test
+  void decideAsync_StorageCallFails_ShouldDecideLocally() {
+    when(engine.decideAsync(CLIENT_ID, config))
+        .thenReturn(
+            CompletableFuture.failedFuture(
+                new CompletionException(new StorageUnavailableException("circuit is open"))));
+
+    RateLimitDecision decision =
+        rateLimiter.decideAsync(CLIENT_ID, config).toCompletableFuture().join();
+
+    assertTrue(decision.allowed());
+    assertEquals(2, decision.limit());
+  }
+
+  @Test
+  void decideAsync_OtherFailure_ShouldPropagate() {
+    when(engine.decideAsync(CLIENT_ID, config))
+        .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("bug")));
+
+    CompletionException thrown =
+        assertThrows(
+            CompletionException.class,
+            () -> rateLimiter.decideAsync(CLIENT_ID, config).toCompletableFuture().join());
+
+    assertInstanceOf(IllegalStateException.class, thrown.getCause());
+  }
+
+  @Test
+  void decide_TinyLimit_ShouldKeepAtLeastOneRequest() {
+    when(breaker.isOpen()).thenReturn(true);
+
+    RateLimitDecision decision = rateLimiter.decide(CLIENT_ID, new ClientConfiguration(1, 1));
+
+    assertTrue(decision.allowed());
+    assertEquals(1, decision.limit());
+  }
+
+  @Test
+  void decide_ZeroLimit_ShouldStayDenied() {
+    when(breaker.isOpen()).thenReturn(true);
+
+    assertFalse(rateLimiter.decide(CLIENT_ID, new ClientConfiguration(0, 0)).allowed());
+    assertFalse(rateLimiter.decide("burstless", new ClientConfiguration(10, 0)).allowed());
+  }
+
+  @Test
+  void isEnabled_NoCircuitBreaker_ShouldBeFalse() {
+    LocalFallback fallback = new LocalFallback((CircuitBreakerStorage) null, 0.5);
+
+    assertFalse(fallback.isEnabled());
+    assertFalse(fallback.isActive());
+  }
+
+  @Test
+  void decide_ShardedBreakersNoSingleCircuit_ShouldFallBackPerCall() {
+    LocalFallback fallback = new LocalFallback(true, (CircuitBreakerStorage) null, 0.5);
+    when(engine.decide(CLIENT_ID, config))
+        .thenThrow(new StorageUnavailableException("Rate limit storage circuit is open"));
+
+    RateLimitDecision decision =
+        new FallbackRateLimiter(engine, fallback).decide(CLIENT_ID, config);
+
+    assertTrue(fallback.isEnabled());
+    assertFalse(fallback.isActive());
+    assertTrue(decision.allowed());
+    assertEquals(2, decision.limit());
+  }
+
+  @Test
+  void constructor_ShareOutOfRange_ShouldThrow() {
+    assertThrows(IllegalArgumentException.class, () -> new LocalFallback(breaker, 0));
+    assertThrows(IllegalArgumentException.class, () -> new LocalFallback(breaker, 1.5));
+  }
+}
@@ -0,0 +1,180 @@
+package com.vbalan.rate_limiter.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.vbalan.rate_limiter.model.ClientConfiguration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class LocalTokenBucketRateLimiterTest {
+
+  private final AtomicLong clock = new AtomicLong(1_000);
+  private final ClientConfiguration config = new ClientConfiguration(10, 5);
+  private static final String CLIENT_ID = "test-client";
+
+  private LocalTokenBucketRateLimiter rateLimiter;
+
+  @BeforeEach
+  void setUp() {
+    rateLimiter = new LocalTokenBucketRateLimiter(clock::get);
+  }
+
+  @Test
+  void allowRequest_NewClient_ShouldAllowBurstCapacity() {
+    for (int i = 0; i < 5; i++) {
+      assertTrue(rateLimiter.allowRequest(CLIENT_ID, config));
+    }
+    assertFalse(rateLimiter.allowRequest(CLIENT_ID, config));
+  }
+
+  @Test
+  void allowRequest_AfterRefillInterval_ShouldAllowOneMore() {
+    drain();
+
+    clock.addAndGet(5_999);
+    assertFalse(rateLimiter.allowRequest(CLIENT_ID, config));
+
+    clock.addAndGet(1);
+    assertTrue(rateLimiter.allowRequest(CLIENT_ID, config));
+    assertFalse(rateLimiter.allowRequest(CLIENT_ID, config));
+  }
+
+  @Test
+  void allowRequest_PartialIntervals_ShouldCarryFractionalProgress() {
+    drain();
+
+    clock.addAndGet(4_000);
+    assertFalse(rateLimiter.allowRequest(CLIENT_ID, config));
+    clock.addAndGet(4_000);
+    assertTrue(rateLimiter.allowRequest(CLIENT_ID, config));
+    clock.addAndGet(4_000);
+    assertTrue(rateLimiter.allowRequest(CLIENT_ID, config));
+  }
+
+  @Test
+  void allowRequest_LongIdle_ShouldNotExceedCapacity() {
+    drain();
+
+    clock.addAndGet(3_600_000);
+
+    for (int i = 0; i < 5; i++) {
+      assertTrue(rateLimiter.allowRequest(CLIENT_ID, config));
+    }
+    assertFalse(rateLimiter.allowRequest(CLIENT_ID, config));
+  }
+
+  @Test
+  void allowRequest_DifferentClients_ShouldHaveSeparateBuckets() {
+    drain();
+
+    assertTrue(rateLimiter.allowRequest("other-client", config));
+  }
+
+  @Test
+  void allowRequest_ConcurrentHotClient_ShouldGrantExactlyCapacity() throws InterruptedException {
+    ClientConfiguration noRefill = new ClientConfiguration(0, 5_000);
+    int threadCount = 16;
+    AtomicInteger allowed = new AtomicInteger();
+    CountDownLatch start = new CountDownLatch(1);
+    Thread[] threads = new Thread[threadCount];
+
+    for (int i = 0; i < threadCount; i++) {
+      threads[i] =
+          new Thread(
+              () -> {
+                try {
+                  start.await();
+                } catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+                }
+                for (int j = 0; j < 1_000; j++) {
+                  if (rateLimiter.allowRequest(CLIENT_ID, noRefill)) {
+                    allowed.incrementAndGet();
+                  }
+                }
+              });
+      threads[i].start();
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertEquals(5_000, allowed.get());
+  }
+
+  @Test
+  void sweepIdleBuckets_ShouldDropOnlyBucketsIdleForTwoMinutes() {
+    rateLimiter.allowRequest("idle-client", config);
+    clock.addAndGet(60_000);
+    rateLimiter.allowRequest(CLIENT_ID, config);
+
+    clock.addAndGet(60_000);
+    rateLimiter.sweepIdleBuckets();
+
+    assertEquals(1, rateLimiter.size());
+  }
+
+  @Test
+  void sweepIdleBuckets_ZeroRateClientStillRequesting_ShouldKeepItDenied() {
+    ClientConfiguration noRefill = new ClientConfiguration(0, 1);
+    assertTrue(rateLimiter.allowRequest(CLIENT_ID, noRefill));
+    for (int i = 0; i < 4; i++) {
+      clock.addAndGet(60_000);
+      assertFalse(rateLimiter.allowRequest(CLIENT_ID, noRefill));
+      rateLimiter.sweepIdleBuckets();
+    }
+
+    assertEquals(1, rateLimiter.size());
+    assertFalse(rateLimiter.allowRequest(CLIENT_ID, noRefill));
+  }
+
+  @Test
+  void allowRequest_AfterSweep_ShouldStartWithFullBucket() {
+    drain();
+    clock.addAndGet(120_000);
+
+    rateLimiter.sweepIdleBuckets();
+
+    assertEquals(0, rateLimiter.size());
+    for (int i = 0; i < 5; i++) {
+      assertTrue(rateLimiter.allowRequest(CLIENT_ID, config));
+    }
+    assertFalse(rateLimiter.allowRequest(CLIENT_ID, config));
+  }
+
+  @Test
+  void start_ShouldRunSweeperUntilStopped() {
+    rateLimiter.start();
+    assertTrue(rateLimiter.isRunning());
+
+    rateLimiter.stop();
+    assertFalse(rateLimiter.isRunning());
+  }
+
+  private void drain() {
+    while (rateLimiter.allowRequest(CLIENT_ID, config)) {
+      // consume the initial burst
+    }
+  }
+
+  @Test
+  void decide_ShouldReportQuotaFromBucketWord() {
+    RateLimitDecision first = rateLimiter.decide(CLIENT_ID, config);
+    assertTrue(first.allowed());
+    assertEquals(4, first.remaining());
+    assertEquals(6_000, first.resetMillis());
+
+    drain();
+    clock.addAndGet(4_000);
+    RateLimitDecision denied = rateLimiter.decide(CLIENT_ID, config);
+
+    assertFalse(denied.allowed());
+    assertEquals(0, denied.remaining());
+    assertEquals(2_000, denied.retryAfterMillis());
+    assertEquals(26_000, denied.resetMillis());
+  }
+}
@@ -0,0 +1,189 @@
+package com.vbalan.rate_limiter.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.vbalan.rate_limiter.model.ClientConfiguration;
+import com.vbalan.rate_limiter.model.LimitConfiguration;
+import com.vbalan.rate_limiter.storage.AtomicOperation;
+import com.vbalan.rate_limiter.storage.InMemoryStorage;
+import com.vbalan.rate_limiter.storage.RateLimitStorage;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class MultiLimitRateLimiterTest {
+
+  @Mock private RateLimitStorage storage;
+
+  private static final String CLIENT_ID = "test-client";
+  private static final long NOW = 1_000_000;
+  // 2 per second and 3 per minute.
+  private final ClientConfiguration config =
+      new ClientConfiguration(
+          10,
+          5,
+          List.of(
+              new LimitConfiguration(2, Duration.ofSeconds(1), 0),
+              new LimitConfiguration(3, Duration.ofMinutes(1), 0)));
+  private final long[] cells = MultiLimitOperation.cells(config);
+
+  private MultiLimitRateLimiter rateLimiter;
+
+  @BeforeEach
+  void setUp() {
+    rateLimiter = new MultiLimitRateLimiter(storage);
+  }
+
+  private long[] apply(long[] state, long now) {
+    MultiLimitOperation operation = new MultiLimitOperation(CLIENT_ID, cells, now);
+    long[] next = operation.apply(state);
+    if (next != null && state != null && next != state) {
+      System.arraycopy(next, 0, state, 0, state.length);
+    }
+    return operation.reply();
+  }
+
+  @Test
+  void cells_ShouldConvertEachLimitToIntervalAndTolerance() {
+    assertArrayEquals(new long[] {500_000, 1_000_000, 20_000_000, 60_000_000}, cells);
+  }
+
+  @Test
+  void cells_NoLimits_ShouldFallBackToRequestsPerMinuteAndBurst() {
+    assertArrayEquals(
+        new long[] {6_000_000, 30_000_000},
+        MultiLimitOperation.cells(new ClientConfiguration(10, 5)));
+  }
+
+  @Test
+  void cells_ExplicitBurst_ShouldOverrideFullQuota() {
+    ClientConfiguration bursty =
+        new ClientConfiguration(
+            10, 5, List.of(new LimitConfiguration(100, Duration.ofSeconds(10), 5)));
+
+    assertArrayEquals(new long[] {100_000, 500_000}, MultiLimitOperation.cells(bursty));
+  }
+
+  @Test
+  void decide_ZeroRequestLimitInMemory_ShouldDenyAllAndRetryAfterPeriod() {
+    MultiLimitRateLimiter inMemory = new MultiLimitRateLimiter(new InMemoryStorage());
+    ClientConfiguration blocked =
+        new ClientConfiguration(
+            10,
+            5,
+            List.of(
+                new LimitConfiguration(2, Duration.ofSeconds(1), 0),
+                new LimitConfiguration(0, Duration.ofMinutes(1), 5)));
+
+    RateLimitDecision decision = inMemory.decide(CLIENT_ID, blocked);
+
+    assertFalse(decision.allowed());
+    assertEquals(0, decision.limit());
+    assertEquals(0, decision.remaining());
+    assertEquals(60_000, decision.retryAfterMillis());
+    assertFalse(inMemory.allowRequest(CLIENT_ID, blocked));
+  }
+
+  @Test
+  void cells_NoLimitsAndZeroRequestsPerMinute_ShouldNeverAllow() {
+    long[] blocked = MultiLimitOperation.cells(new ClientConfiguration(0, 5));
+    MultiLimitOperation operation = new MultiLimitOperation(CLIENT_ID, blocked, NOW);
+
+    assertNull(operation.apply(null));
+    assertEquals(0, operation.reply()[0]);
+  }
+
+  @Test
+  void apply_ShouldDenyOnTightestLimit() {
+    long[] state = {NOW * 1000, NOW * 1000};
+
+    assertEquals(1, apply(state, NOW)[0]);
+    assertEquals(1, apply(state, NOW)[0]);
+    // Per second is exhausted although per minute has room.
+    assertEquals(0, apply(state, NOW)[0]);
+    // A second later the per-second limit allows again; the third request fills the minute.
+    assertEquals(1, apply(state, NOW + 1000)[0]);
+    assertEquals(0, apply(state, NOW + 2000)[0]);
+  }
+
+  @Test
+  void apply_Denied_ShouldConsumeNoLimit() {
+    long[] state = {NOW * 1000, NOW * 1000 + 60_000_000};
+    MultiLimitOperation operation = new MultiLimitOperation(CLIENT_ID, cells, NOW);
+
+    assertSame(state, operation.apply(state));
+    assertArrayEquals(new long[] {NOW * 1000, NOW * 1000 + 60_000_000}, state);
+    assertArrayEquals(new long[] {0, 0, 60_000_000}, operation.reply());
+  }
+
+  @Test
+  void apply_StateFromDifferentPolicy_ShouldStartFromScratch() {
+    MultiLimitOperation operation = new MultiLimitOperation(CLIENT_ID, cells, NOW);
+
+    long[] state = operation.apply(new long[] {NOW * 1000 + 60_000_000});
+
+    assertArrayEquals(new long[] {NOW * 1000 + 500_000, NOW * 1000 + 20_000_000}, state);
+    assertEquals(1, operation.reply()[0]);
+  }
+
+  @Test
+  void decision_ShouldReportMostConstrainedLimitAndWaitForAll() {
+    RateLimitDecision allowed =
+        MultiLimitOperation.decision(new long[] {1, 500_000, 40_000_000}, cells);
+    RateLimitDecision denied =
+        MultiLimitOperation.decision(new long[] {0, 1_000_000, 60_000_000}, cells);
+
+    // Per second has 1 left, per minute 1 left: the first one found wins.
+    assertEquals(new RateLimitDecision(true, 2, 1, 40_000, 0), allowed);
+    assertFalse(denied.allowed());
+    assertEquals(0, denied.remaining());
+    assertEquals(60_000, denied.resetMillis());
+    assertEquals(20_000, denied.retryAfterMillis());
+  }
+
+  @Test
+  void decide_ShouldUseOneComputeOnOneKey() {
+    when(storage.compute(any(AtomicOperation.class), any(Duration.class)))
+        .thenReturn(new long[] {1, 500_000, 20_000_000});
+    ArgumentCaptor<AtomicOperation> captor = ArgumentCaptor.forClass(AtomicOperation.class);
+
+    assertTrue(rateLimiter.decide(CLIENT_ID, config).allowed());
+
+    verify(storage).compute(captor.capture(), eq(Duration.ofMinutes(1)));
+    verifyNoMoreInteractions(storage);
+    assertEquals(List.of("multi_limit:{" + CLIENT_ID + "}"), captor.getValue().keys());
+    assertEquals(5, captor.getValue().arguments().length);
+  }
+
+  @Test
+  void decideAsync_ShouldDecideFromAsyncStorageReply() {
+    when(storage.computeAsync(any(AtomicOperation.class), any(Duration.class)))
+        .thenReturn(CompletableFuture.completedFuture(new long[] {0, 1_000_000, 40_000_000}));
+
+    RateLimitDecision decision =
+        rateLimiter.decideAsync(CLIENT_ID, config).toCompletableFuture().join();
+
+    assertFalse(decision.allowed());
+    assertEquals(500, decision.retryAfterMillis());
+    verify(storage, never()).compute(any(), any());
+  }
+
+  @Test
+  void allowRequest_InMemoryStorage_ShouldEnforceTightestLimit() {
+    MultiLimitRateLimiter inMemory = new MultiLimitRateLimiter(new InMemoryStorage());
+
+    assertTrue(inMemory.allowRequest(CLIENT_ID, config));
+    assertTrue(inMemory.allowRequest(CLIENT_ID, config));
+    assertFalse(inMemory.allowRequest(CLIENT_ID, config));
+    assertTrue(inMemory.allowRequest("other-client", config));
+  }
+}
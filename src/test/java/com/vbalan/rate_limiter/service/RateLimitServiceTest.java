@@ -0,0 +1,178 @@
+package com.vbalan.rate_limiter.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.vbalan.rate_limiter.config.ClientConfig;
+import com.vbalan.rate_limiter.model.ClientConfiguration;
+import com.vbalan.rate_limiter.model.QuotaConfiguration;
+import com.vbalan.rate_limiter.storage.CircuitBreakerStorage;
+import com.vbalan.rate_limiter.storage.RateLimitStorage;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class RateLimitServiceTest {
+
+  @Mock private RateLimiter tokenBucket;
+
+  @Mock private RateLimiter slidingWindow;
+
+  @Mock private RateLimiter redisTokenBucket;
+
+  private ClientConfig clientConfig;
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final ClientConfiguration config = new ClientConfiguration(10, 5);
+  private static final String CLIENT_ID = "test-client";
+
+  @BeforeEach
+  void setUp() {
+    clientConfig = new ClientConfig();
+  }
+
+  private RateLimitService service() {
+    return service(
+        Map.of(
+            "token-bucket", tokenBucket,
+            "sliding-window", slidingWindow,
+            "redis-token-bucket", redisTokenBucket),
+        List.of());
+  }
+
+  private RateLimitService service(Map<String, RateLimiter> rateLimiters, List<String> shards) {
+    return new RateLimitService(
+        rateLimiters,
+        clientConfig,
+        new HierarchicalQuotas(clientConfig, mock(RateLimitStorage.class), "memory"),
+        new LocalFallback((CircuitBreakerStorage) null, 0.5),
+        meterRegistry,
+        "memory",
+        shards);
+  }
+
+  @Test
+  void allowRequest_DefaultEndpoints_ShouldUseTokenBucketAndSlidingWindow() {
+    when(tokenBucket.allowRequest(CLIENT_ID, config)).thenReturn(true);
+    when(slidingWindow.allowRequest(CLIENT_ID, config)).thenReturn(false);
+
+    RateLimitService rateLimitService = service();
+
+    assertTrue(rateLimitService.allowRequestForFoo(CLIENT_ID, config));
+    assertFalse(rateLimitService.allowRequestForBar(CLIENT_ID, config));
+    verifyNoInteractions(redisTokenBucket);
+  }
+
+  @Test
+  void allowRequest_ConfiguredAlgorithm_ShouldUseSelectedEngine() {
+    clientConfig.getEndpoints().put("foo", "redis-token-bucket");
+    when(redisTokenBucket.allowRequest(CLIENT_ID, config)).thenReturn(true);
+
+    assertTrue(service().allowRequestForFoo(CLIENT_ID, config));
+    verifyNoInteractions(tokenBucket);
+  }
+
+  @Test
+  void allowRequest_AdditionalEndpoint_ShouldUseItsConfiguredEngine() {
+    clientConfig.getEndpoints().put("baz", "redis-token-bucket");
+    when(redisTokenBucket.allowRequest(CLIENT_ID, config)).thenReturn(false);
+
+    assertFalse(service().allowRequest("baz", CLIENT_ID, config));
+    verifyNoInteractions(tokenBucket, slidingWindow);
+  }
+
+  @Test
+  void allowRequest_UnknownEndpoint_ShouldThrow() {
+    RateLimitService rateLimitService = service();
+
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> rateLimitService.allowRequest("unknown", CLIENT_ID, config));
+  }
+
+  @Test
+  void decide_ShouldReturnEngineDecisionAndRecordOutcome() {
+    RateLimitDecision denied = new RateLimitDecision(false, 3, 0, 60000, 20000);
+    when(slidingWindow.decide(CLIENT_ID, config)).thenReturn(denied);
+
+    assertSame(denied, service().decide("bar", CLIENT_ID, config));
+    assertEquals(1, decisions("bar", "sliding-window", "denied").count());
+  }
+
+  @Test
+  void decide_TenantQuotaConfigured_ShouldLayerItOverEngineDecision() {
+    clientConfig.getTenants().put("acme", new QuotaConfiguration(1));
+    ClientConfiguration tenantClient = new ClientConfiguration(10, 5, List.of(), "acme");
+    when(tokenBucket.decide(CLIENT_ID, tenantClient))
+        .thenReturn(new RateLimitDecision(true, 5, 4, 12000, 0));
+    RateLimitService rateLimitService = service();
+
+    assertTrue(rateLimitService.decide("foo", CLIENT_ID, tenantClient).allowed());
+    assertFalse(rateLimitService.decide("foo", CLIENT_ID, tenantClient).allowed());
+    assertEquals(1, decisions("foo", "token-bucket", "denied").count());
+  }
+
+  @Test
+  void isBlocking_TenantQuotaConfigured_ShouldReportWrappedEngine() {
+    clientConfig.getTenants().put("acme", new QuotaConfiguration(1));
+    when(tokenBucket.isBlocking()).thenReturn(false);
+    when(slidingWindow.isBlocking()).thenReturn(true);
+    RateLimitService rateLimitService = service();
+
+    assertFalse(rateLimitService.isBlocking("foo"));
+    assertTrue(rateLimitService.isBlocking("bar"));
+  }
+
+  @Test
+  void constructor_ShardedStorageWithRedisScriptEngine_ShouldFailFast() {
+    clientConfig.getEndpoints().put("foo", "redis-token-bucket");
+    Map<String, RateLimiter> rateLimiters =
+        Map.of(
+            "redis-token-bucket",
+            mock(RedisTokenBucketRateLimiter.class),
+            "sliding-window",
+            slidingWindow);
+
+    IllegalStateException thrown =
+        assertThrows(
+            IllegalStateException.class,
+            () -> service(rateLimiters, List.of("redis-1:6379", "redis-2:6379")));
+
+    assertTrue(thrown.getMessage().contains("redis-token-bucket"));
+    assertDoesNotThrow(() -> service(rateLimiters, List.of()));
+  }
+
+  @Test
+  void constructor_UnknownAlgorithm_ShouldFailFast() {
+    clientConfig.getEndpoints().put("bar", "unknown");
+
+    assertThrows(IllegalStateException.class, this::service);
+  }
+
+  @Test
+  void allowRequest_ShouldRecordDecisionOnPreRegisteredOutcomeTimer() {
+    when(tokenBucket.allowRequest(CLIENT_ID, config)).thenReturn(true, false, false);
+    RateLimitService rateLimitService = service();
+
+    rateLimitService.allowRequestForFoo(CLIENT_ID, config);
+    rateLimitService.allowRequestForFoo(CLIENT_ID, config);
+    rateLimitService.allowRequestForFoo(CLIENT_ID, config);
+
+    assertEquals(1, decisions("foo", "token-bucket", "allowed").count());
+    assertEquals(2, decisions("foo", "token-bucket", "denied").count());
+    assertEquals(0, decisions("bar", "sliding-window", "allowed").count());
+  }
+
+  private Timer decisions(String endpoint, String algorithm, String outcome) {
+    return meterRegistry
+        .get("rate.limit.decisions")
+        .tags("endpoint", endpoint, "algorithm", algorithm, "backend", "memory", "outcome", outcome)
+        .timer();
+  }
+}
@@ -0,0 +1,144 @@
+package com.vbalan.rate_limiter.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.vbalan.rate_limiter.model.ClientConfiguration;
+import com.vbalan.rate_limiter.storage.CircuitBreakerStorage;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+@ExtendWith(MockitoExtension.class)
+class RedisSlidingWindowRateLimiterTest {
+
+  @Mock private RedisTemplate<String, String> redisTemplate;
+
+  private RedisSlidingWindowRateLimiter rateLimiter;
+  private final ClientConfiguration config = new ClientConfiguration(3, 10);
+  private static final String CLIENT_ID = "test-client";
+
+  @BeforeEach
+  void setUp() {
+    rateLimiter = new RedisSlidingWindowRateLimiter(redisTemplate, (CircuitBreakerStorage) null);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void constructor_ShouldPreloadScript() {
+    verify(redisTemplate).execute(any(RedisCallback.class));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void allowRequest_ScriptAllows_ShouldAllow() {
+    when(redisTemplate.execute(
+            any(RedisScript.class),
+            any(RedisSerializer.class),
+            any(RedisSerializer.class),
+            anyList(),
+            any(Object[].class)))
+        .thenReturn(List.of(1L, 1L));
+
+    assertTrue(rateLimiter.allowRequest(CLIENT_ID, config));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void allowRequest_ScriptDenies_ShouldDeny() {
+    when(redisTemplate.execute(
+            any(RedisScript.class),
+            any(RedisSerializer.class),
+            any(RedisSerializer.class),
+            anyList(),
+            any(Object[].class)))
+        .thenReturn(List.of(0L, 3L));
+
+    assertFalse(rateLimiter.allowRequest(CLIENT_ID, config));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void allowRequest_ShouldUseSortedSetScriptWithConstantArguments() {
+    when(redisTemplate.execute(
+            any(RedisScript.class),
+            any(RedisSerializer.class),
+            any(RedisSerializer.class),
+            anyList(),
+            any(Object[].class)))
+        .thenReturn(List.of(1L, 1L));
+    ArgumentCaptor<RedisScript<List>> script = ArgumentCaptor.forClass(RedisScript.class);
+
+    rateLimiter.allowRequest(CLIENT_ID, config);
+
+    verify(redisTemplate)
+        .execute(
+            script.capture(),
+            any(RedisSerializer.class),
+            any(RedisSerializer.class),
+            eq(List.of("sliding_log:{" + CLIENT_ID + "}")),
+            aryEq("3".getBytes()),
+            aryEq("60000".getBytes()),
+            aryEq("120000".getBytes()),
+            any());
+    String source = script.getValue().getScriptAsString();
+    assertTrue(source.contains("ZREMRANGEBYSCORE"));
+    assertTrue(source.contains("ZCARD"));
+    assertTrue(source.contains("ZADD"));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void allowRequest_ConsecutiveRequests_ShouldUseDistinctMembers() {
+    when(redisTemplate.execute(
+            any(RedisScript.class),
+            any(RedisSerializer.class),
+            any(RedisSerializer.class),
+            anyList(),
+            any(Object[].class)))
+        .thenReturn(List.of(1L, 1L));
+    ArgumentCaptor<byte[]> member = ArgumentCaptor.forClass(byte[].class);
+
+    rateLimiter.allowRequest(CLIENT_ID, config);
+    rateLimiter.allowRequest(CLIENT_ID, config);
+
+    verify(redisTemplate, times(2))
+        .execute(
+            any(RedisScript.class),
+            any(RedisSerializer.class),
+            any(RedisSerializer.class),
+            anyList(),
+            any(),
+            any(),
+            any(),
+            member.capture());
+    assertFalse(Arrays.equals(member.getAllValues().get(0), member.getAllValues().get(1)));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void decide_ShouldTakeQuotaFromScriptReply() {
+    when(redisTemplate.execute(
+            any(RedisScript.class),
+            any(RedisSerializer.class),
+            any(RedisSerializer.class),
+            anyList(),
+            any(Object[].class)))
+        .thenReturn(List.of(0L, 3L, 45000L, 5000L));
+
+    RateLimitDecision decision = rateLimiter.decide(CLIENT_ID, config);
+
+    assertEquals(new RateLimitDecision(false, 3, 0, 55000, 15000), decision);
+  }
+}
@@ -0,0 +1,166 @@
+package com.vbalan.rate_limiter.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.vbalan.rate_limiter.exception.StorageUnavailableException;
+import com.vbalan.rate_limiter.model.ClientConfiguration;
+import com.vbalan.rate_limiter.storage.CircuitBreakerStorage;
+import com.vbalan.rate_limiter.storage.RateLimitStorage;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+@ExtendWith(MockitoExtension.class)
+class RedisTokenBucketRateLimiterTest {
+
+  @Mock private RedisTemplate<String, String> redisTemplate;
+
+  private RedisTokenBucketRateLimiter rateLimiter;
+  private final ClientConfiguration config = new ClientConfiguration(10, 5);
+  private static final String CLIENT_ID = "test-client";
+
+  @BeforeEach
+  void setUp() {
+    rateLimiter = new RedisTokenBucketRateLimiter(redisTemplate, (CircuitBreakerStorage) null);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void constructor_ShouldPreloadScript() {
+    verify(redisTemplate).execute(any(RedisCallback.class));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void allowRequest_ScriptAllows_ShouldAllow() {
+    when(redisTemplate.execute(
+            any(RedisScript.class),
+            any(RedisSerializer.class),
+            any(RedisSerializer.class),
+            anyList(),
+            any(Object[].class)))
+        .thenReturn(List.of(1L, 4L));
+
+    assertTrue(rateLimiter.allowRequest(CLIENT_ID, config));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void allowRequest_ScriptDenies_ShouldDeny() {
+    when(redisTemplate.execute(
+            any(RedisScript.class),
+            any(RedisSerializer.class),
+            any(RedisSerializer.class),
+            anyList(),
+            any(Object[].class)))
+        .thenReturn(List.of(0L, 0L));
+
+    assertFalse(rateLimiter.allowRequest(CLIENT_ID, config));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void allowRequest_ShouldSendConfigurationWithoutClientTime() {
+    when(redisTemplate.execute(
+            any(RedisScript.class),
+            any(RedisSerializer.class),
+            any(RedisSerializer.class),
+            anyList(),
+            any(Object[].class)))
+        .thenReturn(List.of(1L, 4L));
+    ArgumentCaptor<RedisScript<List>> script = ArgumentCaptor.forClass(RedisScript.class);
+
+    rateLimiter.allowRequest(CLIENT_ID, config);
+
+    verify(redisTemplate)
+        .execute(
+            script.capture(),
+            any(RedisSerializer.class),
+            any(RedisSerializer.class),
+            eq(List.of("tokens:{" + CLIENT_ID + "}", "lastRefill:{" + CLIENT_ID + "}")),
+            aryEq("10".getBytes()),
+            aryEq("5".getBytes()),
+            aryEq("120000".getBytes()));
+    assertTrue(script.getValue().getScriptAsString().contains("redis.call('TIME')"));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void allowRequest_RepeatedCalls_ShouldReuseSameScript() {
+    when(redisTemplate.execute(
+            any(RedisScript.class),
+            any(RedisSerializer.class),
+            any(RedisSerializer.class),
+            anyList(),
+            any(Object[].class)))
+        .thenReturn(List.of(1L, 4L));
+    ArgumentCaptor<RedisScript<List>> script = ArgumentCaptor.forClass(RedisScript.class);
+
+    rateLimiter.allowRequest(CLIENT_ID, config);
+    rateLimiter.allowRequest(CLIENT_ID, config);
+
+    verify(redisTemplate, times(2))
+        .execute(
+            script.capture(),
+            any(RedisSerializer.class),
+            any(RedisSerializer.class),
+            anyList(),
+            any(Object[].class));
+    assertSame(script.getAllValues().get(0), script.getAllValues().get(1));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void decide_ShouldTakeQuotaFromScriptReply() {
+    when(redisTemplate.execute(
+            any(RedisScript.class),
+            any(RedisSerializer.class),
+            any(RedisSerializer.class),
+            anyList(),
+            any(Object[].class)))
+        .thenReturn(List.of(0L, 0L, 2500L));
+
+    RateLimitDecision decision = rateLimiter.decide(CLIENT_ID, config);
+
+    assertFalse(decision.allowed());
+    assertEquals(config.getBurstCapacity(), decision.limit());
+    assertEquals(60000 / config.getRequestsPerMinute() - 2500, decision.retryAfterMillis());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void decide_RedisDownUnderCircuitBreaker_ShouldThrowStorageUnavailableAndOpenCircuit() {
+    CircuitBreakerStorage breaker =
+        new CircuitBreakerStorage(
+            mock(RateLimitStorage.class), Duration.ofSeconds(1), 50, 2, Duration.ofSeconds(1));
+    rateLimiter = new RedisTokenBucketRateLimiter(redisTemplate, breaker);
+    when(redisTemplate.execute(
+            any(RedisScript.class),
+            any(RedisSerializer.class),
+            any(RedisSerializer.class),
+            anyList(),
+            any(Object[].class)))
+        .thenThrow(new RedisConnectionFailureException("connection refused"));
+
+    assertThrows(StorageUnavailableException.class, () -> rateLimiter.decide(CLIENT_ID, config));
+    assertThrows(StorageUnavailableException.class, () -> rateLimiter.decide(CLIENT_ID, config));
+    assertTrue(breaker.isOpen());
+    clearInvocations(redisTemplate);
+
+    assertThrows(StorageUnavailableException.class, () -> rateLimiter.decide(CLIENT_ID, config));
+    verifyNoInteractions(redisTemplate);
+  }
+}
@@ -0,0 +1,104 @@
+package com.vbalan.rate_limiter.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.vbalan.rate_limiter.model.ClientConfiguration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Replays the same synthetic traffic through the exact sliding log and the approximate sliding
+ * window counter, comparing admitted requests, worst rolling-window overshoot and state size.
+ */
+class SlidingWindowAccuracyComparisonTest {
+
+  private static final String CLIENT_ID = "test-client";
+  private static final long WINDOW = 60000;
+  private static final int LIMIT = 100;
+  private final ClientConfiguration config = new ClientConfiguration(LIMIT, 10);
+
+  private record Result(List<Long> admitted, int maxStateLongs) {}
+
+  private static List<Long> traffic(long seed, long durationMs, double requestsPerSecond) {
+    Random random = new Random(seed);
+    List<Long> arrivals = new ArrayList<>();
+    double t = 0;
+    while (t < durationMs) {
+      t += -Math.log(1 - random.nextDouble()) * 1000 / requestsPerSecond;
+      arrivals.add((long) t);
+    }
+    return arrivals;
+  }
+
+  private Result runSlidingLog(List<Long> arrivals) {
+    List<Long> admitted = new ArrayList<>();
+    long[] state = null;
+    int maxState = 0;
+    for (long now : arrivals) {
+      SlidingWindowOperation operation = new SlidingWindowOperation(CLIENT_ID, config, now, WINDOW);
+      state = operation.apply(state);
+      if (operation.reply()[0] == 1) {
+        admitted.add(now);
+      }
+      maxState = Math.max(maxState, state != null ? (int) state[1] : 0);
+    }
+    return new Result(admitted, maxState);
+  }
+
+  private Result runSlidingCounter(List<Long> arrivals) {
+    List<Long> admitted = new ArrayList<>();
+    long[] state = null;
+    for (long now : arrivals) {
+      SlidingWindowCounterOperation operation =
+          new SlidingWindowCounterOperation(CLIENT_ID, config, now, WINDOW);
+      state = operation.apply(state);
+      if (operation.reply()[0] == 1) {
+        admitted.add(now);
+      }
+    }
+    return new Result(admitted, state.length);
+  }
+
+  private static int maxInAnyWindow(List<Long> admitted) {
+    int max = 0;
+    int start = 0;
+    for (int end = 0; end < admitted.size(); end++) {
+      while (admitted.get(start) <= admitted.get(end) - WINDOW) {
+        start++;
+      }
+      max = Math.max(max, end - start + 1);
+    }
+    return max;
+  }
+
+  @Test
+  void steadyOverload_CounterShouldTrackLogClosely() {
+    List<Long> arrivals = traffic(42, 30 * WINDOW, 5);
+
+    Result log = runSlidingLog(arrivals);
+    Result counter = runSlidingCounter(arrivals);
+
+    assertEquals(LIMIT, maxInAnyWindow(log.admitted()));
+    assertTrue(maxInAnyWindow(counter.admitted()) <= LIMIT * 1.1);
+    assertEquals(log.admitted().size(), counter.admitted().size(), log.admitted().size() * 0.05);
+    assertEquals(LIMIT, log.maxStateLongs());
+    assertEquals(3, counter.maxStateLongs());
+  }
+
+  @Test
+  void burstAtWindowEdge_CounterShouldBoundOvershoot() {
+    List<Long> arrivals = new ArrayList<>();
+    for (int i = 0; i < LIMIT; i++) {
+      arrivals.add(WINDOW - 100 + i);
+    }
+    arrivals.addAll(traffic(7, 2 * WINDOW, 10).stream().map(t -> t + WINDOW).toList());
+
+    Result log = runSlidingLog(arrivals);
+    Result counter = runSlidingCounter(arrivals);
+
+    assertEquals(LIMIT, maxInAnyWindow(log.admitted()));
+    assertTrue(maxInAnyWindow(counter.admitted()) < LIMIT * 2);
+  }
+}
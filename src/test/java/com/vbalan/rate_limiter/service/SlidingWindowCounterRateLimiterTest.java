@@ -0,0 +1,137 @@
+package com.vbalan.rate_limiter.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.vbalan.rate_limiter.model.ClientConfiguration;
+import com.vbalan.rate_limiter.storage.AtomicOperation;
+import com.vbalan.rate_limiter.storage.RateLimitStorage;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class SlidingWindowCounterRateLimiterTest {
+
+  @Mock private RateLimitStorage storage;
+
+  private SlidingWindowCounterRateLimiter rateLimiter;
+  private final ClientConfiguration config = new ClientConfiguration(3, 10);
+  private final Map<String, long[]> states = new HashMap<>();
+  private static final String CLIENT_ID = "test-client";
+  private static final long WINDOW = 60000;
+
+  @BeforeEach
+  void setUp() {
+    rateLimiter = new SlidingWindowCounterRateLimiter(storage);
+  }
+
+  private void givenStorage() {
+    when(storage.compute(any(AtomicOperation.class), any(Duration.class)))
+        .thenAnswer(
+            invocation -> {
+              AtomicOperation operation = invocation.getArgument(0);
+              states.put(
+                  operation.keys().getFirst(),
+                  operation.apply(states.get(operation.keys().getFirst())));
+              return operation.reply();
+            });
+  }
+
+  private static boolean apply(long[] state, long now, ClientConfiguration config) {
+    SlidingWindowCounterOperation operation =
+        new SlidingWindowCounterOperation(CLIENT_ID, config, now, WINDOW);
+    operation.apply(state);
+    return operation.reply()[0] == 1;
+  }
+
+  @Test
+  void allowRequest_WithinLimit_ShouldAllowWithOneStorageCall() {
+    givenStorage();
+
+    assertTrue(rateLimiter.allowRequest(CLIENT_ID, config));
+    assertTrue(rateLimiter.allowRequest(CLIENT_ID, config));
+
+    verify(storage, times(2)).compute(any(AtomicOperation.class), eq(Duration.ofMinutes(2)));
+    assertEquals(3, states.get("sliding_counter:{" + CLIENT_ID + "}").length);
+  }
+
+  @Test
+  void allowRequest_ShouldUseCounterKey() {
+    givenStorage();
+    ArgumentCaptor<AtomicOperation> captor = ArgumentCaptor.forClass(AtomicOperation.class);
+
+    rateLimiter.allowRequest(CLIENT_ID, config);
+
+    verify(storage).compute(captor.capture(), eq(Duration.ofMinutes(2)));
+    assertEquals(List.of("sliding_counter:{" + CLIENT_ID + "}"), captor.getValue().keys());
+  }
+
+  @Test
+  void apply_CurrentWindowFull_ShouldDeny() {
+    long windowStart = 10 * WINDOW;
+    long[] state = {windowStart, 3, 0};
+
+    assertFalse(apply(state, windowStart + 1000, config));
+    assertEquals(3, state[1]);
+  }
+
+  @Test
+  void apply_NextWindow_ShouldWeightPreviousCount() {
+    long windowStart = 10 * WINDOW;
+    long[] state = {windowStart - WINDOW, 3, 0};
+
+    assertFalse(apply(state, windowStart + WINDOW / 4, config));
+    assertArrayEquals(new long[] {windowStart, 0, 3}, state);
+
+    assertTrue(apply(state, windowStart + WINDOW / 2, config));
+    assertFalse(apply(state, windowStart + WINDOW / 2, config));
+  }
+
+  @Test
+  void apply_WindowSkipped_ShouldForgetOldCounts() {
+    long windowStart = 10 * WINDOW;
+    long[] state = {windowStart - 2 * WINDOW, 3, 3};
+
+    assertTrue(apply(state, windowStart, config));
+    assertArrayEquals(new long[] {windowStart, 1, 0}, state);
+  }
+
+  @Test
+  void apply_ZeroLimit_ShouldDeny() {
+    assertFalse(apply(null, 10 * WINDOW, new ClientConfiguration(0, 10)));
+  }
+
+  @Test
+  void decision_Denied_ShouldRetryOnceEnoughOfPreviousWindowHasSlidOut() {
+    ClientConfiguration limitFive = new ClientConfiguration(5, 10);
+
+    RateLimitDecision decision =
+        SlidingWindowCounterOperation.decision(new long[] {0, 2, 4, 15000}, limitFive, WINDOW);
+
+    // 4 * 45s + 3 * 60s exceeds 5 * 60s until 4 * 30s + 3 * 60s fits, 15s later.
+    assertFalse(decision.allowed());
+    assertEquals(0, decision.remaining());
+    assertEquals(15000, decision.retryAfterMillis());
+    assertEquals(105000, decision.resetMillis());
+    assertTrue(apply(new long[] {0, 2, 4}, 30000, limitFive));
+    assertFalse(apply(new long[] {0, 2, 4}, 29999, limitFive));
+  }
+
+  @Test
+  void decision_NoPreviousWindow_ShouldRetryAtNextWindow() {
+    RateLimitDecision decision =
+        SlidingWindowCounterOperation.decision(new long[] {0, 3, 0, 20000}, config, WINDOW);
+
+    assertEquals(40000, decision.retryAfterMillis());
+    assertEquals(100000, decision.resetMillis());
+  }
+}
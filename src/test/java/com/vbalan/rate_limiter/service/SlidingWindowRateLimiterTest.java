@@ -1,7 +1,10 @@
 package com.vbalan.rate_limiter.service;
 
 import com.vbalan.rate_limiter.model.ClientConfiguration;
+import com.vbalan.rate_limiter.storage.AtomicOperation;
 import com.vbalan.rate_limiter.storage.RateLimitStorage;
+import java.util.HashMap;
+import java.util.Map;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -22,47 +25,75 @@ class SlidingWindowRateLimiterTest {
 
   private SlidingWindowRateLimiter rateLimiter;
   private ClientConfiguration config;
+  private final Map<String, long[]> states = new HashMap<>();
   private static final String CLIENT_ID = "test-client";
 
   @BeforeEach
   void setUp() {
     rateLimiter = new SlidingWindowRateLimiter(storage);
     config = new ClientConfiguration(3, 10);
+    when(storage.compute(any(AtomicOperation.class), any(Duration.class)))
+        .thenAnswer(invocation -> {
+          AtomicOperation operation = invocation.getArgument(0);
+          String key = operation.keys().getFirst();
+          long[] state = operation.apply(states.get(key));
+          if (state == null) {
+            states.remove(key);
+          } else {
+            states.put(key, state);
+          }
+          return operation.reply();
+        });
+  }
+
+  private long[] ring(long... timestamps) {
+    long[] ring = new long[2 + config.getRequestsPerMinute()];
+    ring[1] = timestamps.length;
+    System.arraycopy(timestamps, 0, ring, 2, timestamps.length);
+    return ring;
+  }
+
+  private long[] timestamps(String clientId) {
+    long[] ring = states.get("sliding_requests:{" + clientId + "}");
+    int capacity = ring.length - 2;
+    long[] timestamps = new long[(int) ring[1]];
+    for (int i = 0; i < timestamps.length; i++) {
+      timestamps[i] = ring[2 + (int) ((ring[0] + i) % capacity)];
+    }
+    return timestamps;
   }
 
   @Test
   void allowRequest_FirstRequest_ShouldAllow() {
-    when(storage.getString(anyString())).thenReturn(null);
-
     boolean result = rateLimiter.allowRequest(CLIENT_ID, config);
 
     assertTrue(result);
-    verify(storage).getString("sliding_requests:" + CLIENT_ID);
-    verify(storage).set(eq("sliding_requests:" + CLIENT_ID), anyString(), eq(Duration.ofMinutes(2)));
+    assertEquals(1, timestamps(CLIENT_ID).length);
+    verify(storage).compute(any(AtomicOperation.class), eq(Duration.ofMinutes(2)));
+    verifyNoMoreInteractions(storage);
   }
 
   @Test
   void allowRequest_WithinLimit_ShouldAllow() {
     long now = System.currentTimeMillis();
-    String existingTimestamps = String.valueOf(now - 30000); // 30 seconds ago
-    when(storage.getString(anyString())).thenReturn(existingTimestamps);
+    states.put("sliding_requests:{" + CLIENT_ID + "}", ring(now - 30000));
 
     boolean result = rateLimiter.allowRequest(CLIENT_ID, config);
 
     assertTrue(result);
-    verify(storage).set(eq("sliding_requests:" + CLIENT_ID), anyString(), eq(Duration.ofMinutes(2)));
+    assertEquals(2, timestamps(CLIENT_ID).length);
   }
 
   @Test
   void allowRequest_AtLimit_ShouldDeny() {
     long now = System.currentTimeMillis();
-    String existingTimestamps = (now - 30000) + "," + (now - 20000) + "," + (now - 10000);
-    when(storage.getString(anyString())).thenReturn(existingTimestamps);
+    long[] existingTimestamps = {now - 30000, now - 20000, now - 10000};
+    states.put("sliding_requests:{" + CLIENT_ID + "}", ring(existingTimestamps));
 
     boolean result = rateLimiter.allowRequest(CLIENT_ID, config);
 
     assertFalse(result);
-    verify(storage).set("sliding_requests:" + CLIENT_ID,existingTimestamps, Duration.ofMinutes(2));
+    assertArrayEquals(existingTimestamps, timestamps(CLIENT_ID));
   }
 
   @Test
@@ -70,57 +101,33 @@ class SlidingWindowRateLimiterTest {
     long now = System.currentTimeMillis();
     long oldTimestamp = now - 70000;
     long recentTimestamp = now - 30000;
-    String existingTimestamps = oldTimestamp + "," + recentTimestamp;
-    when(storage.getString(anyString())).thenReturn(existingTimestamps);
-
-    boolean result = rateLimiter.allowRequest(CLIENT_ID, config);
-
-    assertTrue(result);
-    verify(storage).set(eq("sliding_requests:" + CLIENT_ID), argThat(arg ->
-        !arg.contains(String.valueOf(oldTimestamp)) &&
-        arg.contains(String.valueOf(recentTimestamp))), eq(Duration.ofMinutes(2)));
-  }
-
-  @Test
-  void allowRequest_EmptyTimestamps_ShouldAllow() {
-    when(storage.getString(anyString())).thenReturn("");
+    states.put("sliding_requests:{" + CLIENT_ID + "}", ring(oldTimestamp, recentTimestamp));
 
     boolean result = rateLimiter.allowRequest(CLIENT_ID, config);
 
     assertTrue(result);
-    verify(storage).set(eq("sliding_requests:" + CLIENT_ID), anyString(), eq(Duration.ofMinutes(2)));
+    long[] stored = timestamps(CLIENT_ID);
+    assertEquals(2, stored.length);
+    assertEquals(recentTimestamp, stored[0]);
   }
 
   @Test
-  void allowRequest_InvalidTimestampFormat_ShouldIgnoreAndAllow() {
-    String invalidTimestamps = "invalid,123abc,456";
-    when(storage.getString(anyString())).thenReturn(invalidTimestamps);
-
-    boolean result = rateLimiter.allowRequest(CLIENT_ID, config);
-
-    assertTrue(result);
-    verify(storage).set(eq("sliding_requests:" + CLIENT_ID), anyString(), eq(Duration.ofMinutes(2)));
-  }
-
-  @Test
-  void allowRequest_AllTimestampsExpired_ShouldDeleteKey() {
+  void allowRequest_AllTimestampsExpired_ShouldKeepOnlyNewRequest() {
     long now = System.currentTimeMillis();
     long expiredTimestamp = now - 70000;
-    String expiredTimestamps = String.valueOf(expiredTimestamp);
-    when(storage.getString(anyString())).thenReturn(expiredTimestamps);
+    states.put("sliding_requests:{" + CLIENT_ID + "}", ring(expiredTimestamp));
 
     boolean result = rateLimiter.allowRequest(CLIENT_ID, config);
 
     assertTrue(result);
-    verify(storage).set(eq("sliding_requests:" + CLIENT_ID),
-        argThat(arg -> !arg.contains(String.valueOf(expiredTimestamp))),
-        eq(Duration.ofMinutes(2)));
+    long[] stored = timestamps(CLIENT_ID);
+    assertEquals(1, stored.length);
+    assertNotEquals(expiredTimestamp, stored[0]);
   }
 
   @Test
   void allowRequest_HighRequestLimit_ShouldAllow() {
     ClientConfiguration highLimitConfig = new ClientConfiguration(100, 10);
-    when(storage.getString(anyString())).thenReturn(null);
 
     boolean result = rateLimiter.allowRequest(CLIENT_ID, highLimitConfig);
 
@@ -128,44 +135,102 @@ class SlidingWindowRateLimiterTest {
   }
 
   @Test
-  void allowRequest_ZeroRequestLimit_ShouldDeny() {
+  void allowRequest_ZeroRequestLimit_ShouldDenyAndDeleteKey() {
     ClientConfiguration zeroLimitConfig = new ClientConfiguration(0, 10);
-    when(storage.getString(anyString())).thenReturn(null);
 
     boolean result = rateLimiter.allowRequest(CLIENT_ID, zeroLimitConfig);
 
     assertFalse(result);
-    verify(storage).delete("sliding_requests:" + CLIENT_ID);
+    assertFalse(states.containsKey("sliding_requests:{" + CLIENT_ID + "}"));
   }
 
   @Test
   void allowRequest_DifferentClients_ShouldTrackSeparately() {
     String clientId1 = "client-1";
     String clientId2 = "client-2";
-    when(storage.getString("sliding_requests:" + clientId1)).thenReturn(null);
-    when(storage.getString("sliding_requests:" + clientId2)).thenReturn(null);
 
     boolean result1 = rateLimiter.allowRequest(clientId1, config);
     boolean result2 = rateLimiter.allowRequest(clientId2, config);
 
     assertTrue(result1);
     assertTrue(result2);
-    verify(storage).getString("sliding_requests:" + clientId1);
-    verify(storage).getString("sliding_requests:" + clientId2);
-    verify(storage).set(eq("sliding_requests:" + clientId1), anyString(), eq(Duration.ofMinutes(2)));
-    verify(storage).set(eq("sliding_requests:" + clientId2), anyString(), eq(Duration.ofMinutes(2)));
+    assertEquals(1, timestamps(clientId1).length);
+    assertEquals(1, timestamps(clientId2).length);
   }
 
   @Test
   void allowRequest_MultipleRequestsInQuickSuccession_ShouldRespectLimit() {
-    long baseTime = System.currentTimeMillis();
-    String existingRequests = (baseTime - 50000) + "," + (baseTime - 40000) + "," + (baseTime - 30000);
-    when(storage.getString("sliding_requests:" + CLIENT_ID)).thenReturn(existingRequests);
+    assertTrue(rateLimiter.allowRequest(CLIENT_ID, config));
+    assertTrue(rateLimiter.allowRequest(CLIENT_ID, config));
+    assertTrue(rateLimiter.allowRequest(CLIENT_ID, config));
+    assertFalse(rateLimiter.allowRequest(CLIENT_ID, config));
 
-    boolean result = rateLimiter.allowRequest(CLIENT_ID, config);
+    verify(storage, times(4)).compute(any(AtomicOperation.class), eq(Duration.ofMinutes(2)));
+  }
+
+  @Test
+  void allowRequest_FullWindow_ShouldReuseBufferSizedToLimit() {
+    for (int i = 0; i < 3; i++) {
+      rateLimiter.allowRequest(CLIENT_ID, config);
+    }
+    long[] buffer = states.get("sliding_requests:{" + CLIENT_ID + "}");
+
+    assertFalse(rateLimiter.allowRequest(CLIENT_ID, config));
+
+    assertSame(buffer, states.get("sliding_requests:{" + CLIENT_ID + "}"));
+    assertEquals(2 + config.getRequestsPerMinute(), buffer.length);
+  }
+
+  @Test
+  void allowRequest_ExpiredEntriesWrapAround_ShouldEvictByAdvancingHead() {
+    long now = System.currentTimeMillis();
+    long[] buffer = {2, 3, now - 10000, now - 5000, now - 70000};
+    states.put("sliding_requests:{" + CLIENT_ID + "}", buffer);
+
+    assertTrue(rateLimiter.allowRequest(CLIENT_ID, config));
+
+    assertSame(buffer, states.get("sliding_requests:{" + CLIENT_ID + "}"));
+    assertEquals(0, buffer[0]);
+    assertEquals(3, buffer[1]);
+    long[] stored = timestamps(CLIENT_ID);
+    assertEquals(now - 10000, stored[0]);
+    assertEquals(now - 5000, stored[1]);
+  }
+
+  @Test
+  void allowRequest_LimitReduced_ShouldKeepNewestTimestamps() {
+    long now = System.currentTimeMillis();
+    states.put("sliding_requests:{" + CLIENT_ID + "}", ring(now - 30000, now - 20000, now - 10000));
+
+    boolean result = rateLimiter.allowRequest(CLIENT_ID, new ClientConfiguration(2, 10));
 
     assertFalse(result);
-    verify(storage).getString("sliding_requests:" + CLIENT_ID);
-    verify(storage).set("sliding_requests:" + CLIENT_ID, existingRequests, Duration.ofMinutes(2));
+    long[] buffer = states.get("sliding_requests:{" + CLIENT_ID + "}");
+    assertEquals(4, buffer.length);
+    assertEquals(now - 20000, buffer[2]);
+    assertEquals(now - 10000, buffer[3]);
+  }
+
+  @Test
+  void decide_AtLimit_ShouldRetryWhenOldestEntryLeavesWindow() {
+    long now = System.currentTimeMillis();
+    states.put("sliding_requests:{" + CLIENT_ID + "}", ring(now - 50000, now - 40000, now - 30000));
+
+    RateLimitDecision decision = rateLimiter.decide(CLIENT_ID, config);
+
+    assertFalse(decision.allowed());
+    assertEquals(3, decision.limit());
+    assertEquals(0, decision.remaining());
+    assertTrue(decision.retryAfterMillis() > 9_900 && decision.retryAfterMillis() <= 10_000);
+    assertTrue(decision.resetMillis() > 29_900 && decision.resetMillis() <= 30_000);
+  }
+
+  @Test
+  void decide_WithinLimit_ShouldCountThisRequest() {
+    RateLimitDecision decision = rateLimiter.decide(CLIENT_ID, config);
+
+    assertTrue(decision.allowed());
+    assertEquals(2, decision.remaining());
+    assertEquals(60_000, decision.resetMillis());
   }
-}
\ No newline at end of file
+}
@@ -5,11 +5,16 @@ import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 import com.vbalan.rate_limiter.model.ClientConfiguration;
+import com.vbalan.rate_limiter.storage.AtomicOperation;
 import com.vbalan.rate_limiter.storage.RateLimitStorage;
 import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
@@ -20,6 +25,7 @@ class TokenBucketRateLimiterTest {
 
   private TokenBucketRateLimiter rateLimiter;
   private ClientConfiguration config;
+  private final AtomicReference<long[]> state = new AtomicReference<>();
   private static final String CLIENT_ID = "test-client";
 
   @BeforeEach
@@ -28,223 +34,201 @@ class TokenBucketRateLimiterTest {
     config = new ClientConfiguration(10, 5);
   }
 
+  private void givenState(long tokens, long lastRefill) {
+    state.set(new long[] {tokens, lastRefill});
+    givenStorage();
+  }
+
+  private void givenStorage() {
+    when(storage.compute(any(AtomicOperation.class), any(Duration.class)))
+        .thenAnswer(
+            invocation -> {
+              AtomicOperation operation = invocation.getArgument(0);
+              state.set(operation.apply(state.get()));
+              return operation.reply();
+            });
+  }
+
   @Test
   void allowRequest_FirstRequest_ShouldInitializeBucketAndAllow() {
-    when(storage.get("lastRefill:" + CLIENT_ID)).thenReturn(null);
-    when(storage.get("tokens:" + CLIENT_ID)).thenReturn(5L);
+    givenStorage();
 
     boolean result = rateLimiter.allowRequest(CLIENT_ID, config);
 
     assertTrue(result);
-    verify(storage).get("lastRefill:" + CLIENT_ID);
-    verify(storage).set("tokens:" + CLIENT_ID, "5", Duration.ofMinutes(2));
-    verify(storage).set(eq("lastRefill:" + CLIENT_ID), anyString(), eq(Duration.ofMinutes(2)));
-    verify(storage).get("tokens:" + CLIENT_ID);
-    verify(storage).set("tokens:" + CLIENT_ID, "4", Duration.ofMinutes(2));
+    assertEquals(4L, state.get()[0]);
+    verify(storage, times(1)).compute(any(AtomicOperation.class), eq(Duration.ofMinutes(2)));
+    verifyNoMoreInteractions(storage);
   }
 
   @Test
-  void allowRequest_WithTokensAvailable_ShouldConsumeAndAllow() {
-    long now = System.currentTimeMillis();
-    when(storage.get("lastRefill:" + CLIENT_ID)).thenReturn(now);
-    when(storage.get("tokens:" + CLIENT_ID)).thenReturn(3L);
+  void allowRequest_ShouldUseTokenAndRefillKeys() {
+    givenStorage();
+    ArgumentCaptor<AtomicOperation> captor = ArgumentCaptor.forClass(AtomicOperation.class);
 
-    boolean result = rateLimiter.allowRequest(CLIENT_ID, config);
+    rateLimiter.allowRequest(CLIENT_ID, config);
 
-    assertTrue(result);
-    verify(storage).set("tokens:" + CLIENT_ID, "2", Duration.ofMinutes(2));
+    verify(storage).compute(captor.capture(), eq(Duration.ofMinutes(2)));
+    assertEquals(
+        List.of("tokens:{" + CLIENT_ID + "}", "lastRefill:{" + CLIENT_ID + "}"),
+        captor.getValue().keys());
+    assertEquals(10, captor.getValue().arguments()[1]);
+    assertEquals(5, captor.getValue().arguments()[2]);
   }
 
   @Test
-  void allowRequest_WithNoTokensAvailable_ShouldDeny() {
-    long now = System.currentTimeMillis();
-    when(storage.get("lastRefill:" + CLIENT_ID)).thenReturn(now);
-    when(storage.get("tokens:" + CLIENT_ID)).thenReturn(0L);
+  void allowRequest_WithTokensAvailable_ShouldConsumeAndAllow() {
+    givenState(3, System.currentTimeMillis());
 
     boolean result = rateLimiter.allowRequest(CLIENT_ID, config);
 
-    assertFalse(result);
-    verify(storage).get("tokens:" + CLIENT_ID);
-    verify(storage, never()).set(eq("tokens:" + CLIENT_ID), anyString(), any(Duration.class));
+    assertTrue(result);
+    assertEquals(2L, state.get()[0]);
   }
 
   @Test
-  void allowRequest_WithNullTokens_ShouldDeny() {
-    long now = System.currentTimeMillis();
-    when(storage.get("lastRefill:" + CLIENT_ID)).thenReturn(now);
-    when(storage.get("tokens:" + CLIENT_ID)).thenReturn(null);
+  void allowRequest_WithNoTokensAvailable_ShouldDeny() {
+    givenState(0, System.currentTimeMillis());
 
     boolean result = rateLimiter.allowRequest(CLIENT_ID, config);
 
     assertFalse(result);
-    verify(storage).get("tokens:" + CLIENT_ID);
-    verify(storage, never()).set(eq("tokens:" + CLIENT_ID), anyString(), any(Duration.class));
+    assertEquals(0L, state.get()[0]);
   }
 
   @Test
   void allowRequest_TokenRefillNeeded_ShouldRefillAndAllow() {
-    long now = System.currentTimeMillis();
-    long lastRefillTime = now - 60000;
-    when(storage.get("lastRefill:" + CLIENT_ID)).thenReturn(lastRefillTime);
-    when(storage.get("tokens:" + CLIENT_ID)).thenReturn(1L).thenReturn(5L);
+    givenState(1, System.currentTimeMillis() - 60000);
 
     boolean result = rateLimiter.allowRequest(CLIENT_ID, config);
 
     assertTrue(result);
-    verify(storage).set("tokens:" + CLIENT_ID, "5", Duration.ofMinutes(2));
-    verify(storage).set(eq("lastRefill:" + CLIENT_ID), anyString(), eq(Duration.ofMinutes(2)));
-    verify(storage).set("tokens:" + CLIENT_ID, "4", Duration.ofMinutes(2));
+    assertEquals(4L, state.get()[0]);
   }
 
   @Test
   void allowRequest_PartialRefill_ShouldAddPartialTokens() {
-    long now = System.currentTimeMillis();
-    long lastRefillTime = now - 30000;
-    when(storage.get("lastRefill:" + CLIENT_ID)).thenReturn(lastRefillTime);
-    when(storage.get("tokens:" + CLIENT_ID)).thenReturn(2L).thenReturn(5L);
+    givenState(0, System.currentTimeMillis() - 30000);
 
     boolean result = rateLimiter.allowRequest(CLIENT_ID, config);
 
     assertTrue(result);
-    verify(storage).set("tokens:" + CLIENT_ID, "5", Duration.ofMinutes(2));
-    verify(storage).set("tokens:" + CLIENT_ID, "4", Duration.ofMinutes(2));
+    assertEquals(4L, state.get()[0]);
   }
 
   @Test
   void allowRequest_SmallTimeGap_ShouldNotRefill() {
-    long now = System.currentTimeMillis();
-    long lastRefillTime = now - 5000;
-    when(storage.get("lastRefill:" + CLIENT_ID)).thenReturn(lastRefillTime);
-    when(storage.get("tokens:" + CLIENT_ID)).thenReturn(3L);
+    long lastRefillTime = System.currentTimeMillis() - 5000;
+    givenState(3, lastRefillTime);
 
     boolean result = rateLimiter.allowRequest(CLIENT_ID, config);
 
     assertTrue(result);
-    verify(storage).set(eq("tokens:" + CLIENT_ID), anyString(), eq(Duration.ofMinutes(2)));
-    verify(storage, never())
-        .set(eq("lastRefill:" + CLIENT_ID), anyString(), eq(Duration.ofMinutes(2)));
-    verify(storage).set("tokens:" + CLIENT_ID, "2", Duration.ofMinutes(2));
+    assertEquals(2L, state.get()[0]);
+    assertEquals(lastRefillTime, state.get()[1]);
   }
 
   @Test
   void allowRequest_ExactRefillTime_ShouldAddExactTokens() {
-    long now = System.currentTimeMillis();
-    long lastRefillTime = now - 6000;
-    when(storage.get("lastRefill:" + CLIENT_ID)).thenReturn(lastRefillTime);
-    when(storage.get("tokens:" + CLIENT_ID)).thenReturn(1L).thenReturn(2L);
-
-    boolean result = rateLimiter.allowRequest(CLIENT_ID, config);
-
-    assertTrue(result);
-    verify(storage).set("tokens:" + CLIENT_ID, "2", Duration.ofMinutes(2));
-    verify(storage).set("tokens:" + CLIENT_ID, "1", Duration.ofMinutes(2));
-  }
-
-  @Test
-  void allowRequest_ZeroCurrentTokensWithRefill_ShouldRefillAndAllow() {
-    long now = System.currentTimeMillis();
-    long lastRefillTime = now - 12000;
-    when(storage.get("lastRefill:" + CLIENT_ID)).thenReturn(lastRefillTime);
-    when(storage.get("tokens:" + CLIENT_ID)).thenReturn(null).thenReturn(2L);
+    givenState(1, System.currentTimeMillis() - 6000);
 
     boolean result = rateLimiter.allowRequest(CLIENT_ID, config);
 
     assertTrue(result);
-    verify(storage).set("tokens:" + CLIENT_ID, "2", Duration.ofMinutes(2));
-    verify(storage).set("tokens:" + CLIENT_ID, "1", Duration.ofMinutes(2));
+    assertEquals(1L, state.get()[0]);
   }
 
   @Test
   void allowRequest_HighRefillRate_ShouldCapAtBurstCapacity() {
     ClientConfiguration highRateConfig = new ClientConfiguration(120, 3);
-    long now = System.currentTimeMillis();
-    long lastRefillTime = now - 60000;
-    when(storage.get("lastRefill:" + CLIENT_ID)).thenReturn(lastRefillTime);
-    when(storage.get("tokens:" + CLIENT_ID)).thenReturn(1L).thenReturn(3L);
+    givenState(1, System.currentTimeMillis() - 60000);
 
     boolean result = rateLimiter.allowRequest(CLIENT_ID, highRateConfig);
 
     assertTrue(result);
-    verify(storage).set("tokens:" + CLIENT_ID, "3", Duration.ofMinutes(2));
-    verify(storage).set("tokens:" + CLIENT_ID, "2", Duration.ofMinutes(2));
+    assertEquals(2L, state.get()[0]);
   }
 
   @Test
   void allowRequest_ZeroBurstCapacity_ShouldDeny() {
     ClientConfiguration zeroCapacityConfig = new ClientConfiguration(10, 0);
-    when(storage.get("lastRefill:" + CLIENT_ID)).thenReturn(null);
+    givenStorage();
 
     boolean result = rateLimiter.allowRequest(CLIENT_ID, zeroCapacityConfig);
 
     assertFalse(result);
-    verify(storage).set("tokens:" + CLIENT_ID, "0", Duration.ofMinutes(2));
-    verify(storage).get("tokens:" + CLIENT_ID);
-    verify(storage, times(1))
-        .set(eq("tokens:" + CLIENT_ID), anyString(), eq(Duration.ofMinutes(2)));
-  }
-
-  @Test
-  void allowRequest_DifferentClients_ShouldTrackSeparately() {
-    String client1 = "client-1";
-    String client2 = "client-2";
-    when(storage.get("lastRefill:" + client1)).thenReturn(null);
-    when(storage.get("lastRefill:" + client2)).thenReturn(null);
-    when(storage.get("tokens:" + client1)).thenReturn(5L);
-    when(storage.get("tokens:" + client2)).thenReturn(5L);
-
-    boolean result1 = rateLimiter.allowRequest(client1, config);
-    boolean result2 = rateLimiter.allowRequest(client2, config);
-
-    assertTrue(result1);
-    assertTrue(result2);
-    verify(storage).set("tokens:" + client1, "5", Duration.ofMinutes(2));
-    verify(storage).set("tokens:" + client2, "5", Duration.ofMinutes(2));
-    verify(storage).set("tokens:" + client1, "4", Duration.ofMinutes(2));
-    verify(storage).set("tokens:" + client2, "4", Duration.ofMinutes(2));
+    assertEquals(0L, state.get()[0]);
   }
 
   @Test
   void allowRequest_ConsecutiveRequests_ShouldConsumeTokensSequentially() {
-    long now = System.currentTimeMillis();
-    when(storage.get("lastRefill:" + CLIENT_ID)).thenReturn(now);
-    when(storage.get("tokens:" + CLIENT_ID)).thenReturn(3L).thenReturn(2L).thenReturn(1L);
+    givenState(3, System.currentTimeMillis());
 
     assertTrue(rateLimiter.allowRequest(CLIENT_ID, config));
     assertTrue(rateLimiter.allowRequest(CLIENT_ID, config));
     assertTrue(rateLimiter.allowRequest(CLIENT_ID, config));
+    assertFalse(rateLimiter.allowRequest(CLIENT_ID, config));
 
-    verify(storage).set("tokens:" + CLIENT_ID, "2", Duration.ofMinutes(2));
-    verify(storage).set("tokens:" + CLIENT_ID, "1", Duration.ofMinutes(2));
-    verify(storage).set("tokens:" + CLIENT_ID, "0", Duration.ofMinutes(2));
+    verify(storage, times(4)).compute(any(AtomicOperation.class), eq(Duration.ofMinutes(2)));
   }
 
   @Test
   void allowRequest_LongTimeGap_ShouldFullyRefillBucket() {
-    long now = System.currentTimeMillis();
-    long lastRefillTime = now - 300000;
-    when(storage.get("lastRefill:" + CLIENT_ID)).thenReturn(lastRefillTime);
-    when(storage.get("tokens:" + CLIENT_ID)).thenReturn(0L).thenReturn(5L);
+    givenState(0, System.currentTimeMillis() - 300000);
 
     boolean result = rateLimiter.allowRequest(CLIENT_ID, config);
 
     assertTrue(result);
-    verify(storage).set("tokens:" + CLIENT_ID, "5", Duration.ofMinutes(2));
-    verify(storage).set("tokens:" + CLIENT_ID, "4", Duration.ofMinutes(2));
+    assertEquals(4L, state.get()[0]);
   }
 
   @Test
   void allowRequest_NegativeTimeDifference_ShouldNotRefill() {
-    long now = System.currentTimeMillis();
-    long futureRefillTime = now + 10000;
-    when(storage.get("lastRefill:" + CLIENT_ID)).thenReturn(futureRefillTime);
-    when(storage.get("tokens:" + CLIENT_ID)).thenReturn(2L);
+    long futureRefillTime = System.currentTimeMillis() + 10000;
+    givenState(2, futureRefillTime);
 
     boolean result = rateLimiter.allowRequest(CLIENT_ID, config);
 
     assertTrue(result);
-    verify(storage).set(eq("tokens:" + CLIENT_ID), anyString(), eq(Duration.ofMinutes(2)));
-    verify(storage, never())
-        .set(eq("lastRefill:" + CLIENT_ID), anyString(), eq(Duration.ofMinutes(2)));
-    verify(storage).set("tokens:" + CLIENT_ID, "1", Duration.ofMinutes(2));
+    assertEquals(1L, state.get()[0]);
+    assertEquals(futureRefillTime, state.get()[1]);
+  }
+
+  @Test
+  void allowRequestAsync_ShouldDecideFromAsyncStorageReply() {
+    when(storage.computeAsync(any(AtomicOperation.class), any(Duration.class)))
+        .thenReturn(CompletableFuture.completedFuture(new long[] {1, 4, 0}))
+        .thenReturn(CompletableFuture.completedFuture(new long[] {0, 0, 500}));
+
+    assertTrue(rateLimiter.allowRequestAsync(CLIENT_ID, config).toCompletableFuture().join());
+    assertFalse(rateLimiter.allowRequestAsync(CLIENT_ID, config).toCompletableFuture().join());
+    verify(storage, never()).compute(any(), any());
+  }
+
+  @Test
+  void decide_EmptyBucket_ShouldReportTimeUntilNextAndFullBucket() {
+    givenState(0, System.currentTimeMillis() - 1000);
+
+    RateLimitDecision decision = rateLimiter.decide(CLIENT_ID, config);
+
+    // 10 per minute is one token every 6s; 1s of progress has already accrued.
+    assertFalse(decision.allowed());
+    assertEquals(5, decision.limit());
+    assertEquals(0, decision.remaining());
+    assertTrue(decision.retryAfterMillis() > 4_900 && decision.retryAfterMillis() <= 5_000);
+    assertTrue(decision.resetMillis() > 28_900 && decision.resetMillis() <= 29_000);
+  }
+
+  @Test
+  void decide_ShouldReadQuotaFromTheSameStorageCall() {
+    givenStorage();
+
+    RateLimitDecision decision = rateLimiter.decide(CLIENT_ID, config);
+
+    assertTrue(decision.allowed());
+    assertEquals(4, decision.remaining());
+    assertEquals(6_000, decision.resetMillis());
+    assertEquals(0, decision.retryAfterMillis());
+    verify(storage, times(1)).compute(any(AtomicOperation.class), any(Duration.class));
   }
 }
@@ -0,0 +1,221 @@
+package com.vbalan.rate_limiter.storage;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import com.vbalan.rate_limiter.exception.StorageUnavailableException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class CircuitBreakerStorageTest {
+  private static final Duration TTL = Duration.ofMinutes(1);
+  private static final long SLOW_NANOS = Duration.ofMillis(100).toNanos();
+  private static final int WINDOW = 10;
+
+  @Mock private RateLimitStorage delegate;
+
+  @Mock private AtomicOperation operation;
+
+  private final AtomicLong clock = new AtomicLong();
+  private CircuitBreakerStorage storage;
+
+  @BeforeEach
+  void setUp() {
+    storage =
+        new CircuitBreakerStorage(
+            delegate, Duration.ofMillis(100), 50, WINDOW, Duration.ofSeconds(1), clock::get);
+  }
+
+  @Test
+  void increment_HealthyStorage_ShouldDelegateAndStayClosed() {
+    when(delegate.increment("key", 1, TTL)).thenReturn(4L);
+
+    for (int i = 0; i < WINDOW * 3; i++) {
+      assertEquals(4L, storage.increment("key", 1, TTL));
+    }
+
+    assertFalse(storage.isOpen());
+  }
+
+  @Test
+  void compute_HalfOfWindowSlow_ShouldOpen() {
+    when(delegate.compute(operation, TTL))
+        .thenAnswer(
+            invocation -> {
+              clock.addAndGet(SLOW_NANOS + 1);
+              return new long[] {1};
+            });
+
+    for (int i = 0; i < WINDOW / 2 - 1; i++) {
+      storage.compute(operation, TTL);
+    }
+    assertFalse(storage.isOpen());
+    for (int i = 0; i < WINDOW / 2; i++) {
+      storage.get("fast");
+    }
+    assertFalse(storage.isOpen());
+
+    storage.compute(operation, TTL);
+
+    assertTrue(storage.isOpen());
+  }
+
+  @Test
+  void compute_FailuresAgedOutOfWindow_ShouldStayClosed() {
+    when(delegate.getString("key")).thenThrow(new IllegalStateException("connection reset"));
+
+    for (int i = 0; i < WINDOW / 2 - 1; i++) {
+      assertThrows(StorageUnavailableException.class, () -> storage.getString("key"));
+    }
+    for (int i = 0; i < WINDOW; i++) {
+      storage.get("fast");
+    }
+    assertThrows(StorageUnavailableException.class, () -> storage.getString("key"));
+
+    assertFalse(storage.isOpen());
+  }
+
+  @Test
+  void increment_DelegateThrows_ShouldWrapWithCause() {
+    IllegalStateException failure = new IllegalStateException("connection reset");
+    when(delegate.increment(any(), anyLong(), any())).thenThrow(failure);
+
+    StorageUnavailableException thrown =
+        assertThrows(StorageUnavailableException.class, () -> storage.increment("key", 1, TTL));
+
+    assertSame(failure, thrown.getCause());
+  }
+
+  @Test
+  void compute_CircuitOpen_ShouldRejectWithoutCallingStorage() {
+    tripCircuit();
+    clearInvocations(delegate);
+
+    assertThrows(StorageUnavailableException.class, () -> storage.compute(operation, TTL));
+    assertThrows(StorageUnavailableException.class, () -> storage.increment("key", 1, TTL));
+    CompletionException async =
+        assertThrows(
+            CompletionException.class,
+            () -> storage.computeAsync(operation, TTL).toCompletableFuture().join());
+
+    assertInstanceOf(StorageUnavailableException.class, async.getCause());
+    verifyNoInteractions(delegate);
+  }
+
+  @Test
+  void computeAsync_DelegateFails_ShouldCompleteWithStorageUnavailable() {
+    when(delegate.computeAsync(operation, TTL))
+        .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("timeout")));
+
+    CompletionException thrown =
+        assertThrows(
+            CompletionException.class,
+            () -> storage.computeAsync(operation, TTL).toCompletableFuture().join());
+
+    assertInstanceOf(StorageUnavailableException.class, thrown.getCause());
+    assertInstanceOf(IllegalStateException.class, thrown.getCause().getCause());
+  }
+
+  @Test
+  void probe_ThreeFastProbes_ShouldClose() {
+    tripCircuit();
+    reset(delegate);
+
+    storage.probe();
+    storage.probe();
+    assertTrue(storage.isOpen());
+    storage.probe();
+
+    assertFalse(storage.isOpen());
+    verify(delegate, times(CircuitBreakerStorage.PROBE_SUCCESSES))
+        .get(CircuitBreakerStorage.PROBE_KEY);
+  }
+
+  @Test
+  void probe_SlowProbe_ShouldRestartCount() {
+    tripCircuit();
+    reset(delegate);
+    storage.probe();
+    storage.probe();
+    when(delegate.get(CircuitBreakerStorage.PROBE_KEY))
+        .thenAnswer(
+            invocation -> {
+              clock.addAndGet(SLOW_NANOS + 1);
+              return null;
+            })
+        .thenReturn(null);
+
+    storage.probe();
+    storage.probe();
+    storage.probe();
+    assertTrue(storage.isOpen());
+    storage.probe();
+
+    assertFalse(storage.isOpen());
+  }
+
+  @Test
+  void probe_CircuitClosed_ShouldNotTouchStorage() {
+    storage.probe();
+
+    verifyNoInteractions(delegate);
+  }
+
+  @Test
+  void get_AfterClose_ShouldNeedFullWindowToReopen() {
+    tripCircuit();
+    reset(delegate);
+    for (int i = 0; i < CircuitBreakerStorage.PROBE_SUCCESSES; i++) {
+      storage.probe();
+    }
+    when(delegate.get("key")).thenThrow(new IllegalStateException("connection reset"));
+
+    for (int i = 0; i < WINDOW - 1; i++) {
+      assertThrows(StorageUnavailableException.class, () -> storage.get("key"));
+    }
+    assertFalse(storage.isOpen());
+    assertThrows(StorageUnavailableException.class, () -> storage.get("key"));
+
+    assertTrue(storage.isOpen());
+  }
+
+  @Test
+  void start_ShouldRunProbeThreadUntilStopped() {
+    storage.start();
+    assertTrue(storage.isRunning());
+
+    storage.stop();
+
+    assertFalse(storage.isRunning());
+  }
+
+  @Test
+  void start_LifecycleDelegate_ShouldStartAndStopIt() {
+    RedisStorage redis = mock(RedisStorage.class);
+    CircuitBreakerStorage guarded =
+        new CircuitBreakerStorage(redis, Duration.ofMillis(100), 50, WINDOW, Duration.ofSeconds(1));
+
+    guarded.start();
+    guarded.stop();
+
+    verify(redis).start();
+    verify(redis).stop();
+  }
+
+  private void tripCircuit() {
+    when(delegate.get("down")).thenThrow(new IllegalStateException("connection refused"));
+    for (int i = 0; i < WINDOW; i++) {
+      assertThrows(StorageUnavailableException.class, () -> storage.get("down"));
+    }
+    assertTrue(storage.isOpen());
+  }
+}
@@ -4,7 +4,10 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.awaitility.Awaitility.await;
@@ -214,4 +217,256 @@ class InMemoryStorageTest {
       assertEquals("value" + i, storage.getString(key + i));
     }
   }
-}
\ No newline at end of file
+
+  @Test
+  void compute_AbsentKey_ShouldStartFromNullState() {
+    long[] reply = storage.compute(new IncrementOperation("compute-absent"), Duration.ofMinutes(1));
+
+    assertArrayEquals(new long[] {1}, reply);
+  }
+
+  @Test
+  void compute_ExistingKey_ShouldUpdateStateInPlace() {
+    storage.compute(new IncrementOperation("compute-existing"), Duration.ofMinutes(1));
+    long[] reply =
+        storage.compute(new IncrementOperation("compute-existing"), Duration.ofMinutes(1));
+
+    assertArrayEquals(new long[] {2}, reply);
+  }
+
+  @Test
+  void computeAsync_ShouldCompleteImmediatelyWithUpdatedState() {
+    storage.compute(new IncrementOperation("compute-async"), Duration.ofMinutes(1));
+
+    CompletableFuture<long[]> reply =
+        storage
+            .computeAsync(new IncrementOperation("compute-async"), Duration.ofMinutes(1))
+            .toCompletableFuture();
+
+    assertTrue(reply.isDone());
+    assertArrayEquals(new long[] {2}, reply.join());
+  }
+
+  @Test
+  void compute_WithShortDuration_ShouldExpireState() {
+    storage.compute(new IncrementOperation("compute-expiring"), Duration.ofMillis(50));
+
+    await().pollDelay(100, TimeUnit.MILLISECONDS).until(() -> true);
+
+    long[] reply =
+        storage.compute(new IncrementOperation("compute-expiring"), Duration.ofMinutes(1));
+    assertArrayEquals(new long[] {1}, reply);
+  }
+
+  @Test
+  void compute_DeletedKey_ShouldStartFromNullState() {
+    storage.compute(new IncrementOperation("compute-deleted"), Duration.ofMinutes(1));
+    storage.delete("compute-deleted");
+
+    long[] reply =
+        storage.compute(new IncrementOperation("compute-deleted"), Duration.ofMinutes(1));
+    assertArrayEquals(new long[] {1}, reply);
+  }
+
+  @Test
+  void compute_ConcurrentUpdates_ShouldNotLoseUpdates() {
+    String key = "compute-concurrent";
+    int threadCount = 8;
+    int updatesPerThread = 1000;
+    Thread[] threads = new Thread[threadCount];
+
+    for (int i = 0; i < threadCount; i++) {
+      threads[i] = new Thread(() -> {
+        for (int j = 0; j < updatesPerThread; j++) {
+          storage.compute(new IncrementOperation(key), Duration.ofMinutes(1));
+        }
+      });
+      threads[i].start();
+    }
+
+    for (Thread thread : threads) {
+      assertDoesNotThrow(() -> thread.join());
+    }
+
+    long[] reply = storage.compute(new IncrementOperation(key), Duration.ofMinutes(1));
+    assertEquals(threadCount * updatesPerThread + 1, reply[0]);
+  }
+
+  @Test
+  void increment_AbsentKey_ShouldStartFromZero() {
+    assertEquals(5L, storage.increment("counter", 5, Duration.ofMinutes(1)));
+    assertEquals(7L, storage.increment("counter", 2, Duration.ofMinutes(1)));
+    assertEquals(7L, storage.get("counter"));
+    assertEquals("7", storage.getString("counter"));
+  }
+
+  @Test
+  void increment_ExistingNumericString_ShouldContinueFromIt() {
+    storage.set("counter-string", "41", Duration.ofMinutes(1));
+
+    assertEquals(42L, storage.increment("counter-string", 1, Duration.ofMinutes(1)));
+  }
+
+  @Test
+  void increment_ShouldOnlySetExpirationOnCreation() {
+    storage.increment("counter-expiring", 1, Duration.ofMillis(50));
+    storage.increment("counter-expiring", 1, Duration.ofMinutes(1));
+
+    await().atMost(200, TimeUnit.MILLISECONDS)
+        .until(() -> storage.get("counter-expiring") == null);
+
+    assertEquals(1L, storage.increment("counter-expiring", 1, Duration.ofMinutes(1)));
+  }
+
+  @Test
+  void increment_ConcurrentUpdates_ShouldNotLoseUpdates() {
+    int threadCount = 8;
+    Thread[] threads = new Thread[threadCount];
+
+    for (int i = 0; i < threadCount; i++) {
+      threads[i] = new Thread(() -> {
+        for (int j = 0; j < 1000; j++) {
+          storage.increment("counter-concurrent", 1, Duration.ofMinutes(1));
+        }
+      });
+      threads[i].start();
+    }
+
+    for (Thread thread : threads) {
+      assertDoesNotThrow(() -> thread.join());
+    }
+
+    assertEquals(threadCount * 1000L, storage.get("counter-concurrent"));
+  }
+
+  @Test
+  void cleanupExpiredKeys_ShouldReclaimOnlyDueEntries() {
+    AtomicLong clock = new AtomicLong();
+    InMemoryStorage manual = new InMemoryStorage(100, 100, clock::get);
+    manual.set("short", "a", Duration.ofSeconds(5));
+    manual.set("long", "b", Duration.ofMinutes(10));
+    manual.set("permanent", "c", null);
+
+    clock.set(TimeUnit.SECONDS.toNanos(6));
+    manual.cleanupExpiredKeys();
+
+    assertEquals(2, manual.size());
+    assertEquals("b", manual.getString("long"));
+
+    clock.set(TimeUnit.MINUTES.toNanos(11));
+    manual.cleanupExpiredKeys();
+
+    assertEquals(1, manual.size());
+    assertEquals("c", manual.getString("permanent"));
+  }
+
+  @Test
+  void cleanupExpiredKeys_RefreshedDeadline_ShouldKeepEntry() {
+    AtomicLong clock = new AtomicLong();
+    InMemoryStorage manual = new InMemoryStorage(100, 100, clock::get);
+    manual.compute(new IncrementOperation("refreshed"), Duration.ofSeconds(5));
+
+    clock.set(TimeUnit.SECONDS.toNanos(4));
+    manual.compute(new IncrementOperation("refreshed"), Duration.ofSeconds(5));
+    clock.set(TimeUnit.SECONDS.toNanos(7));
+    manual.cleanupExpiredKeys();
+
+    assertEquals(1, manual.size());
+    assertEquals(2L, manual.get("refreshed"));
+
+    clock.set(TimeUnit.SECONDS.toNanos(10));
+    manual.cleanupExpiredKeys();
+
+    assertEquals(0, manual.size());
+  }
+
+  @Test
+  void expire_AfterDeadline_ShouldNotReviveKey() {
+    AtomicLong clock = new AtomicLong();
+    InMemoryStorage manual = new InMemoryStorage(100, 100, clock::get);
+    manual.set("expired", "value", Duration.ofSeconds(1));
+
+    clock.set(TimeUnit.SECONDS.toNanos(2));
+    manual.expire("expired", Duration.ofMinutes(1));
+
+    assertNull(manual.getString("expired"));
+    assertEquals(0, manual.size());
+  }
+
+  @Test
+  void start_ShouldReclaimExpiredKeysUntilStopped() {
+    storage.set("reaped", "value", Duration.ofMillis(10));
+    storage.start();
+
+    assertTrue(storage.isRunning());
+    await().atMost(5, TimeUnit.SECONDS).until(() -> storage.size() == 0);
+
+    storage.stop();
+    assertFalse(storage.isRunning());
+  }
+
+  @Test
+  void maxEntries_Exceeded_ShouldEvictLeastRecentlyRefreshedKey() {
+    AtomicLong clock = new AtomicLong();
+    InMemoryStorage capped = new InMemoryStorage(3, 100, clock::get);
+    capped.set("a", "1", Duration.ofMinutes(2));
+    capped.set("b", "2", Duration.ofMinutes(2));
+    clock.set(TimeUnit.SECONDS.toNanos(5));
+    capped.set("c", "3", Duration.ofMinutes(2));
+
+    clock.set(TimeUnit.SECONDS.toNanos(10));
+    capped.expire("a", Duration.ofMinutes(2));
+    capped.set("d", "4", Duration.ofMinutes(2));
+
+    assertEquals(3, capped.size());
+    assertNull(capped.getString("b"));
+    assertEquals("1", capped.getString("a"));
+    assertEquals("3", capped.getString("c"));
+    assertEquals("4", capped.getString("d"));
+  }
+
+  @Test
+  void constructor_NonPositiveLimits_ShouldThrow() {
+    assertThrows(IllegalArgumentException.class, () -> new InMemoryStorage(0, 10));
+    assertThrows(IllegalArgumentException.class, () -> new InMemoryStorage(10, 0));
+  }
+
+  private static class IncrementOperation implements AtomicOperation {
+    private final String key;
+    private long[] reply;
+
+    IncrementOperation(String key) {
+      this.key = key;
+    }
+
+    @Override
+    public List<String> keys() {
+      return List.of(key);
+    }
+
+    @Override
+    public long[] arguments() {
+      return new long[0];
+    }
+
+    @Override
+    public String script() {
+      return "return {redis.call('INCR', KEYS[1])}";
+    }
+
+    @Override
+    public long[] apply(long[] state) {
+      if (state == null) {
+        state = new long[1];
+      }
+      state[0]++;
+      reply = new long[] {state[0]};
+      return state;
+    }
+
+    @Override
+    public long[] reply() {
+      return reply;
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package com.vbalan.rate_limiter.storage;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class InstrumentedStorageTest {
+
+  @Mock private RateLimitStorage delegate;
+
+  @Mock private AtomicOperation operation;
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private InstrumentedStorage storage;
+
+  @BeforeEach
+  void setUp() {
+    storage = new InstrumentedStorage(delegate, meterRegistry, "memory");
+  }
+
+  @Test
+  void constructor_ShouldRegisterEveryOperationUpFront() {
+    assertEquals(7, meterRegistry.get("rate.limit.storage.operations").timers().size());
+  }
+
+  @Test
+  void compute_ShouldDelegateAndRecordLatency() {
+    when(delegate.compute(operation, Duration.ofMinutes(2))).thenReturn(new long[] {1, 4});
+
+    long[] reply = storage.compute(operation, Duration.ofMinutes(2));
+
+    assertArrayEquals(new long[] {1, 4}, reply);
+    assertEquals(1, timer("compute").count());
+    assertEquals(0, timer("increment").count());
+  }
+
+  @Test
+  void computeAsync_ShouldRecordLatencyOnCompletion() {
+    CompletableFuture<long[]> pending = new CompletableFuture<>();
+    when(delegate.computeAsync(operation, Duration.ofMinutes(2))).thenReturn(pending);
+
+    CompletableFuture<long[]> reply =
+        storage.computeAsync(operation, Duration.ofMinutes(2)).toCompletableFuture();
+
+    assertEquals(0, timer("compute").count());
+    pending.complete(new long[] {1, 4});
+    assertArrayEquals(new long[] {1, 4}, reply.join());
+    assertEquals(1, timer("compute").count());
+  }
+
+  @Test
+  void increment_DelegateThrows_ShouldStillRecordLatency() {
+    when(delegate.increment(any(), anyLong(), any())).thenThrow(new IllegalStateException());
+
+    assertThrows(
+        IllegalStateException.class, () -> storage.increment("key", 1, Duration.ofMinutes(1)));
+    assertEquals(1, timer("increment").count());
+  }
+
+  @Test
+  void getString_ShouldDelegate() {
+    when(delegate.getString("key")).thenReturn("value");
+
+    assertEquals("value", storage.getString("key"));
+    assertEquals(1, timer("getString").count());
+  }
+
+  private Timer timer(String operation) {
+    return meterRegistry
+        .get("rate.limit.storage.operations")
+        .tags("backend", "memory", "operation", operation)
+        .timer();
+  }
+}
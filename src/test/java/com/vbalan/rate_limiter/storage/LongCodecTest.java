@@ -0,0 +1,17 @@
+package com.vbalan.rate_limiter.storage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class LongCodecTest {
+
+  @Test
+  void toAscii_ShouldMatchDecimalRepresentation() {
+    long[] values = {0, 7, 10, -1, -120000, 1_792_236_660_000L, Long.MAX_VALUE, Long.MIN_VALUE};
+
+    for (long value : values) {
+      assertEquals(String.valueOf(value), new String(LongCodec.toAscii(value)));
+    }
+  }
+}
@@ -0,0 +1,380 @@
+package com.vbalan.rate_limiter.storage;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisPipelineException;
+import org.springframework.data.redis.connection.RedisScriptingCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+@ExtendWith(MockitoExtension.class)
+class RedisBatcherTest {
+  private static final RedisScript<List> SCRIPT = RedisScript.of("return {1}", List.class);
+  private static final RedisScript<Long> COUNTER = RedisScript.of("return 1", Long.class);
+
+  @Mock private RedisTemplate<String, String> redisTemplate;
+
+  private RedisBatcher batcher;
+
+  @AfterEach
+  void tearDown() {
+    if (batcher != null) {
+      batcher.stop();
+    }
+  }
+
+  @Test
+  void constructor_NonPositiveBatchSize_ShouldThrow() {
+    assertThrows(
+        IllegalArgumentException.class, () -> new RedisBatcher(redisTemplate, Duration.ZERO, 0));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void submit_NotStarted_ShouldExecuteDirectly() {
+    batcher = new RedisBatcher(redisTemplate, Duration.ZERO, 8);
+    when(redisTemplate.execute(
+            any(RedisScript.class),
+            any(RedisSerializer.class),
+            any(RedisSerializer.class),
+            anyList(),
+            any(Object[].class)))
+        .thenReturn(List.of(1L));
+
+    Object reply = batcher.submit(SCRIPT, List.of("k"), new Object[] {"1".getBytes()}).join();
+
+    assertEquals(List.of(1L), reply);
+    verify(redisTemplate, never()).executePipelined(any(RedisCallback.class), any());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void flush_ShouldPipelineEvalShaAndCompleteEachCallerInOrder() {
+    batcher = new RedisBatcher(redisTemplate, Duration.ZERO, 8);
+    when(redisTemplate.executePipelined(any(RedisCallback.class), any(RedisSerializer.class)))
+        .thenReturn(List.of(List.of(1L, 2L), 7L));
+
+    RedisConnection connection = mock(RedisConnection.class);
+    RedisScriptingCommands scripting = mock(RedisScriptingCommands.class);
+    when(connection.scriptingCommands()).thenReturn(scripting);
+
+    RedisBatcher.Command first = command(SCRIPT, List.of("a", "b"), "10".getBytes());
+    RedisBatcher.Command second = command(COUNTER, List.of("c"), "20".getBytes(), "2".getBytes());
+    batcher.flush(List.of(first, second));
+
+    assertEquals(List.of(1L, 2L), first.result().join());
+    assertEquals(7L, second.result().join());
+
+    ArgumentCaptor<RedisCallback<Object>> callback = ArgumentCaptor.forClass(RedisCallback.class);
+    verify(redisTemplate).executePipelined(callback.capture(), any(RedisSerializer.class));
+    callback.getValue().doInRedis(connection);
+    verify(scripting)
+        .evalSha(
+            SCRIPT.getSha1(), ReturnType.MULTI, 2, "a".getBytes(), "b".getBytes(), "10".getBytes());
+    verify(scripting)
+        .evalSha(
+            COUNTER.getSha1(),
+            ReturnType.INTEGER,
+            1,
+            "c".getBytes(),
+            "20".getBytes(),
+            "2".getBytes());
+    verify(redisTemplate, times(2)).execute(any(RedisCallback.class));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void flush_NoScript_ShouldReloadAndResendOnlyCommandsThatDidNotRun() {
+    batcher = new RedisBatcher(redisTemplate, Duration.ZERO, 8);
+    when(redisTemplate.executePipelined(any(RedisCallback.class), any(RedisSerializer.class)))
+        .thenThrow(
+            new RedisPipelineException(
+                "failed",
+                List.of(
+                    5L, new RedisSystemException("failed", new IllegalStateException("NOSCRIPT")))))
+        .thenReturn(List.of(9L));
+
+    RedisBatcher.Command first = command(COUNTER, List.of("first"));
+    RedisBatcher.Command second = command(SCRIPT, List.of("second"));
+    batcher.flush(List.of(first, second));
+
+    assertEquals(5L, first.result().join());
+    assertEquals(9L, second.result().join());
+    ArgumentCaptor<RedisCallback<Object>> callback = ArgumentCaptor.forClass(RedisCallback.class);
+    verify(redisTemplate, times(2))
+        .executePipelined(callback.capture(), any(RedisSerializer.class));
+    RedisConnection connection = mock(RedisConnection.class);
+    RedisScriptingCommands scripting = mock(RedisScriptingCommands.class);
+    when(connection.scriptingCommands()).thenReturn(scripting);
+    callback.getAllValues().get(1).doInRedis(connection);
+    verify(scripting).evalSha(eq(SCRIPT.getSha1()), any(), anyInt(), any(byte[][].class));
+    verifyNoMoreInteractions(scripting);
+    // Both loaded before the first pipeline, then the missing one again after NOSCRIPT.
+    verify(redisTemplate, times(3)).execute(any(RedisCallback.class));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void flush_NoScriptAgainAfterReload_ShouldFailThatCaller() {
+    batcher = new RedisBatcher(redisTemplate, Duration.ZERO, 8);
+    RedisSystemException noScript =
+        new RedisSystemException("failed", new IllegalStateException("NOSCRIPT"));
+    when(redisTemplate.executePipelined(any(RedisCallback.class), any(RedisSerializer.class)))
+        .thenThrow(new RedisPipelineException("failed", List.of(noScript)));
+
+    RedisBatcher.Command command = command(COUNTER, List.of("first"));
+    batcher.flush(List.of(command));
+
+    CompletionException thrown = assertThrows(CompletionException.class, command.result()::join);
+    assertSame(noScript, thrown.getCause());
+    verify(redisTemplate, times(2))
+        .executePipelined(any(RedisCallback.class), any(RedisSerializer.class));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void flush_OneCommandFails_ShouldFailOnlyThatCallerWithoutResending() {
+    batcher = new RedisBatcher(redisTemplate, Duration.ZERO, 8);
+    RedisSystemException failure =
+        new RedisSystemException("failed", new IllegalStateException("ERR script error"));
+    when(redisTemplate.executePipelined(any(RedisCallback.class), any(RedisSerializer.class)))
+        .thenThrow(new RedisPipelineException("failed", List.of(failure, 4L)));
+
+    RedisBatcher.Command first = command(COUNTER, List.of("first"));
+    RedisBatcher.Command second = command(COUNTER, List.of("second"));
+    batcher.flush(List.of(first, second));
+
+    CompletionException thrown = assertThrows(CompletionException.class, first.result()::join);
+    assertSame(failure, thrown.getCause());
+    assertEquals(4L, second.result().join());
+    verify(redisTemplate, times(1))
+        .executePipelined(any(RedisCallback.class), any(RedisSerializer.class));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void flush_OtherPipelineError_ShouldFailEveryCallerWithoutResending() {
+    batcher = new RedisBatcher(redisTemplate, Duration.ZERO, 8);
+    when(redisTemplate.executePipelined(any(RedisCallback.class), any(RedisSerializer.class)))
+        .thenThrow(new RedisPipelineException(new IllegalStateException("ERR script error")));
+
+    RedisBatcher.Command first = command(COUNTER, List.of("first"));
+    RedisBatcher.Command second = command(SCRIPT, List.of("second"));
+    batcher.flush(List.of(first, second));
+
+    assertThrows(CompletionException.class, () -> first.result().join());
+    assertThrows(CompletionException.class, () -> second.result().join());
+    verify(redisTemplate, times(1))
+        .executePipelined(any(RedisCallback.class), any(RedisSerializer.class));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void flush_PipelineUnavailable_ShouldFailEveryCaller() {
+    batcher = new RedisBatcher(redisTemplate, Duration.ZERO, 8);
+    when(redisTemplate.executePipelined(any(RedisCallback.class), any(RedisSerializer.class)))
+        .thenThrow(new RedisSystemException("down", null));
+
+    RedisBatcher.Command first = command(COUNTER, List.of("first"));
+    RedisBatcher.Command second = command(COUNTER, List.of("second"));
+    batcher.flush(List.of(first, second));
+
+    assertThrows(CompletionException.class, () -> first.result().join());
+    assertThrows(CompletionException.class, () -> second.result().join());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void submit_ConcurrentCallersWithinWindow_ShouldShareOnePipeline() throws Exception {
+    batcher = new RedisBatcher(redisTemplate, Duration.ofMillis(200), 3);
+    when(redisTemplate.executePipelined(any(RedisCallback.class), any(RedisSerializer.class)))
+        .thenReturn(List.of(1L, 2L, 3L));
+    batcher.start();
+
+    List<CompletableFuture<Object>> futures = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      futures.add(batcher.submit(COUNTER, List.of("k" + i), new Object[0]));
+    }
+
+    assertEquals(1L, futures.get(0).get());
+    assertEquals(2L, futures.get(1).get());
+    assertEquals(3L, futures.get(2).get());
+    verify(redisTemplate, times(1))
+        .executePipelined(any(RedisCallback.class), any(RedisSerializer.class));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void stop_ShouldExecuteLaterSubmissionsDirectly() {
+    batcher = new RedisBatcher(redisTemplate, Duration.ZERO, 8);
+    when(redisTemplate.execute(
+            any(RedisScript.class),
+            any(RedisSerializer.class),
+            any(RedisSerializer.class),
+            anyList(),
+            any(Object[].class)))
+        .thenReturn(4L);
+    batcher.start();
+    assertTrue(batcher.isRunning());
+
+    batcher.stop();
+
+    assertFalse(batcher.isRunning());
+    assertEquals(4L, batcher.submit(COUNTER, List.of("k"), new Object[0]).join());
+    verify(redisTemplate, never()).executePipelined(any(RedisCallback.class), any());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void stop_ConcurrentSubmissions_ShouldCompleteEveryCaller() throws Exception {
+    lenient()
+        .when(redisTemplate.executePipelined(any(RedisCallback.class), any(RedisSerializer.class)))
+        .thenReturn(List.of(1L));
+    lenient()
+        .when(
+            redisTemplate.execute(
+                any(RedisScript.class),
+                any(RedisSerializer.class),
+                any(RedisSerializer.class),
+                anyList(),
+                any(Object[].class)))
+        .thenReturn(1L);
+
+    // The race only strands a caller when no flusher is started afterwards, so every round ends
+    // with a final stop and checks its callers before the next one.
+    for (int round = 0; round < 200; round++) {
+      batcher = new RedisBatcher(redisTemplate, Duration.ZERO, 1);
+      List<CompletableFuture<Object>> futures = new CopyOnWriteArrayList<>();
+      CountDownLatch started = new CountDownLatch(2);
+      List<Thread> submitters = new ArrayList<>();
+      for (int t = 0; t < 2; t++) {
+        submitters.add(
+            new Thread(
+                () -> {
+                  started.countDown();
+                  for (int i = 0; i < 50; i++) {
+                    futures.add(batcher.submit(COUNTER, List.of("k"), new Object[0]));
+                  }
+                }));
+      }
+
+      batcher.start();
+      submitters.forEach(Thread::start);
+      started.await();
+      batcher.stop();
+      for (Thread submitter : submitters) {
+        submitter.join();
+      }
+
+      CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(1, TimeUnit.SECONDS);
+      assertEquals(100, futures.size());
+      clearInvocations(redisTemplate);
+    }
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void submit_StoppedAndDrainedBeforeEnqueue_ShouldRunDirectly() throws Exception {
+    when(redisTemplate.execute(
+            any(RedisScript.class),
+            any(RedisSerializer.class),
+            any(RedisSerializer.class),
+            anyList(),
+            any(Object[].class)))
+        .thenReturn(1L);
+    CountDownLatch drained = new CountDownLatch(1);
+    // Stops the batcher between the submitter's flusher check and its enqueue, and lets the
+    // flusher finish draining first.
+    BlockingQueue<RedisBatcher.Command> queue =
+        new LinkedBlockingQueue<>() {
+          @Override
+          public RedisBatcher.Command poll() {
+            RedisBatcher.Command command = super.poll();
+            if (command == null) {
+              drained.countDown();
+            }
+            return command;
+          }
+
+          @Override
+          public boolean add(RedisBatcher.Command command) {
+            batcher.stop();
+            try {
+              assertTrue(drained.await(1, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+              throw new IllegalStateException(e);
+            }
+            return super.add(command);
+          }
+        };
+    batcher = new RedisBatcher(redisTemplate, Duration.ZERO, 1, queue);
+    batcher.start();
+
+    CompletableFuture<Object> result = batcher.submit(COUNTER, List.of("k"), new Object[0]);
+
+    assertEquals(1L, result.get(1, TimeUnit.SECONDS));
+    assertTrue(queue.isEmpty());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void stop_DuringSentPipeline_ShouldNotRunBatchAgain() throws Exception {
+    batcher = new RedisBatcher(redisTemplate, Duration.ZERO, 8);
+    CountDownLatch sent = new CountDownLatch(1);
+    when(redisTemplate.executePipelined(any(RedisCallback.class), any(RedisSerializer.class)))
+        .thenAnswer(
+            invocation -> {
+              sent.countDown();
+              try {
+                new CountDownLatch(1).await();
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+              throw new RedisSystemException("Command interrupted", null);
+            });
+    batcher.start();
+
+    CompletableFuture<Object> result = batcher.submit(COUNTER, List.of("k"), new Object[0]);
+    assertTrue(sent.await(1, TimeUnit.SECONDS));
+    batcher.stop();
+
+    ExecutionException failure =
+        assertThrows(ExecutionException.class, () -> result.get(1, TimeUnit.SECONDS));
+    assertInstanceOf(RedisSystemException.class, failure.getCause());
+    verify(redisTemplate, never())
+        .execute(
+            any(RedisScript.class),
+            any(RedisSerializer.class),
+            any(RedisSerializer.class),
+            anyList(),
+            any(Object[].class));
+  }
+
+  private static RedisBatcher.Command command(
+      RedisScript<?> script, List<String> keys, Object... args) {
+    return new RedisBatcher.Command(script, keys, args, new CompletableFuture<>());
+  }
+}
@@ -4,13 +4,26 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisElementReader;
+import org.springframework.data.redis.serializer.RedisElementWriter;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
 
 @ExtendWith(MockitoExtension.class)
 class RedisStorageTest {
@@ -238,4 +251,205 @@ class RedisStorageTest {
     verify(redisTemplate).expire(key, duration);
     verify(redisTemplate).delete(key);
   }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void compute_ShouldRunScriptOnceWithTtlAndArgumentsAsBytes() {
+    AtomicOperation operation = mock(AtomicOperation.class);
+    when(operation.script()).thenReturn("return {1, 2}");
+    when(operation.keys()).thenReturn(List.of("k1", "k2"));
+    when(operation.arguments()).thenReturn(new long[] {7, -3});
+    when(redisTemplate.execute(
+            any(RedisScript.class),
+            any(RedisSerializer.class),
+            any(RedisSerializer.class),
+            eq(List.of("k1", "k2")),
+            any(Object[].class)))
+        .thenReturn(List.of(1L, 2L));
+
+    long[] reply = storage.compute(operation, Duration.ofSeconds(90));
+
+    assertArrayEquals(new long[] {1, 2}, reply);
+    ArgumentCaptor<RedisScript<List>> script = ArgumentCaptor.forClass(RedisScript.class);
+    ArgumentCaptor<Object> args = ArgumentCaptor.forClass(Object.class);
+    verify(redisTemplate)
+        .execute(
+            script.capture(),
+            any(RedisSerializer.class),
+            any(RedisSerializer.class),
+            eq(List.of("k1", "k2")),
+            args.capture(),
+            args.capture(),
+            args.capture());
+    assertEquals("return {1, 2}", script.getValue().getScriptAsString());
+    assertArrayEquals("90000".getBytes(), (byte[]) args.getAllValues().get(0));
+    assertArrayEquals("7".getBytes(), (byte[]) args.getAllValues().get(1));
+    assertArrayEquals("-3".getBytes(), (byte[]) args.getAllValues().get(2));
+    verify(operation, never()).apply(any());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void compute_SameScript_ShouldReuseCachedScript() {
+    AtomicOperation operation = mock(AtomicOperation.class);
+    when(operation.script()).thenReturn("return {1}");
+    when(operation.keys()).thenReturn(List.of("k1"));
+    when(operation.arguments()).thenReturn(new long[0]);
+    when(redisTemplate.execute(
+            any(RedisScript.class),
+            any(RedisSerializer.class),
+            any(RedisSerializer.class),
+            anyList(),
+            any(Object[].class)))
+        .thenReturn(List.of(1L));
+
+    storage.compute(operation, Duration.ofSeconds(1));
+    storage.compute(operation, Duration.ofSeconds(1));
+
+    ArgumentCaptor<RedisScript<List>> script = ArgumentCaptor.forClass(RedisScript.class);
+    verify(redisTemplate, times(2))
+        .execute(
+            script.capture(),
+            any(RedisSerializer.class),
+            any(RedisSerializer.class),
+            anyList(),
+            any(Object[].class));
+    assertSame(script.getAllValues().get(0), script.getAllValues().get(1));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void increment_ShouldUseIncrByScriptWithExpiryOnCreation() {
+    when(redisTemplate.execute(
+            any(RedisScript.class),
+            any(RedisSerializer.class),
+            any(RedisSerializer.class),
+            eq(List.of("counter")),
+            any(Object[].class)))
+        .thenReturn(6L);
+    ArgumentCaptor<RedisScript<Long>> script = ArgumentCaptor.forClass(RedisScript.class);
+
+    long value = storage.increment("counter", 2, Duration.ofSeconds(60));
+
+    assertEquals(6L, value);
+    verify(redisTemplate)
+        .execute(
+            script.capture(),
+            any(RedisSerializer.class),
+            any(RedisSerializer.class),
+            eq(List.of("counter")),
+            any(),
+            any());
+    assertTrue(script.getValue().getScriptAsString().contains("INCRBY"));
+    assertTrue(script.getValue().getScriptAsString().contains("PEXPIRE"));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void computeAsync_WithoutReactiveTemplate_ShouldRunSynchronously() {
+    AtomicOperation operation = mock(AtomicOperation.class);
+    when(operation.script()).thenReturn("return {1}");
+    when(operation.keys()).thenReturn(List.of("k1"));
+    when(operation.arguments()).thenReturn(new long[0]);
+    when(redisTemplate.execute(
+            any(RedisScript.class),
+            any(RedisSerializer.class),
+            any(RedisSerializer.class),
+            anyList(),
+            any(Object[].class)))
+        .thenReturn(List.of(1L));
+
+    CompletableFuture<long[]> reply =
+        storage.computeAsync(operation, Duration.ofSeconds(1)).toCompletableFuture();
+
+    assertTrue(reply.isDone());
+    assertArrayEquals(new long[] {1}, reply.join());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void computeAsync_WithReactiveTemplate_ShouldNotBlockOnRedisTemplate() {
+    ReactiveRedisTemplate<String, String> reactiveTemplate = mock(ReactiveRedisTemplate.class);
+    storage = new RedisStorage(redisTemplate, reactiveTemplate);
+    AtomicOperation operation = mock(AtomicOperation.class);
+    when(operation.script()).thenReturn("return {1, 2}");
+    when(operation.keys()).thenReturn(List.of("k1"));
+    when(operation.arguments()).thenReturn(new long[] {7});
+    Sinks.One<Object> redisReply = Sinks.one();
+    when(reactiveTemplate.execute(
+            any(RedisScript.class),
+            eq(List.of("k1")),
+            anyList(),
+            any(RedisElementWriter.class),
+            any(RedisElementReader.class)))
+        .thenReturn(redisReply.asMono().flux());
+
+    CompletableFuture<long[]> reply =
+        storage.computeAsync(operation, Duration.ofSeconds(90)).toCompletableFuture();
+
+    assertFalse(reply.isDone());
+    redisReply.tryEmitValue(List.of(1L, 2L));
+    assertArrayEquals(new long[] {1, 2}, reply.join());
+    ArgumentCaptor<List<Object>> args = ArgumentCaptor.forClass(List.class);
+    verify(reactiveTemplate)
+        .execute(
+            any(RedisScript.class),
+            eq(List.of("k1")),
+            args.capture(),
+            any(RedisElementWriter.class),
+            any(RedisElementReader.class));
+    assertArrayEquals("90000".getBytes(), (byte[]) args.getValue().get(0));
+    assertArrayEquals("7".getBytes(), (byte[]) args.getValue().get(1));
+    verifyNoInteractions(redisTemplate);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void incrementAsync_WithReactiveTemplate_ShouldReturnCounterValue() {
+    ReactiveRedisTemplate<String, String> reactiveTemplate = mock(ReactiveRedisTemplate.class);
+    storage = new RedisStorage(redisTemplate, reactiveTemplate);
+    when(reactiveTemplate.execute(
+            any(RedisScript.class),
+            eq(List.of("counter")),
+            anyList(),
+            any(RedisElementWriter.class),
+            any(RedisElementReader.class)))
+        .thenReturn(Flux.just(6L));
+
+    assertEquals(
+        6L,
+        storage.incrementAsync("counter", 2, Duration.ofSeconds(60)).toCompletableFuture().join());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void increment_BatchedReplyLate_ShouldTimeOut() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    when(redisTemplate.executePipelined(any(RedisCallback.class), any(RedisSerializer.class)))
+        .thenAnswer(
+            invocation -> {
+              release.await();
+              return List.of(1L);
+            });
+    storage = new RedisStorage(redisTemplate, null, Duration.ZERO, 8, Duration.ofMillis(100));
+    storage.start();
+    try {
+      assertThrows(
+          QueryTimeoutException.class,
+          () -> storage.increment("counter", 1, Duration.ofMinutes(1)));
+    } finally {
+      release.countDown();
+      storage.stop();
+    }
+  }
+
+  @Test
+  void constructor_BatchedWithoutPositiveTimeout_ShouldThrow() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new RedisStorage(redisTemplate, null, Duration.ZERO, 8, null));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new RedisStorage(redisTemplate, null, Duration.ZERO, 8, Duration.ZERO));
+  }
 }
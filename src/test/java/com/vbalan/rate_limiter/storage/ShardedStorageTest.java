@@ -0,0 +1,186 @@
+package com.vbalan.rate_limiter.storage;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import com.vbalan.rate_limiter.exception.StorageUnavailableException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ShardedStorageTest {
+  private static final int CLIENTS = 20_000;
+
+  private final Map<String, InMemoryStorage> backends = new LinkedHashMap<>();
+  private ShardedStorage storage;
+
+  @BeforeEach
+  void setUp() {
+    for (int port = 6379; port < 6383; port++) {
+      backends.put("redis:" + port, new InMemoryStorage());
+    }
+    storage = new ShardedStorage(backends, ShardedStorage.DEFAULT_VIRTUAL_NODES);
+  }
+
+  @Test
+  void increment_ShouldLandOnExactlyOneShard() {
+    storage.increment("counter:{client-1}", 3, Duration.ofMinutes(1));
+
+    assertEquals(3L, storage.get("counter:{client-1}"));
+    assertEquals(
+        1, backends.values().stream().filter(b -> b.get("counter:{client-1}") != null).count());
+  }
+
+  @Test
+  void shard_SameHashTag_ShouldRouteToSameShard() {
+    for (int i = 0; i < 1_000; i++) {
+      String client = "client-" + i;
+      assertSame(
+          storage.shard("tokens:{" + client + "}"), storage.shard("lastRefill:{" + client + "}"));
+    }
+  }
+
+  @Test
+  void routingHash_ShouldHashTagOrWholeKeyWhenTagEmpty() {
+    assertEquals(ShardedStorage.hash("a{}b", 0, 4), ShardedStorage.routingHash("a{}b"));
+    assertEquals(ShardedStorage.hash("id", 0, 2), ShardedStorage.routingHash("x:{id}:y"));
+  }
+
+  @Test
+  void compute_ShouldRunOnShardOfFirstKey() {
+    RateLimitStorage first = mock(RateLimitStorage.class);
+    RateLimitStorage second = mock(RateLimitStorage.class);
+    ShardedStorage sharded = new ShardedStorage(Map.of("a", first, "b", second), 16);
+    AtomicOperation operation = mock(AtomicOperation.class);
+    when(operation.keys()).thenReturn(List.of("tokens:{client-1}", "lastRefill:{client-1}"));
+    RateLimitStorage owner = sharded.shard("tokens:{client-1}");
+    when(owner.compute(operation, Duration.ofMinutes(1))).thenReturn(new long[] {1, 2});
+
+    assertArrayEquals(new long[] {1, 2}, sharded.compute(operation, Duration.ofMinutes(1)));
+    verify(owner == first ? second : first, never()).compute(any(), any());
+  }
+
+  @Test
+  void shard_ManyClients_ShouldSpreadEvenly() {
+    Map<RateLimitStorage, Integer> counts = new HashMap<>();
+    for (int i = 0; i < CLIENTS; i++) {
+      counts.merge(storage.shard("tokens:{client-" + i + "}"), 1, Integer::sum);
+    }
+
+    assertEquals(4, counts.size());
+    for (int count : counts.values()) {
+      assertTrue(count > CLIENTS / 4 * 0.8 && count < CLIENTS / 4 * 1.2, "count: " + count);
+    }
+  }
+
+  @Test
+  void shard_AddingShard_ShouldOnlyMoveClientsToNewShard() {
+    Map<String, InMemoryStorage> grown = new LinkedHashMap<>(backends);
+    InMemoryStorage added = new InMemoryStorage();
+    grown.put("redis:6383", added);
+    ShardedStorage larger = new ShardedStorage(grown, ShardedStorage.DEFAULT_VIRTUAL_NODES);
+
+    int moved = 0;
+    for (int i = 0; i < CLIENTS; i++) {
+      String key = "tokens:{client-" + i + "}";
+      if (storage.shard(key) != larger.shard(key)) {
+        assertSame(added, larger.shard(key));
+        moved++;
+      }
+    }
+    assertTrue(moved > CLIENTS / 5 * 0.8 && moved < CLIENTS / 5 * 1.2, "moved: " + moved);
+  }
+
+  @Test
+  void shard_RemovingShard_ShouldOnlyMoveItsClients() {
+    Map<String, InMemoryStorage> shrunk = new LinkedHashMap<>(backends);
+    InMemoryStorage removed = shrunk.remove("redis:6380");
+    ShardedStorage smaller = new ShardedStorage(shrunk, ShardedStorage.DEFAULT_VIRTUAL_NODES);
+
+    for (int i = 0; i < CLIENTS; i++) {
+      String key = "tokens:{client-" + i + "}";
+      if (storage.shard(key) != removed) {
+        assertSame(storage.shard(key), smaller.shard(key));
+      }
+    }
+  }
+
+  @Test
+  void shard_ShardOrder_ShouldNotChangeRouting() {
+    Map<String, InMemoryStorage> reversed = new LinkedHashMap<>();
+    List.copyOf(backends.keySet())
+        .reversed()
+        .forEach(name -> reversed.put(name, backends.get(name)));
+    ShardedStorage other = new ShardedStorage(reversed, ShardedStorage.DEFAULT_VIRTUAL_NODES);
+
+    for (int i = 0; i < 1_000; i++) {
+      String key = "tokens:{client-" + i + "}";
+      assertSame(storage.shard(key), other.shard(key));
+    }
+  }
+
+  @Test
+  void start_ShouldStartLifecycleShards() {
+    RedisStorage redis = mock(RedisStorage.class);
+    ShardedStorage sharded =
+        new ShardedStorage(Map.of("a", redis, "b", mock(RateLimitStorage.class)), 16);
+
+    sharded.start();
+    when(redis.isRunning()).thenReturn(true);
+
+    verify(redis).start();
+    assertTrue(sharded.isRunning());
+    sharded.stop();
+    verify(redis).stop();
+  }
+
+  @Test
+  void increment_OneOfTwoShardsFailing_ShouldOnlyOpenItsBreaker() {
+    RateLimitStorage up = mock(RateLimitStorage.class);
+    RateLimitStorage down = mock(RateLimitStorage.class);
+    when(up.increment(anyString(), anyLong(), any())).thenReturn(1L);
+    when(down.increment(anyString(), anyLong(), any()))
+        .thenThrow(new IllegalStateException("connection refused"));
+    CircuitBreakerStorage upBreaker =
+        new CircuitBreakerStorage(up, Duration.ofSeconds(1), 50, 4, Duration.ofSeconds(1));
+    CircuitBreakerStorage downBreaker =
+        new CircuitBreakerStorage(down, Duration.ofSeconds(1), 50, 4, Duration.ofSeconds(1));
+    ShardedStorage sharded =
+        new ShardedStorage(Map.of("redis:6379", upBreaker, "redis:6380", downBreaker), 16);
+    String upKey = keyOn(sharded, upBreaker);
+    String downKey = keyOn(sharded, downBreaker);
+
+    for (int i = 0; i < 4; i++) {
+      assertThrows(
+          StorageUnavailableException.class,
+          () -> sharded.increment(downKey, 1, Duration.ofMinutes(1)));
+    }
+    downBreaker.probe();
+    upBreaker.probe();
+
+    assertTrue(downBreaker.isOpen());
+    assertFalse(upBreaker.isOpen());
+    assertEquals(1L, sharded.increment(upKey, 1, Duration.ofMinutes(1)));
+    verify(down).get(CircuitBreakerStorage.PROBE_KEY);
+    verify(up, never()).get(CircuitBreakerStorage.PROBE_KEY);
+  }
+
+  @Test
+  void constructor_NoShards_ShouldThrow() {
+    assertThrows(IllegalArgumentException.class, () -> new ShardedStorage(Map.of(), 16));
+  }
+
+  private static String keyOn(ShardedStorage sharded, RateLimitStorage shard) {
+    for (int i = 0; ; i++) {
+      String key = "tokens:{client-" + i + "}";
+      if (sharded.shard(key) == shard) {
+        return key;
+      }
+    }
+  }
+}
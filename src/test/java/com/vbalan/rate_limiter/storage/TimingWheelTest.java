@@ -0,0 +1,117 @@
+package com.vbalan.rate_limiter.storage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class TimingWheelTest {
+
+  private static final long TICK = 1_000;
+
+  private final TimingWheel<TimingWheel.Node> wheel = new TimingWheel<>(TICK);
+
+  @Test
+  void advance_BeforeDeadline_ShouldReturnNothing() {
+    TimingWheel.Node node = new TimingWheel.Node();
+    wheel.schedule(node, 5 * TICK);
+
+    assertTrue(wheel.advance(4 * TICK, Integer.MAX_VALUE).isEmpty());
+    assertEquals(List.of(node), wheel.advance(5 * TICK, Integer.MAX_VALUE));
+  }
+
+  @Test
+  void advance_DeadlinesOnHigherLevels_ShouldCascadeAndExpireInOrder() {
+    TimingWheel.Node near = new TimingWheel.Node();
+    TimingWheel.Node middle = new TimingWheel.Node();
+    TimingWheel.Node far = new TimingWheel.Node();
+    wheel.schedule(far, 300_000 * TICK);
+    wheel.schedule(middle, 5_000 * TICK);
+    wheel.schedule(near, 70 * TICK);
+
+    assertEquals(List.of(near), wheel.advance(100 * TICK, Integer.MAX_VALUE));
+    assertTrue(wheel.advance(4_999 * TICK, Integer.MAX_VALUE).isEmpty());
+    assertEquals(List.of(middle), wheel.advance(5_000 * TICK, Integer.MAX_VALUE));
+    assertTrue(wheel.advance(299_999 * TICK, Integer.MAX_VALUE).isEmpty());
+    assertEquals(List.of(far), wheel.advance(300_000 * TICK, Integer.MAX_VALUE));
+  }
+
+  @Test
+  void advance_DeadlineBeyondWheelSpan_ShouldExpireAtDeadline() {
+    TimingWheel.Node node = new TimingWheel.Node();
+    long deadline = (1L << 25) * TICK;
+    wheel.schedule(node, deadline);
+
+    assertTrue(wheel.advance(deadline - TICK, Integer.MAX_VALUE).isEmpty());
+    assertEquals(List.of(node), wheel.advance(deadline, Integer.MAX_VALUE));
+  }
+
+  @Test
+  void schedule_LaterDeadline_ShouldBeRefiledInsteadOfExpired() {
+    TimingWheel.Node node = new TimingWheel.Node();
+    wheel.schedule(node, 10 * TICK);
+    wheel.schedule(node, 30 * TICK);
+
+    assertTrue(wheel.advance(20 * TICK, Integer.MAX_VALUE).isEmpty());
+    assertEquals(List.of(node), wheel.advance(30 * TICK, Integer.MAX_VALUE));
+  }
+
+  @Test
+  void schedule_EarlierDeadline_ShouldExpireAtNewDeadline() {
+    TimingWheel.Node node = new TimingWheel.Node();
+    wheel.schedule(node, 100 * TICK);
+    wheel.schedule(node, 10 * TICK);
+
+    assertEquals(List.of(node), wheel.advance(10 * TICK, Integer.MAX_VALUE));
+    assertTrue(wheel.advance(100 * TICK, Integer.MAX_VALUE).isEmpty());
+  }
+
+  @Test
+  void advance_WithLimit_ShouldResumeOnNextCall() {
+    TimingWheel.Node first = new TimingWheel.Node();
+    TimingWheel.Node second = new TimingWheel.Node();
+    TimingWheel.Node third = new TimingWheel.Node();
+    wheel.schedule(first, 5 * TICK);
+    wheel.schedule(second, 5 * TICK);
+    wheel.schedule(third, 5 * TICK);
+
+    assertEquals(List.of(first, second), wheel.advance(10 * TICK, 2));
+    assertEquals(List.of(third), wheel.advance(10 * TICK, 2));
+    assertTrue(wheel.advance(10 * TICK, 2).isEmpty());
+  }
+
+  @Test
+  void evict_ShouldReturnNearestDeadlinesFirst() {
+    TimingWheel.Node near = new TimingWheel.Node();
+    TimingWheel.Node middle = new TimingWheel.Node();
+    TimingWheel.Node far = new TimingWheel.Node();
+    wheel.schedule(far, 300_000 * TICK);
+    wheel.schedule(middle, 120 * TICK);
+    wheel.schedule(near, 3 * TICK);
+
+    assertEquals(List.of(near, middle), wheel.evict(2));
+    assertEquals(List.of(far), wheel.evict(5));
+  }
+
+  @Test
+  void evict_PushedDeadline_ShouldBeRefiledBeforeChoosingVictim() {
+    TimingWheel.Node refreshed = new TimingWheel.Node();
+    TimingWheel.Node idle = new TimingWheel.Node();
+    wheel.schedule(refreshed, 120 * TICK);
+    wheel.schedule(idle, 125 * TICK);
+    wheel.schedule(refreshed, 200 * TICK);
+
+    assertEquals(List.of(idle), wheel.evict(1));
+  }
+
+  @Test
+  void cancel_ShouldRemoveNodeAndClearDeadline() {
+    TimingWheel.Node node = new TimingWheel.Node();
+    wheel.schedule(node, 10 * TICK);
+
+    wheel.cancel(node);
+
+    assertTrue(wheel.advance(20 * TICK, Integer.MAX_VALUE).isEmpty());
+    assertFalse(node.isExpired(Long.MAX_VALUE - 1));
+  }
+}